@@ -1,11 +1,19 @@
 package controller;
 
+import javafx.animation.AnimationTimer;
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
-import javafx.concurrent.Task;
+import javafx.scene.control.Slider;
+import javafx.scene.input.MouseButton;
+import javafx.util.Duration;
 import model.*;
 import view.Screen;
 import view.View;
 
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,18 +23,35 @@ import java.util.regex.Pattern;
  */
 public class Controller {
 
+    private static final long SEARCH_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final double REPLAY_MILLIS_PER_STEP = 2;
+    private static final double ZOOM_PER_WHEEL_NOTCH = 1.25;
+
     private final View view;
     private final Graph graph;
+    private final SearchScheduler scheduler;
     private PathAlgorithm alg;
-    private PathFindingProcedure pathFindingProcedure;
+    private SearchHandle currentSearch;
+    private volatile SearchTrace lastTrace;
+    private TraceReplayer replayer;
+    private Timeline replayAnimation;
+    private final ObstacleEdits pendingEdits;
+    private final AnimationTimer editTimer;
 
     public Controller(View view) {
         this.view = view;
         graph = new Graph();
         graph.populateEmpty();
+        scheduler = new SearchScheduler(4);
+        pendingEdits = new ObstacleEdits(graph.getWIDTH(), graph.getHEIGHT());
+        editTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                flushEdits();
+            }
+        };
 
         prepareForPathfinding(false);
-        pathFindingProcedure = new PathFindingProcedure(this.alg, view);
 
         initListeners();
     }
@@ -41,8 +66,20 @@ public class Controller {
         // key listener for the "Visualize path" button
         view.getStartButton().setOnAction((actionEvent) -> {
 
-            if(pathFindingProcedure.isActive() || !prepareForPathfinding(false)) return;
-            pathFindingProcedure = new PathFindingProcedure(alg, view);
+            if(isSearchActive() || !inputCoordinatesAreValid()) return;
+            flushEdits();
+
+            // reject queries between disconnected points before any search structures are allocated
+            Point startPoint = extractPoint(view.getStartCoordinateField().getText());
+            Point endPoint = extractPoint(view.getEndCoordinateField().getText());
+            if(!graph.isReachable(startPoint, endPoint)) {
+                view.resetStats();
+                screen.clear(graph.getObstacleNodes());
+                view.activateDialogPopup("There is no possible path from start to destination node.");
+                return;
+            }
+
+            if(!prepareForPathfinding(false)) return;
             runSelectedGraphAlgorithm();
 
         });
@@ -50,47 +87,148 @@ public class Controller {
         // key listener for the "Generate maze" button
         view.getGenMazeButton().setOnAction((actionEvent) -> {
 
-            if(pathFindingProcedure.isActive() || !prepareForPathfinding(true)) return;
+            if(isSearchActive()) return;
+            pendingEdits.clear();
+            if(!prepareForPathfinding(true)) return;
+            stopReplay();
 
-            MazeDfsGenerator.generateMaze(graph, alg.getStartPoint(), alg.getEndPoint());
+            new MazeDfsGenerator(System.nanoTime()).generateMaze(graph, alg.getStartPoint(), alg.getEndPoint());
             view.getScreen().render(graph.getObstacleNodes(), graph.getVisitedNodes());
         });
 
         // key listener for the "Clear" button
         view.getClearButton().setOnAction((actionEvent) -> {
 
-            if(pathFindingProcedure.isActive()) return;
+            stopSearch();
+            stopReplay();
+            pendingEdits.clear();
             graph.reset();
             graph.populateEmpty();
             view.resetStats();
             screen.clear(graph.getObstacleNodes());
         });
 
-        // key listener for when mouse is dragged on the tiles to set up obstacles
+        // the position where the last mouse press or drag happened, to pan by the difference
+        double[] lastMouse = new double[2];
+        screen.setOnMousePressed((mouseEvent) -> {
+            lastMouse[0] = mouseEvent.getX();
+            lastMouse[1] = mouseEvent.getY();
+            if(mouseEvent.getButton() != MouseButton.PRIMARY) return;
+
+            // editing the map makes a running search stale, so it is stopped
+            stopSearch();
+            stopReplay();
+            pendingEdits.beginStroke(screen.cellXAt(mouseEvent.getX()), screen.cellYAt(mouseEvent.getY()), true);
+        });
+
+        // key listener for when mouse is dragged on the tiles to set up obstacles, or with another button to pan.
+        // Obstacles are only collected here and applied once per frame by the edit timer
         screen.setOnMouseDragged((mouseEvent) -> {
 
-            if(pathFindingProcedure.isActive()) return;
+            if(mouseEvent.getButton() != MouseButton.PRIMARY) {
+                screen.pan(mouseEvent.getX() - lastMouse[0], mouseEvent.getY() - lastMouse[1]);
+                lastMouse[0] = mouseEvent.getX();
+                lastMouse[1] = mouseEvent.getY();
+                return;
+            }
+            pendingEdits.continueStroke(screen.cellXAt(mouseEvent.getX()), screen.cellYAt(mouseEvent.getY()));
+        });
+        screen.setOnMouseReleased((mouseEvent) -> {
+            if(mouseEvent.getButton() == MouseButton.PRIMARY) pendingEdits.endStroke();
+        });
+        editTimer.start();
+
+        // the mouse wheel zooms around the pointer, and a double click with another button zooms out to the whole grid
+        screen.setOnScroll((scrollEvent) -> {
+            if(scrollEvent.getDeltaY() == 0) return;
+            screen.zoom(Math.pow(ZOOM_PER_WHEEL_NOTCH, scrollEvent.getDeltaY() / 40), scrollEvent.getX(), scrollEvent.getY());
+        });
+        screen.setOnMouseClicked((mouseEvent) -> {
+            if(mouseEvent.getButton() != MouseButton.PRIMARY && mouseEvent.getClickCount() == 2) {
+                screen.resetViewport();
+            }
+        });
 
-            int x = (int) (mouseEvent.getX() - (mouseEvent.getX() % 15)) / 15;
-            int y = (int) (mouseEvent.getY() - (mouseEvent.getY()) % 15) / 15;
+        // key listener for the "Replay" button, which plays back the trace of the last search
+        view.getReplayButton().setOnAction((actionEvent) -> {
 
-            if(!graph.isOutOfBounds(x, y)) {
+            SearchTrace trace = lastTrace;
+            if(isSearchActive() || trace == null) return;
+            stopReplay();
 
-                Node obstacleNode = graph.getNodeByCoordinate(x, y);
-                obstacleNode.setState(NodeState.OBSTACLE);
-                System.out.printf("(%d, %d)\n", obstacleNode.getXCoordinate(), obstacleNode.getYCoordinate());
-                screen.clear(graph.getObstacleNodes());
+            replayer = new TraceReplayer(trace);
+            Slider slider = view.getReplaySlider();
+            slider.setMax(trace.getNumSteps());
+            slider.setValue(0);
+            slider.setDisable(false);
 
-            }
+            double millis = Math.max(1000, Math.min(10_000, trace.getNumSteps() * REPLAY_MILLIS_PER_STEP));
+            replayAnimation = new Timeline(
+                    new KeyFrame(Duration.ZERO, new KeyValue(slider.valueProperty(), 0)),
+                    new KeyFrame(Duration.millis(millis), new KeyValue(slider.valueProperty(), trace.getNumSteps())));
+            replayAnimation.play();
+        });
+
+        // the slider scrubs the replay to any step, forwards or backwards
+        view.getReplaySlider().valueProperty().addListener((observable, oldValue, newValue) -> {
+
+            if(replayer == null) return;
+            replayer.seek(newValue.intValue());
+            screen.renderTrace(replayer.getObstacles(), replayer.getExpanded(), replayer.getFrontier(),
+                    replayer.isAtEnd() ? replayer.getTrace().getPath() : null);
         });
     }
 
+    /**
+     * Applies the obstacles drawn since the last frame to the graph and repaints the screen once for all of them.
+     */
+    private void flushEdits() {
+        if(pendingEdits.isEmpty()) return;
+
+        graph.applyEdits(pendingEdits);
+        pendingEdits.clear();
+        view.getScreen().clear(graph.getObstacleGrid());
+    }
+
     private void runSelectedGraphAlgorithm() {
         Screen screen = view.getScreen();
 
+        stopReplay();
         screen.clear(graph.getObstacleNodes());
-        Thread t = new Thread(pathFindingProcedure);
-        t.start();
+        alg.setTraceRecorder(new TraceRecorder());
+        currentSearch = scheduler.submit(alg, SEARCH_TIMEOUT_NANOS, new PathFindingProcedure(view, trace -> lastTrace = trace));
+    }
+
+    /**
+     * Stops a running replay and leaves the slider disabled until the next one.
+     */
+    private void stopReplay() {
+        if(replayAnimation != null) {
+            replayAnimation.stop();
+            replayAnimation = null;
+        }
+        replayer = null;
+        view.getReplaySlider().setDisable(true);
+    }
+
+    private boolean isSearchActive() {
+        return currentSearch != null && !currentSearch.isDone();
+    }
+
+    /**
+     * Cancels the running search, if any, and waits for it to stop touching the graph.
+     */
+    private void stopSearch() {
+        if(!isSearchActive()) return;
+
+        currentSearch.cancel();
+        try {
+            currentSearch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalStateException e) {
+            // the search or its listener failed, it has stopped all the same
+        }
     }
 
     /**
@@ -107,6 +245,12 @@ public class Controller {
         else if(view.getAlgoMenu().getValue().equals("A* algorithm")){
             alg = new AStar(startPoint, endPoint, graph);
         }
+        else if(view.getAlgoMenu().getValue().equals("Anytime A* (ARA*)")) {
+            alg = new AnytimeAStar(startPoint, endPoint, graph);
+        }
+        else if(view.getAlgoMenu().getValue().equals("Theta* (any-angle)")) {
+            alg = new ThetaStar(startPoint, endPoint, graph);
+        }
         else if(view.getAlgoMenu().getValue().equals("Bidirectional Dijkstra")) {
             alg = new BidirectionalDijkstra(startPoint, endPoint, graph);
         }
@@ -163,55 +307,61 @@ public class Controller {
 
 
     /**
-     * Class which defines the path finding procedure and rendering of the screen as it progresses.
+     * Class which defines the rendering of the screen as the path finding procedure progresses.
      */
-    private static class PathFindingProcedure extends Task<Void> {
+    private static class PathFindingProcedure implements SearchListener {
 
-        private final PathAlgorithm alg;
         private final View view;
-        private final Graph graph;
         private final Screen screen;
-        private boolean active;
+        private final Consumer<SearchTrace> traceSink;
 
-        public PathFindingProcedure(PathAlgorithm alg, View view) {
-            this.alg = alg;
+        /**
+         * @param view - the view to render to
+         * @param traceSink - receives the trace of the search once it has ended, unless it was cancelled
+         */
+        public PathFindingProcedure(View view, Consumer<SearchTrace> traceSink) {
             this.view = view;
-            graph = alg.getGraph();
             screen = view.getScreen();
+            this.traceSink = traceSink;
         }
 
         /**
-         * Activates path finding procedure.
+         * Renders the screen with the structures of the algorithm, and slows the search down so it can be followed.
          */
         @Override
-        public Void call() {
-            active = true;
-
-            // the path procedure continues as long as the given algorithm has yet to find the goal
-            while(!alg.pathIsFound()) {
-                try {
-                    alg.visitNext();
-                    // render the screen with the structures of the algorithm
-                    screen.render(graph.getObstacleNodes(), graph.getVisitedNodes());
-                    java.util.concurrent.TimeUnit.MILLISECONDS.sleep(10);
-
-                } catch (InterruptedException e) {
-                    Platform.runLater(() -> view.activateDialogPopup("There is no possible path from start to destination node."));
-                    break;
-                }
+        public void onStep(PathAlgorithm alg) {
+            Graph graph = alg.getGraph();
+            screen.render(graph.getObstacleNodes(), graph.getVisitedNodes());
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                // the search has been cancelled, which the scheduler notices before the next step
+                Thread.currentThread().interrupt();
             }
+        }
+
+        @Override
+        public void onFinished(PathAlgorithm alg, SearchStatus status) {
+            Graph graph = alg.getGraph();
 
-            // render the screen with path if the algorithm found the end goal
-            if(alg.pathIsFound()) {
-                screen.renderWithPath(graph.getObstacleNodes(), graph.getVisitedNodes(), alg.getPath());
-                view.updateStats(graph.getVisitedNodes().size(), alg.getFoundPathDistance());
+            TraceRecorder recorder = alg.getTraceRecorder();
+            if(recorder != null && status != SearchStatus.CANCELLED) {
+                GridPath path = status == SearchStatus.FOUND ? alg.getGridPath() : null;
+                traceSink.accept(recorder.finish(BitGrid.fromObstacles(graph), status, path));
             }
-            active = false;
-            return null;
-        }
 
-        public boolean isActive() {
-            return active;
+            switch (status) {
+                // render the screen with path if the algorithm found the end goal
+                case FOUND -> {
+                    screen.renderWithPath(graph.getObstacleNodes(), graph.getVisitedNodes(), alg.getGridPath());
+                    view.updateStats(graph.getVisitedNodes().size(), alg.getFoundPathDistance());
+                }
+                case UNREACHABLE -> Platform.runLater(() ->
+                        view.activateDialogPopup("There is no possible path from start to destination node."));
+                case DEADLINE_EXCEEDED -> Platform.runLater(() ->
+                        view.activateDialogPopup("The search took too long and was stopped."));
+                case CANCELLED -> { }
+            }
         }
     }
 
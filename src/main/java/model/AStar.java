@@ -1,6 +1,5 @@
 package model;
 
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.PriorityQueue;
 
@@ -22,7 +21,8 @@ public class AStar extends PathAlgorithm {
         super(graph);
         preProcessNodes(startPoint, endPoint);
 
-        pq = new PriorityQueue<>(Comparator.comparingDouble(AStarNode::getFCost));
+        // a node is removed before it is added again, so with room for every node the queue never grows
+        pq = new PriorityQueue<>(MAX_X_COORDINATE * MAX_Y_COORDINATE, Comparator.comparingDouble(AStarNode::getFCost));
         pq.add((AStarNode) startNode);
     }
 
@@ -68,15 +68,17 @@ public class AStar extends PathAlgorithm {
      */
     public void visit(AStarNode node) {
 
-        // get neighbors from node
-        ArrayList<AStarNode> neighbors = new ArrayList<>();
-        graph.getNeighborsFromNode(node).forEach(n -> neighbors.add((AStarNode) n));
+        int index = graph.indexOf(node);
+        traceExpanded(index);
 
         // explore the distances from current node to all unvisited neighbors
-        for(AStarNode neighbor : neighbors) {
-            if(neighbor.getState() == NodeState.VISITED || neighbor.getState() == NodeState.OBSTACLE) continue;
+        for(int mask = graph.getNeighborMask(index); mask != 0; mask &= mask - 1) {
+            int direction = Integer.numberOfTrailingZeros(mask);
+            int neighborIndex = graph.getNeighborIndex(index, direction);
+            AStarNode neighbor = (AStarNode) graph.getNode(neighborIndex);
+            if(neighbor.getState() == NodeState.VISITED) continue;
 
-            double distToNeighbor = getDistToNeighbor(node, neighbor);
+            double distToNeighbor = Direction.cost(direction);
 
             // when a better G cost is found for a node, update its G cost and F cost
             if(distToNeighbor + node.getGCost() < neighbor.getGCost()) {
@@ -88,6 +90,7 @@ public class AStar extends PathAlgorithm {
                 neighbor.setFCost(GCost + HCost);
                 neighbor.setPrev(node);
                 pq.add(neighbor);
+                traceReached(neighborIndex);
             }
         }
         node.setState(NodeState.VISITED);
@@ -115,9 +118,9 @@ public class AStar extends PathAlgorithm {
 
         AStarNode currentNode = pq.poll();
 
-        // if current node is null, then it is guaranteed to be no possible path, and we will thus interrupt current thread
+        // if current node is null, then it is guaranteed to be no possible path
         if(currentNode == null) {
-            Thread.currentThread().interrupt();
+            exhausted = true;
             return;
         }
         visit(currentNode);
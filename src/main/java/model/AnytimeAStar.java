@@ -0,0 +1,279 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Anytime Repairing A* (ARA*). The first path is found quickly with a heuristic inflated by a factor epsilon, which
+ * guarantees a path at most epsilon times longer than the shortest one. Epsilon is then lowered step by step towards 1,
+ * and every improvement reuses the distances found so far: only the nodes whose distance got better during the last
+ * round are searched again. The search can be stopped at any point and the best path so far is kept.
+ */
+public class AnytimeAStar extends PathAlgorithm {
+
+    public static final double DEFAULT_INITIAL_EPSILON = 2.5;
+    public static final double DEFAULT_EPSILON_STEP = 0.5;
+
+    // number of expansions between checks of the deadline
+    private static final int DEADLINE_CHECK_INTERVAL = 64;
+
+    private final double epsilonStep;
+    private final int start;
+    private final int goal;
+
+    private final double[] g;
+    private final double[] h;
+    private final int[] parent;
+    private final int[] closedInRound; // the round in which the node was last expanded
+    private final boolean[] inconsistent;
+    private final int[] inconsistentList;
+    private int numInconsistent;
+    private final IndexedMinHeap open;
+
+    private double epsilon;
+    private int round;
+    private boolean finished;
+
+    // best solution, published for readers on other threads
+    private volatile int[] bestPath;
+    private volatile double bestDistance = Double.POSITIVE_INFINITY;
+    private volatile double bestBound = Double.POSITIVE_INFINITY;
+
+    public AnytimeAStar(Point startPoint, Point endPoint, Graph graph) {
+        this(startPoint, endPoint, graph, DEFAULT_INITIAL_EPSILON, DEFAULT_EPSILON_STEP);
+    }
+
+    /**
+     * @param startPoint - start coordinate
+     * @param endPoint - end coordinate
+     * @param graph - the graph representation
+     * @param initialEpsilon - inflation of the heuristic for the first path, at least 1
+     * @param epsilonStep - how much epsilon is lowered after each path
+     */
+    public AnytimeAStar(Point startPoint, Point endPoint, Graph graph, double initialEpsilon, double epsilonStep) {
+        super(graph);
+        if(initialEpsilon < 1 || epsilonStep <= 0) {
+            throw new IllegalArgumentException("Epsilon must be at least 1 and the step positive");
+        }
+        preProcessNodes(startPoint, endPoint);
+        this.epsilonStep = epsilonStep;
+        epsilon = initialEpsilon;
+
+        int numCells = MAX_X_COORDINATE * MAX_Y_COORDINATE;
+        g = new double[numCells];
+        h = new double[numCells];
+        parent = new int[numCells];
+        closedInRound = new int[numCells];
+        inconsistent = new boolean[numCells];
+        inconsistentList = new int[numCells];
+        open = new IndexedMinHeap(numCells);
+
+        Arrays.fill(g, Double.POSITIVE_INFINITY);
+        Arrays.fill(parent, -1);
+        Arrays.fill(closedInRound, -1);
+        for(int i = 0; i < numCells; i++) {
+            h[i] = getOctileDistance(i % MAX_X_COORDINATE, i / MAX_X_COORDINATE, endPoint.x, endPoint.y);
+        }
+
+        start = graph.indexOf(startNode);
+        goal = graph.indexOf(endNode);
+        g[start] = 0;
+        open.addOrUpdate(start, epsilon * h[start]);
+    }
+
+    /**
+     * Expands one node, or when the current round is done, publishes its path and starts the next round.
+     */
+    @Override
+    public void visitNext() {
+        if(finished) return;
+
+        if(open.isEmpty() || open.peekKey() >= g[goal]) {
+            finishRound();
+            return;
+        }
+
+        int current = open.poll();
+        closedInRound[current] = round;
+        graph.getNode(current).setState(NodeState.VISITED);
+        traceExpanded(current);
+
+        for(int mask = graph.getNeighborMask(current); mask != 0; mask &= mask - 1) {
+            int direction = Integer.numberOfTrailingZeros(mask);
+            int neighbor = graph.getNeighborIndex(current, direction);
+            double distance = g[current] + Direction.cost(direction);
+            if(distance >= g[neighbor]) continue;
+
+            g[neighbor] = distance;
+            parent[neighbor] = current;
+            if(closedInRound[neighbor] != round) {
+                open.addOrUpdate(neighbor, distance + epsilon * h[neighbor]);
+                traceReached(neighbor);
+            } else if(!inconsistent[neighbor]) {
+                // already expanded in this round, it is searched again in the next round
+                inconsistent[neighbor] = true;
+                inconsistentList[numInconsistent++] = neighbor;
+            }
+        }
+    }
+
+    /**
+     * Runs the search until it is finished or the deadline has passed, whichever happens first.
+     *
+     * @param deadlineNanos - deadline in terms of {@link System#nanoTime()}
+     * @return whether a path has been found, which is then available through {@link #getPath()}
+     */
+    public boolean searchUntil(long deadlineNanos) {
+        while(!finished && !exhausted) {
+            for(int i = 0; i < DEADLINE_CHECK_INTERVAL && !finished && !exhausted; i++) {
+                visitNext();
+            }
+            if(System.nanoTime() - deadlineNanos >= 0) break;
+        }
+        return hasSolution();
+    }
+
+    /**
+     * Publishes the path of the round that just ended, then lowers epsilon and moves the inconsistent nodes to the
+     * open set for the next round.
+     */
+    private void finishRound() {
+        if(g[goal] == Double.POSITIVE_INFINITY) {
+            // no path at all
+            exhausted = true;
+            finished = true;
+            return;
+        }
+        publishSolution();
+
+        if(epsilon <= 1) {
+            finished = true;
+            return;
+        }
+        epsilon = Math.max(1, epsilon - epsilonStep);
+        round++;
+
+        for(int i = 0; i < numInconsistent; i++) {
+            int node = inconsistentList[i];
+            inconsistent[node] = false;
+            open.addOrUpdate(node, g[node] + epsilon * h[node]);
+        }
+        numInconsistent = 0;
+
+        for(int i = 0; i < open.size(); i++) {
+            int node = open.itemAt(i);
+            open.setKeyUnordered(node, g[node] + epsilon * h[node]);
+        }
+        open.heapify();
+    }
+
+    /**
+     * Stores the current path to the goal together with its suboptimality bound, which is the smaller of epsilon and
+     * the path length divided by the smallest unexpanded f value.
+     */
+    private void publishSolution() {
+        double lowerBound = Double.POSITIVE_INFINITY;
+        for(int i = 0; i < open.size(); i++) {
+            int node = open.itemAt(i);
+            lowerBound = Math.min(lowerBound, g[node] + h[node]);
+        }
+        for(int i = 0; i < numInconsistent; i++) {
+            int node = inconsistentList[i];
+            lowerBound = Math.min(lowerBound, g[node] + h[node]);
+        }
+
+        int length = 0;
+        for(int node = goal; node != -1; node = parent[node]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for(int node = goal, i = 0; node != -1; node = parent[node]) {
+            path[i++] = node;
+        }
+
+        bestPath = path;
+        bestDistance = g[goal];
+        bestBound = lowerBound == Double.POSITIVE_INFINITY ? 1 : Math.max(1, Math.min(epsilon, g[goal] / lowerBound));
+    }
+
+    /**
+     * The search is done when the path is known to be the shortest one.
+     */
+    @Override
+    public boolean pathIsFound() {
+        return finished && !exhausted;
+    }
+
+    public boolean hasSolution() {
+        return bestPath != null;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return the guaranteed bound on how much longer the best path so far is compared to the shortest path,
+     * or positive infinity if no path has been found yet
+     */
+    public double getEpsilon() {
+        return bestBound;
+    }
+
+    /**
+     * @return the epsilon of the round in progress
+     */
+    public double getCurrentInflation() {
+        return epsilon;
+    }
+
+    /**
+     * @return the best path so far from end node to start node, empty if no path has been found yet
+     */
+    @Override
+    public ArrayList<Node> getPath() {
+        int[] path = bestPath;
+        ArrayList<Node> list = new ArrayList<>();
+        if(path == null) return list;
+
+        for(int node : path) {
+            list.add(graph.getNode(node));
+        }
+        return list;
+    }
+
+    /**
+     * @return the best path so far from start node to end node, empty if no path has been found yet
+     */
+    @Override
+    public GridPath getGridPath() {
+        int[] path = bestPath;
+        if(path == null) {
+            return new GridPath(MAX_X_COORDINATE, new int[0], 0);
+        }
+        int[] cells = new int[path.length];
+        for(int i = 0; i < path.length; i++) {
+            cells[i] = path[path.length - 1 - i];
+        }
+        return new GridPath(MAX_X_COORDINATE, cells, cells.length);
+    }
+
+    /**
+     * Copies the best path so far. Unlike the other algorithms, ARA* allocates a new array for every improved path
+     * while it searches, since readers on other threads may still hold the previous one.
+     */
+    @Override
+    public int copyPath(int[] cells) {
+        int[] path = bestPath;
+        if(path == null) return 0;
+        for(int i = 0; i < path.length; i++) {
+            cells[i] = path[path.length - 1 - i];
+        }
+        return path.length;
+    }
+
+    @Override
+    public double getFoundPathDistance() {
+        return bestDistance;
+    }
+}
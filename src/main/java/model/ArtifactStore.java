@@ -0,0 +1,370 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Directory of preprocessing results, so that a process which starts on a known map loads them instead of computing
+ * them again. An artifact is stored in a file named after its kind and a 64-bit hash of the obstacles, which holds a
+ * header, a table of sections and the sections themselves: flat little-endian arrays, each aligned to 8 bytes and
+ * laid out exactly like the Java array it comes from.
+ *
+ * The header is 48 bytes: magic, format version, kind, version of the kind, width, height, hash of the obstacles,
+ * number of sections, 4 unused bytes and a checksum of the section sizes, types and contents. Each entry of the
+ * section table is 16 bytes: offset, number of elements and element type. The first section is always the obstacle
+ * grid itself, so a hash collision is detected too, and the number and types of the other sections are fixed by the
+ * kind.
+ *
+ * Loading memory-maps every section and copies it into its array in bulk, without decoding anything. When the file
+ * is missing, belongs to another version or map, is truncated, has other sections than its kind, fails the checksum,
+ * or can't be turned into an artifact, the artifact is built again and the file replaced. Files are written under a
+ * temporary name and then moved into place, so a reader never sees half a file.
+ */
+public class ArtifactStore {
+
+    public static final int MAGIC = 0x46545241; // "ARTF" in little-endian
+    public static final int VERSION = 2;
+    public static final int HEADER_BYTES = 48;
+    public static final int SECTION_BYTES = 16;
+
+    private static final int INTS = 0;
+    private static final int FLOATS = 1;
+    private static final int LONGS = 2;
+
+    /**
+     * The kinds of artifacts with the types of their sections after the obstacles. The version of a kind changes
+     * whenever the sections it writes change.
+     */
+    public enum Kind {
+        CONTRACTION_HIERARCHY(1, 1, INTS, INTS, INTS, INTS, INTS, FLOATS, INTS),
+        FIRST_MOVE_TABLE(2, 1, INTS, INTS, INTS, INTS, INTS, INTS);
+
+        private final int id;
+        private final int version;
+        private final int[] sectionTypes;
+
+        Kind(int id, int version, int... sectionTypes) {
+            this.id = id;
+            this.version = version;
+            this.sectionTypes = sectionTypes;
+        }
+    }
+
+    private final Path directory;
+    private int numLoaded;
+    private int numBuilt;
+
+    /**
+     * @param directory - directory of the artifact files, created when the first artifact is written
+     */
+    public ArtifactStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Loads the contraction hierarchy of a map, or builds and stores it.
+     * @param obstacles - grid where obstacles are set
+     * @return the hierarchy
+     * @throws IOException if a built hierarchy can't be written
+     */
+    public ContractionHierarchy loadHierarchy(BitGrid obstacles) throws IOException {
+        return load(Kind.CONTRACTION_HIERARCHY, obstacles, ContractionHierarchy::build,
+                ContractionHierarchy::toSections, ContractionHierarchy::fromSections);
+    }
+
+    /**
+     * Loads the first-move table of a map, or builds and stores it.
+     * @param obstacles - grid where obstacles are set
+     * @return the table
+     * @throws IOException if a built table can't be written
+     */
+    public FirstMoveTable loadFirstMoveTable(BitGrid obstacles) throws IOException {
+        return load(Kind.FIRST_MOVE_TABLE, obstacles, FirstMoveTable::build,
+                FirstMoveTable::toSections, FirstMoveTable::fromSections);
+    }
+
+    /**
+     * Loads an artifact, or builds and stores it when there is no valid file for it.
+     *
+     * @param kind - kind of the artifact
+     * @param obstacles - the map the artifact is computed for
+     * @param build - computes the artifact
+     * @param write - gives the sections of an artifact, without the obstacles
+     * @param read - recreates an artifact from its sections, without the obstacles
+     * @return the artifact
+     * @throws IOException if a built artifact can't be written
+     */
+    <T> T load(Kind kind, BitGrid obstacles, Function<BitGrid, T> build, Function<T, Sections> write,
+               Function<Sections, T> read) throws IOException {
+        long hash = hash(obstacles);
+        Path path = getPath(kind, hash);
+        Sections sections = read(path, kind, obstacles, hash);
+        if(sections != null) {
+            try {
+                T artifact = read.apply(sections);
+                numLoaded++;
+                return artifact;
+            } catch (RuntimeException e) {
+                // sections which passed every check but still don't fit together, the file is replaced below
+            }
+        }
+
+        T artifact = build.apply(obstacles);
+        numBuilt++;
+        write(path, kind, obstacles, hash, write.apply(artifact));
+        return artifact;
+    }
+
+    /**
+     * Reads the sections of an artifact file.
+     * @return the sections after the obstacles, or null if the file is missing, does not match or is damaged
+     */
+    private static Sections read(Path path, Kind kind, BitGrid obstacles, long hash) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        try(channel) {
+            long size = channel.size();
+            if(size < HEADER_BYTES) return null;
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if(header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != kind.id
+                    || header.getInt() != kind.version || header.getInt() != obstacles.getWidth()
+                    || header.getInt() != obstacles.getHeight() || header.getLong() != hash) {
+                return null;
+            }
+            int numSections = header.getInt();
+            header.getInt();
+            long checksum = header.getLong();
+            if(numSections != kind.sectionTypes.length + 1 || HEADER_BYTES + (long) numSections * SECTION_BYTES > size) {
+                return null;
+            }
+
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, (long) numSections * SECTION_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            Sections sections = new Sections();
+            for(int i = 0; i < numSections; i++) {
+                long offset = table.getLong();
+                int length = table.getInt();
+                int type = table.getInt();
+                if(type != (i == 0 ? LONGS : kind.sectionTypes[i - 1])) return null;
+                int elementBytes = type == LONGS ? 8 : 4;
+                if(length < 0 || offset < 0 || offset + (long) length * elementBytes > size) return null;
+
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) length * elementBytes);
+                mapped.order(ByteOrder.LITTLE_ENDIAN);
+                if(type == INTS) {
+                    int[] array = new int[length];
+                    mapped.asIntBuffer().get(array);
+                    sections.add(array);
+                } else if(type == FLOATS) {
+                    float[] array = new float[length];
+                    mapped.asFloatBuffer().get(array);
+                    sections.add(array);
+                } else {
+                    long[] array = new long[length];
+                    mapped.asLongBuffer().get(array);
+                    sections.add(array);
+                }
+            }
+            if(checksum(sections.arrays) != checksum || !Arrays.equals((long[]) sections.get(0), obstacles.getWords())) {
+                return null;
+            }
+            sections.arrays.remove(0);
+            return sections;
+        }
+    }
+
+    private void write(Path path, Kind kind, BitGrid obstacles, long hash, Sections sections) throws IOException {
+        List<Object> arrays = new ArrayList<>();
+        arrays.add(obstacles.getWords());
+        arrays.addAll(sections.arrays);
+
+        long[] offsets = new long[arrays.size()];
+        long size = align(HEADER_BYTES + (long) arrays.size() * SECTION_BYTES);
+        for(int i = 0; i < arrays.size(); i++) {
+            offsets[i] = size;
+            size = align(size + byteSize(arrays.get(i)));
+        }
+
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer head = ByteBuffer.allocate((int) offsets[0]).order(ByteOrder.LITTLE_ENDIAN);
+                head.putInt(MAGIC).putInt(VERSION).putInt(kind.id).putInt(kind.version)
+                        .putInt(obstacles.getWidth()).putInt(obstacles.getHeight()).putLong(hash).putInt(arrays.size())
+                        .putInt(0).putLong(checksum(arrays));
+                head.position(HEADER_BYTES);
+                for(int i = 0; i < arrays.size(); i++) {
+                    head.putLong(offsets[i]).putInt(length(arrays.get(i))).putInt(type(arrays.get(i)));
+                }
+                head.rewind();
+                while(head.hasRemaining()) {
+                    channel.write(head, head.position());
+                }
+
+                for(int i = 0; i < arrays.size(); i++) {
+                    Object array = arrays.get(i);
+                    long bytes = byteSize(array);
+                    if(bytes == 0) continue;
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, offsets[i], bytes);
+                    mapped.order(ByteOrder.LITTLE_ENDIAN);
+                    if(array instanceof int[]) {
+                        mapped.asIntBuffer().put((int[]) array);
+                    } else if(array instanceof float[]) {
+                        mapped.asFloatBuffer().put((float[]) array);
+                    } else {
+                        mapped.asLongBuffer().put((long[]) array);
+                    }
+                    mapped.force();
+                }
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Hashes the size and the obstacles of a map, with a 64-bit mix of every word.
+     * @param obstacles - grid where obstacles are set
+     * @return the hash
+     */
+    public static long hash(BitGrid obstacles) {
+        long hash = mix(obstacles.getWidth() * 0x9E3779B97F4A7C15L + obstacles.getHeight());
+        for(long word : obstacles.getWords()) {
+            hash = mix(hash ^ word) + 0x9E3779B97F4A7C15L;
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes the number, sizes, types and contents of the sections the same way as the obstacles, so that a damaged
+     * file is not loaded.
+     */
+    private static long checksum(List<Object> arrays) {
+        long checksum = mix(arrays.size());
+        for(Object array : arrays) {
+            checksum = mix(checksum ^ ((long) type(array) << 32 | length(array))) + 0x9E3779B97F4A7C15L;
+            if(array instanceof int[]) {
+                for(int value : (int[]) array) {
+                    checksum = mix(checksum ^ value) + 0x9E3779B97F4A7C15L;
+                }
+            } else if(array instanceof float[]) {
+                for(float value : (float[]) array) {
+                    checksum = mix(checksum ^ Float.floatToRawIntBits(value)) + 0x9E3779B97F4A7C15L;
+                }
+            } else {
+                for(long value : (long[]) array) {
+                    checksum = mix(checksum ^ value) + 0x9E3779B97F4A7C15L;
+                }
+            }
+        }
+        return checksum;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static int length(Object array) {
+        if(array instanceof int[]) return ((int[]) array).length;
+        if(array instanceof float[]) return ((float[]) array).length;
+        return ((long[]) array).length;
+    }
+
+    private static int type(Object array) {
+        if(array instanceof int[]) return INTS;
+        if(array instanceof float[]) return FLOATS;
+        return LONGS;
+    }
+
+    private static long byteSize(Object array) {
+        return (long) length(array) * (array instanceof long[] ? 8 : 4);
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    /**
+     * @return path of the file of an artifact
+     */
+    public Path getPath(Kind kind, long hash) {
+        return directory.resolve(kind.name().toLowerCase(Locale.ROOT) + "-" + String.format("%016x", hash) + ".bin");
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return number of artifacts this store has loaded from files
+     */
+    public int getNumLoaded() {
+        return numLoaded;
+    }
+
+    /**
+     * @return number of artifacts this store has built because there was no valid file
+     */
+    public int getNumBuilt() {
+        return numBuilt;
+    }
+
+    /**
+     * The arrays of an artifact in the order they are stored: int[], float[] or long[].
+     */
+    static final class Sections {
+
+        private final List<Object> arrays = new ArrayList<>();
+
+        Sections add(int[] array) {
+            arrays.add(array);
+            return this;
+        }
+
+        Sections add(float[] array) {
+            arrays.add(array);
+            return this;
+        }
+
+        Sections add(long[] array) {
+            arrays.add(array);
+            return this;
+        }
+
+        Object get(int i) {
+            return arrays.get(i);
+        }
+
+        int[] getInts(int i) {
+            return (int[]) arrays.get(i);
+        }
+
+        float[] getFloats(int i) {
+            return (float[]) arrays.get(i);
+        }
+    }
+}
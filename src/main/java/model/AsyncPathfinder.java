@@ -0,0 +1,257 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous facade for searches. A search is submitted to one of two lanes and its result arrives through a
+ * {@link CompletableFuture}, so callers such as event loops never block on a search.
+ *
+ * Each lane has a bounded queue. Workers always take interactive searches before batch searches, except that every
+ * few picks a waiting batch search gets its turn so that batch work can't starve. What happens when a lane is full
+ * is decided by the {@link OverflowPolicy}.
+ */
+public class AsyncPathfinder implements AutoCloseable {
+
+    /**
+     * Queue a search waits in. Interactive searches overtake batch searches.
+     */
+    public enum Lane {
+        INTERACTIVE, BATCH
+    }
+
+    /**
+     * What to do with a search submitted to a full lane.
+     */
+    public enum OverflowPolicy {
+        /** The returned future fails right away with a {@link RejectedExecutionException}, the caller never blocks. */
+        REJECT,
+        /** The submitting thread waits until there is room, which slows down producers to the speed of the workers. */
+        BLOCK,
+        /** An interactive search evicts the oldest waiting batch search, which then fails as rejected. A full batch
+         * lane rejects. */
+        SHED_BATCH
+    }
+
+    // every this many picks, a waiting batch search runs even if interactive searches are waiting
+    private static final int BATCH_TURN = 8;
+
+    private static final AtomicInteger pathfinderCount = new AtomicInteger();
+
+    private final ArrayDeque<Task>[] lanes;
+    private final int[] capacities;
+    private final OverflowPolicy policy;
+    private final int checkInterval;
+    private final Set<Task> running = ConcurrentHashMap.newKeySet();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int picks; // guarded by lock
+    private boolean closed; // guarded by lock
+
+    /**
+     * @param workers - number of worker threads
+     * @param interactiveCapacity - number of interactive searches which may wait
+     * @param batchCapacity - number of batch searches which may wait
+     * @param policy - what to do when a lane is full
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public AsyncPathfinder(int workers, int interactiveCapacity, int batchCapacity, OverflowPolicy policy) {
+        if(workers <= 0 || interactiveCapacity <= 0 || batchCapacity <= 0) {
+            throw new IllegalArgumentException("Workers and lane capacities must be positive");
+        }
+        this.policy = policy;
+        checkInterval = SearchScheduler.DEFAULT_CHECK_INTERVAL;
+        capacities = new int[] {interactiveCapacity, batchCapacity};
+        lanes = new ArrayDeque[] {new ArrayDeque<Task>(interactiveCapacity), new ArrayDeque<Task>(batchCapacity)};
+
+        String prefix = "async-search-" + pathfinderCount.incrementAndGet() + "-";
+        for(int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::work, prefix + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Submits a search without a deadline or listener.
+     * @see #submit(PathAlgorithm, Lane, long, SearchListener)
+     */
+    public CompletableFuture<PathResult> submit(PathAlgorithm alg, Lane lane) {
+        return submit(alg, lane, Long.MAX_VALUE, new SearchListener() {});
+    }
+
+    /**
+     * Submits a search. Cancelling the returned future cancels the search, whether it is still waiting or running.
+     *
+     * @param alg - the algorithm to run, it must not be used by anyone else until the future has completed
+     * @param lane - the lane to wait in
+     * @param timeoutNanos - how long the search may take, counted from now, including the time it waits
+     * @param listener - receives progress of the search on the worker thread
+     * @return future completed with the result, or failed with a {@link RejectedExecutionException} if the search was
+     * not accepted or was shed
+     */
+    public CompletableFuture<PathResult> submit(PathAlgorithm alg, Lane lane, long timeoutNanos, SearchListener listener) {
+        long now = System.nanoTime();
+        long deadline = timeoutNanos >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeoutNanos;
+        Task task = new Task(new SearchHandle(alg, deadline, checkInterval, listener));
+        task.result.whenComplete((result, e) -> {
+            if(task.result.isCancelled()) task.handle.cancel();
+        });
+
+        Task shed = null;
+        lock.lock();
+        try {
+            ArrayDeque<Task> queue = lanes[lane.ordinal()];
+            while(!closed && queue.size() >= capacities[lane.ordinal()]) {
+                if(policy == OverflowPolicy.BLOCK) {
+                    notFull.awaitUninterruptibly();
+                } else if(policy == OverflowPolicy.SHED_BATCH && lane == Lane.INTERACTIVE
+                        && !lanes[Lane.BATCH.ordinal()].isEmpty()) {
+                    // make room by moving the capacity of the shed batch search over to this lane
+                    shed = lanes[Lane.BATCH.ordinal()].pollFirst();
+                    break;
+                } else {
+                    task.result.completeExceptionally(new RejectedExecutionException(lane + " lane is full"));
+                    return task.result;
+                }
+            }
+            if(closed) {
+                task.result.completeExceptionally(new RejectedExecutionException("Pathfinder has been closed"));
+                return task.result;
+            }
+            queue.addLast(task);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if(shed != null) {
+            shed.result.completeExceptionally(new RejectedExecutionException("Shed for an interactive search"));
+        }
+        return task.result;
+    }
+
+    private void work() {
+        while(true) {
+            Task task;
+            lock.lock();
+            try {
+                while(!closed && lanes[0].isEmpty() && lanes[1].isEmpty()) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if(closed) return;
+                task = pick();
+                // added while the lock is held, so a task is always either in a lane or running when close() looks
+                running.add(task);
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                if(!task.result.isDone()) {
+                    run(task);
+                }
+            } finally {
+                running.remove(task);
+            }
+        }
+    }
+
+    /**
+     * Takes the next task, interactive first unless it is the turn of a waiting batch search.
+     */
+    private Task pick() {
+        ArrayDeque<Task> interactive = lanes[Lane.INTERACTIVE.ordinal()];
+        ArrayDeque<Task> batch = lanes[Lane.BATCH.ordinal()];
+        picks++;
+        if(batch.isEmpty() || (!interactive.isEmpty() && picks % BATCH_TURN != 0)) {
+            return interactive.pollFirst();
+        }
+        return batch.pollFirst();
+    }
+
+    private static void run(Task task) {
+        try {
+            SearchStatus status = task.handle.run();
+            PathAlgorithm alg = task.handle.getAlgorithm();
+            int steps = (int) Math.min(Integer.MAX_VALUE, task.handle.getSteps());
+            task.result.complete(status == SearchStatus.FOUND
+                    ? new PathResult(status, alg.getGridPath(), alg.getFoundPathDistance(), steps)
+                    : PathResult.of(status, steps));
+        } catch (RuntimeException | Error e) {
+            task.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * @return number of searches which may still be submitted to the lane before it is full
+     */
+    public int getRemainingCapacity(Lane lane) {
+        lock.lock();
+        try {
+            return capacities[lane.ordinal()] - lanes[lane.ordinal()].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of searches waiting in the lane
+     */
+    public int getQueuedCount(Lane lane) {
+        lock.lock();
+        try {
+            return lanes[lane.ordinal()].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting searches, fails the waiting ones and cancels the running ones.
+     */
+    @Override
+    public void close() {
+        ArrayDeque<Task> dropped = new ArrayDeque<>();
+        lock.lock();
+        try {
+            closed = true;
+            for(ArrayDeque<Task> lane : lanes) {
+                dropped.addAll(lane);
+                lane.clear();
+            }
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for(Task task : dropped) {
+            task.result.completeExceptionally(new RejectedExecutionException("Pathfinder has been closed"));
+        }
+        for(Task task : running) {
+            task.handle.cancel();
+        }
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    private static class Task {
+
+        final SearchHandle handle;
+        final CompletableFuture<PathResult> result = new CompletableFuture<>();
+
+        Task(SearchHandle handle) {
+            this.handle = handle;
+        }
+    }
+}
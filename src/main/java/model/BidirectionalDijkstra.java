@@ -1,6 +1,7 @@
 package model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.PriorityQueue;
 
@@ -8,8 +9,11 @@ public class BidirectionalDijkstra extends PathAlgorithm {
 
     private final PriorityQueue<Node> pqForward;
     private final PriorityQueue<Node> pqBackward;
-    private final ArrayList<Node> closedForward;
-    private final ArrayList<Node> closedBackward;
+    // which side has closed each cell or has it in its queue, so that meeting the other side takes constant time
+    private final boolean[] closedForward;
+    private final boolean[] closedBackward;
+    private final boolean[] queuedForward;
+    private final boolean[] queuedBackward;
     private double shortestDist;
 
     private AlternationMode mode;
@@ -30,16 +34,29 @@ public class BidirectionalDijkstra extends PathAlgorithm {
 
         pathIsFound = false;
 
-        this.pqForward = new PriorityQueue<>(Comparator.comparingDouble(Node::getDist));
+        // the queues never hold a node twice, so with room for every node they never grow during the search
+        int numCells = MAX_X_COORDINATE * MAX_Y_COORDINATE;
+        this.pqForward = new PriorityQueue<>(numCells, Comparator.comparingDouble(Node::getDist));
+        this.pqBackward = new PriorityQueue<>(numCells, Comparator.comparingDouble(Node::getDist));
+        closedForward = new boolean[numCells];
+        closedBackward = new boolean[numCells];
+        queuedForward = new boolean[numCells];
+        queuedBackward = new boolean[numCells];
+
         pqForward.add(startNode);
-        this.pqBackward = new PriorityQueue<>(Comparator.comparingDouble(Node::getDist));
+        queuedForward[graph.indexOf(startNode)] = true;
         pqBackward.add(endNode);
-
-        closedForward = new ArrayList<>();
-        closedBackward = new ArrayList<>();
+        queuedBackward[graph.indexOf(endNode)] = true;
 
         shortestDist = Double.MAX_VALUE;
         mode = AlternationMode.FORWARD;
+
+        // the searches would only meet after stepping away from the node and back, so the trivial path is set here
+        if(startNode == endNode) {
+            meetingFNode = startNode;
+            shortestDist = 0;
+            pathIsFound = true;
+        }
     }
 
     @Override
@@ -76,22 +93,24 @@ public class BidirectionalDijkstra extends PathAlgorithm {
         Node bwdPeek = pqBackward.peek();
         Node current;
 
-        // interrupt if there is no possible path from the forward and backward search
+        // there is no possible path when the forward or backward search runs out of nodes
         if(fwdPeek == null || bwdPeek == null) {
             if(meetingBNode != null && meetingFNode != null) {
                 pathIsFound = true;
                 return;
             }
-            Thread.currentThread().interrupt();
+            exhausted = true;
         }
         // alternate forward/backward search
         else if(fwdPeek.getDist() + bwdPeek.getDist() < shortestDist) {
 
             if (mode == AlternationMode.FORWARD) {
                 current = pqForward.poll();
+                queuedForward[graph.indexOf(current)] = false;
                 expandForward(current);
             } else {
                 current = pqBackward.poll();
+                queuedBackward[graph.indexOf(current)] = false;
                 expandBackward(current);
             }
             mode = (mode == AlternationMode.FORWARD) ? AlternationMode.BACKWARD : AlternationMode.FORWARD;
@@ -102,20 +121,24 @@ public class BidirectionalDijkstra extends PathAlgorithm {
     }
 
     private void expandBackward(Node node) {
-        ArrayList<Node> neighbors = graph.getNeighborsFromNode(node);
+        int index = graph.indexOf(node);
+        traceExpanded(index);
 
-        for(Node neighbor : neighbors) {
+        for(int mask = graph.getNeighborMask(index); mask != 0; mask &= mask - 1) {
+            int direction = Integer.numberOfTrailingZeros(mask);
+            int neighborIndex = graph.getNeighborIndex(index, direction);
+            Node neighbor = graph.getNode(neighborIndex);
             // backward search clashes with forward search, assess if found distance is the current shortest
-            if(closedForward.contains(neighbor) || pqForward.contains(neighbor)) {
+            if(closedForward[neighborIndex] || queuedForward[neighborIndex]) {
                 double tempDist = getFoundDist(node, neighbor);
                 if(shortestDist > tempDist) {
                     connectSearches(neighbor, node);
                     shortestDist = tempDist;
                 }
                 continue;
-            } else if(neighbor.getState() == NodeState.VISITED || neighbor.getState() == NodeState.OBSTACLE) continue;
+            } else if(neighbor.getState() == NodeState.VISITED) continue;
 
-            double distToNeighbor = getDistToNeighbor(node, neighbor);
+            double distToNeighbor = Direction.cost(direction);
 
             // when a better distance has been found for neighbor update its variables accordingly
             double computedDist = distToNeighbor + node.getDist();
@@ -124,42 +147,48 @@ public class BidirectionalDijkstra extends PathAlgorithm {
                 neighbor.setPrev(node);
                 pqBackward.remove(neighbor);
                 pqBackward.add(neighbor);
+                queuedBackward[neighborIndex] = true;
+                traceReached(neighborIndex);
             }
         }
 
         node.setState(NodeState.VISITED);
-        pqBackward.remove(node);
-        closedBackward.add(node);
+        closedBackward[index] = true;
     }
 
     private void expandForward(Node node) {
-        ArrayList<Node> neighbors = graph.getNeighborsFromNode(node);
+        int index = graph.indexOf(node);
+        traceExpanded(index);
 
-        for(Node neighbor : neighbors) {
+        for(int mask = graph.getNeighborMask(index); mask != 0; mask &= mask - 1) {
+            int direction = Integer.numberOfTrailingZeros(mask);
+            int neighborIndex = graph.getNeighborIndex(index, direction);
+            Node neighbor = graph.getNode(neighborIndex);
             // forward search clashes with backward search, assess if found distance is current shortest
-            if (closedBackward.contains(neighbor) || pqBackward.contains(neighbor)) {
+            if (closedBackward[neighborIndex] || queuedBackward[neighborIndex]) {
                 double tempDist = getFoundDist(node, neighbor);
                 if (shortestDist > tempDist) {
                     connectSearches(node, neighbor);
                     shortestDist = tempDist;
                 }
                 continue;
-            } else if (neighbor.getState() == NodeState.VISITED || neighbor.getState() == NodeState.OBSTACLE) continue;
+            } else if (neighbor.getState() == NodeState.VISITED) continue;
 
             // when a better distance has been found for neighbor update its variables accordingly
-            double distToNeighbor = getDistToNeighbor(node, neighbor);
+            double distToNeighbor = Direction.cost(direction);
             double computedDist = distToNeighbor + node.getDist();
             if (neighbor.getDist() > computedDist) {
                 neighbor.setDist(computedDist);
                 neighbor.setPrev(node);
                 pqForward.remove(neighbor);
                 pqForward.add(neighbor);
+                queuedForward[neighborIndex] = true;
+                traceReached(neighborIndex);
             }
         }
 
         node.setState(NodeState.VISITED);
-        pqForward.remove(node);
-        closedForward.add(node);
+        closedForward[index] = true;
     }
 
 
@@ -188,10 +217,12 @@ public class BidirectionalDijkstra extends PathAlgorithm {
     private ArrayList<Node> getPath(Node forward, Node backward) {
         ArrayList<Node> list = new ArrayList<>();
 
+        // the forward half is collected from the meeting point and then reversed, in linear time
         while(forward != null) {
-            list.add(0, forward);
+            list.add(forward);
             forward = forward.getPrev();
         }
+        Collections.reverse(list);
         while(backward != null) {
             list.add(backward);
             backward = backward.getPrev();
@@ -199,6 +230,44 @@ public class BidirectionalDijkstra extends PathAlgorithm {
 
         return list;
     }
+    @Override
+    public GridPath getGridPath() {
+        if(!pathIsFound) {
+            return new GridPath(MAX_X_COORDINATE, new int[0], 0);
+        }
+        int size = 0;
+        for(Node temp = meetingFNode; temp != null; temp = temp.getPrev()) {
+            size++;
+        }
+        for(Node temp = meetingBNode; temp != null; temp = temp.getPrev()) {
+            size++;
+        }
+        int[] cells = new int[size];
+        copyPath(cells);
+        return new GridPath(MAX_X_COORDINATE, cells, size);
+    }
+
+    /**
+     * The path is collected from the meeting point towards both ends directly into the array.
+     */
+    @Override
+    public int copyPath(int[] cells) {
+        if(!pathIsFound) return 0;
+        int forwardSize = 0;
+        for(Node temp = meetingFNode; temp != null; temp = temp.getPrev()) {
+            forwardSize++;
+        }
+        int i = forwardSize;
+        for(Node temp = meetingFNode; temp != null; temp = temp.getPrev()) {
+            cells[--i] = graph.indexOf(temp);
+        }
+        i = forwardSize;
+        for(Node temp = meetingBNode; temp != null; temp = temp.getPrev()) {
+            cells[i++] = graph.indexOf(temp);
+        }
+        return i;
+    }
+
     @Override
     public double getFoundPathDistance() {
         return getFoundDist(meetingFNode, meetingBNode);
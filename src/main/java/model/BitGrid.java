@@ -0,0 +1,139 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Bit-packed two-dimensional grid where every cell is represented by a single bit.
+ * Each row starts on a new 64-bit word, so that whole rows can be read, written and compared word by word.
+ */
+public class BitGrid {
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    /**
+     * Creates a grid where all bits are cleared.
+     *
+     * @param width - number of columns
+     * @param height - number of rows
+     */
+    public BitGrid(int width, int height) {
+        if(width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        wordsPerRow = (width + 63) >>> 6;
+        words = new long[Math.multiplyExact(wordsPerRow, height)];
+    }
+
+    /**
+     * Creates a bit grid where the obstacles of the graph are set.
+     * @param graph - graph to read obstacles from
+     * @return grid with a set bit for each obstacle
+     */
+    public static BitGrid fromObstacles(Graph graph) {
+        BitGrid grid = new BitGrid(graph.getWIDTH(), graph.getHEIGHT());
+        for(Node node : graph.getNodes()) {
+            if(node.getState() == NodeState.OBSTACLE) {
+                grid.set(node.getXCoordinate(), node.getYCoordinate(), true);
+            }
+        }
+        return grid;
+    }
+
+    public boolean get(int x, int y) {
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public void set(int x, int y, boolean value) {
+        int word = y * wordsPerRow + (x >>> 6);
+        if(value) {
+            words[word] |= 1L << x;
+        } else {
+            words[word] &= ~(1L << x);
+        }
+    }
+
+    /**
+     * Sets or clears every bit of the grid. Padding bits at the end of each row are always kept cleared.
+     * @param value - the value to fill with
+     */
+    public void fill(boolean value) {
+        if(!value) {
+            Arrays.fill(words, 0L);
+            return;
+        }
+        long lastWord = (width & 63) == 0 ? -1L : (1L << (width & 63)) - 1;
+        for(int y = 0; y < height; y++) {
+            int rowStart = y * wordsPerRow;
+            Arrays.fill(words, rowStart, rowStart + wordsPerRow - 1, -1L);
+            words[rowStart + wordsPerRow - 1] = lastWord;
+        }
+    }
+
+    /**
+     * Determines if a position is inside the grid.
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @return whether the coordinate is inside the grid
+     */
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /**
+     * Counts the number of set bits in the grid.
+     * @return number of set cells
+     */
+    public long cardinality() {
+        long count = 0;
+        for(long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public BitGrid copy() {
+        BitGrid copy = new BitGrid(width, height);
+        System.arraycopy(words, 0, copy.words, 0, words.length);
+        return copy;
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * Direct access to the backing words, row by row. Bit x of a row lives in word x / 64 at position x % 64.
+     * @return the backing array, not a copy
+     */
+    public long[] getWords() {
+        return words;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BitGrid)) return false;
+        BitGrid other = (BitGrid) o;
+        return width == other.width && height == other.height && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * width + height) + Arrays.hashCode(words);
+    }
+}
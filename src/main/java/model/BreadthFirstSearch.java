@@ -1,13 +1,14 @@
 package model;
 
-import java.util.ArrayList;
-
 /**
  * Class representation of BFS path algorithm in a grid system
  */
 public class BreadthFirstSearch extends PathAlgorithm {
 
-    private final ArrayList<Node> queue;
+    // every node enters the queue at most once, so it is an array of all nodes with a moving head
+    private final Node[] queue;
+    private int head;
+    private int tail;
 
     /**
      *
@@ -21,9 +22,8 @@ public class BreadthFirstSearch extends PathAlgorithm {
         super(graph);
         preProcessNodes(startPoint, endPoint);
 
-        queue = new ArrayList<>();
-
-        queue.add(startNode);
+        queue = new Node[MAX_X_COORDINATE * MAX_Y_COORDINATE];
+        queue[tail++] = startNode;
     }
 
     /**
@@ -31,13 +31,12 @@ public class BreadthFirstSearch extends PathAlgorithm {
      */
     @Override
     public void visitNext() {
-        // an empty queue means there's guaranteed to be no possible path, and in that case we will interrupt the thread
-        if(queue.isEmpty()) {
-            Thread.currentThread().interrupt();
+        // an empty queue means there's guaranteed to be no possible path
+        if(head == tail) {
+            exhausted = true;
             return;
         }
-        Node currentNode = queue.get(0);
-        queue.remove(0);
+        Node currentNode = queue[head++];
 
         visit(currentNode);
     }
@@ -48,18 +47,25 @@ public class BreadthFirstSearch extends PathAlgorithm {
      */
     private void visit(Node node) {
 
+        int index = graph.indexOf(node);
+        traceExpanded(index);
+
         // explore the distances from current node to all unvisited neighbors
-        for(Node neighbor : graph.getNeighborsFromNode(node)) {
-            if(neighbor.getState() == NodeState.VISITED || neighbor.getState() == NodeState.OBSTACLE) {
+        for(int mask = graph.getNeighborMask(index); mask != 0; mask &= mask - 1) {
+            int direction = Integer.numberOfTrailingZeros(mask);
+            int neighborIndex = graph.getNeighborIndex(index, direction);
+            Node neighbor = graph.getNode(neighborIndex);
+            if(neighbor.getState() == NodeState.VISITED) {
                 continue;
             }
 
-            double distToNeighbor = getDistToNeighbor(node, neighbor);
+            double distToNeighbor = Direction.cost(direction);
 
             neighbor.setDist(distToNeighbor + node.getDist());
             neighbor.setPrev(node);
             neighbor.setState(NodeState.VISITED);
-            queue.add(neighbor);
+            queue[tail++] = neighbor;
+            traceReached(neighborIndex);
         }
         node.setState(NodeState.VISITED);
     }
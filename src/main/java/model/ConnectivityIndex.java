@@ -0,0 +1,295 @@
+package model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Labels the connected components of the free cells in a grid, using the same 8-connectivity as the search
+ * algorithms, so that a query between two cells in different components can be answered without searching.
+ *
+ * The initial labeling is a union-find pass which runs on horizontal stripes of the grid in parallel, after which the
+ * stripes are stitched together. After that the index is maintained as obstacles are edited: removing an obstacle
+ * merges the components around it through a union-find over the labels, and adding an obstacle relabels the
+ * component around it only when the obstacle may have split it.
+ */
+public class ConnectivityIndex {
+
+    private static final int MIN_STRIPE_ROWS = 64;
+
+    private final int width;
+    private final int height;
+    private final BitGrid obstacles;
+    private final int[] labels;
+    private final int[] queue;
+
+    // union-find over the labels, roots point to themselves
+    private int[] parent;
+    private int numLabels;
+
+    /**
+     * Builds the index for a grid of obstacles. The grid is copied, later edits go through {@link #setObstacle}.
+     * @param obstacles - grid where obstacles are set
+     */
+    public ConnectivityIndex(BitGrid obstacles) {
+        this.obstacles = obstacles.copy();
+        width = obstacles.getWidth();
+        height = obstacles.getHeight();
+        labels = new int[width * height];
+        queue = new int[width * height];
+        rebuild();
+    }
+
+    /**
+     * Builds the index for the obstacles of a graph.
+     * @param graph - the graph
+     * @return index of the components of the graph
+     */
+    public static ConnectivityIndex of(Graph graph) {
+        return new ConnectivityIndex(BitGrid.fromObstacles(graph));
+    }
+
+    /**
+     * Determines if there is a path between two cells.
+     * @return false if the cells are in different components, or if any of them is an obstacle or out of bounds
+     */
+    public boolean isConnected(int startX, int startY, int endX, int endY) {
+        int a = getComponent(startX, startY);
+        return a >= 0 && a == getComponent(endX, endY);
+    }
+
+    /**
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @return the label of the component of the cell, or -1 if the cell is an obstacle or out of bounds
+     */
+    public int getComponent(int x, int y) {
+        if(!obstacles.contains(x, y)) return -1;
+        int label = labels[y * width + x];
+        return label < 0 ? -1 : find(label);
+    }
+
+    /**
+     * @param grid - grid where obstacles are set
+     * @return whether the index was built for, or has been edited to, exactly the obstacles of the grid
+     */
+    public boolean hasObstacles(BitGrid grid) {
+        return obstacles.equals(grid);
+    }
+
+    /**
+     * Adds or removes an obstacle and updates the components.
+     *
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @param obstacle - whether the cell should become an obstacle or a free cell
+     * @return number of cells relabeled by flood fills, 0 when the components could be updated around the cell
+     */
+    public int setObstacle(int x, int y, boolean obstacle) {
+        if(!obstacles.contains(x, y) || obstacles.get(x, y) == obstacle) return 0;
+
+        // labels are never reused, so once there are many more labels than cells the grid is labeled again
+        if(numLabels > 2 * labels.length) {
+            rebuild();
+        }
+        obstacles.set(x, y, obstacle);
+        int index = y * width + x;
+
+        if(!obstacle) {
+            // the freed cell joins all the components around it
+            int label = -1;
+            for(int d = 0; d < Direction.COUNT; d++) {
+                int i = x + Direction.dx(d), j = y + Direction.dy(d);
+                if(!obstacles.contains(i, j) || obstacles.get(i, j)) continue;
+                int neighborLabel = find(labels[j * width + i]);
+                if(label < 0) {
+                    label = neighborLabel;
+                } else if(label != neighborLabel) {
+                    parent[neighborLabel] = label;
+                }
+            }
+            labels[index] = label >= 0 ? label : newLabel();
+            return 0;
+        }
+
+        labels[index] = -1;
+        if(!mayDisconnect(x, y)) return 0;
+
+        // flood each part of the old component from the free cells around the new obstacle, with a new label each
+        int oldLabel = -2;
+        int relabeled = 0;
+        for(int d = 0; d < Direction.COUNT; d++) {
+            int i = x + Direction.dx(d), j = y + Direction.dy(d);
+            if(!obstacles.contains(i, j) || obstacles.get(i, j)) continue;
+            int label = find(labels[j * width + i]);
+            if(oldLabel == -2) {
+                oldLabel = label;
+            }
+            if(label == oldLabel) {
+                relabeled += flood(j * width + i, oldLabel, newLabel());
+            }
+        }
+        return relabeled;
+    }
+
+    /**
+     * Looks at the ring of eight cells around a new obstacle. If the free cells of the ring are connected to each
+     * other within the ring, the obstacle can't have split the component.
+     */
+    private boolean mayDisconnect(int x, int y) {
+        int freeMask = 0;
+        for(int d = 0; d < Direction.COUNT; d++) {
+            int i = x + Direction.dx(d), j = y + Direction.dy(d);
+            if(obstacles.contains(i, j) && !obstacles.get(i, j)) freeMask |= 1 << d;
+        }
+        if(Integer.bitCount(freeMask) <= 1) return false;
+
+        // grow a group from the first free ring cell, ring cells are adjacent when they are next to each other in
+        // the ring, and orthogonal ring cells are also adjacent to the orthogonal cells next to them
+        int group = Integer.lowestOneBit(freeMask);
+        int previous = 0;
+        while(group != previous) {
+            previous = group;
+            int grown = group | rotate(group, 1) | rotate(group, -1);
+            grown |= rotate(group & 0b01010101, 2) | rotate(group & 0b01010101, -2);
+            group = grown & freeMask;
+        }
+        return group != freeMask;
+    }
+
+    private static int rotate(int mask, int steps) {
+        return steps > 0
+                ? ((mask << steps) | (mask >>> (Direction.COUNT - steps))) & 0xFF
+                : ((mask >>> -steps) | (mask << (Direction.COUNT + steps))) & 0xFF;
+    }
+
+    /**
+     * Breadth first flood fill which moves all cells reachable from the seed from one label to a new one.
+     * @return number of cells moved
+     */
+    private int flood(int seed, int oldLabel, int newLabel) {
+        int head = 0, tail = 0;
+        labels[seed] = newLabel;
+        queue[tail++] = seed;
+
+        while(head < tail) {
+            int index = queue[head++];
+            int x = index % width, y = index / width;
+            for(int d = 0; d < Direction.COUNT; d++) {
+                int i = x + Direction.dx(d), j = y + Direction.dy(d);
+                if(!obstacles.contains(i, j)) continue;
+                int neighbor = j * width + i;
+                int label = labels[neighbor];
+                if(label >= 0 && label != newLabel && find(label) == oldLabel) {
+                    labels[neighbor] = newLabel;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Labels the whole grid from scratch. Stripes of rows are labeled in parallel with a union-find over the cell
+     * indices, the stripes are then joined along their borders, and finally the roots are renumbered densely.
+     */
+    private void rebuild() {
+        int[] cellParent = queue;
+        int stripeRows = Math.max(MIN_STRIPE_ROWS, height / (Runtime.getRuntime().availableProcessors() * 4) + 1);
+        int numStripes = (height + stripeRows - 1) / stripeRows;
+
+        IntStream.range(0, numStripes).parallel().forEach(s ->
+                labelRows(cellParent, s * stripeRows, Math.min(height, (s + 1) * stripeRows)));
+        for(int s = 1; s < numStripes; s++) {
+            joinWithRowAbove(cellParent, s * stripeRows);
+        }
+
+        // renumber roots as 0, 1, 2, ...
+        numLabels = 0;
+        Arrays.fill(labels, -1);
+        for(int i = 0; i < labels.length; i++) {
+            if(cellParent[i] < 0) continue;
+            int root = findCell(cellParent, i);
+            if(labels[root] < 0) {
+                labels[root] = numLabels++;
+            }
+            labels[i] = labels[root];
+        }
+        parent = new int[Math.max(16, numLabels * 2)];
+        for(int i = 0; i < numLabels; i++) {
+            parent[i] = i;
+        }
+    }
+
+    private void labelRows(int[] cellParent, int fromRow, int toRow) {
+        for(int y = fromRow; y < toRow; y++) {
+            for(int x = 0; x < width; x++) {
+                int index = y * width + x;
+                if(obstacles.get(x, y)) {
+                    cellParent[index] = -1;
+                    continue;
+                }
+                cellParent[index] = index;
+                if(x > 0 && !obstacles.get(x - 1, y)) unionCells(cellParent, index, index - 1);
+                if(y > fromRow) {
+                    unionWithRowAbove(cellParent, x, y);
+                }
+            }
+        }
+    }
+
+    private void joinWithRowAbove(int[] cellParent, int y) {
+        for(int x = 0; x < width; x++) {
+            if(!obstacles.get(x, y)) unionWithRowAbove(cellParent, x, y);
+        }
+    }
+
+    private void unionWithRowAbove(int[] cellParent, int x, int y) {
+        int index = y * width + x;
+        for(int i = Math.max(0, x - 1); i <= Math.min(width - 1, x + 1); i++) {
+            if(!obstacles.get(i, y - 1)) unionCells(cellParent, index, index - width - x + i);
+        }
+    }
+
+    private static void unionCells(int[] cellParent, int a, int b) {
+        a = findCell(cellParent, a);
+        b = findCell(cellParent, b);
+        // the smaller index becomes the root, so that roots stay inside the stripe they were created in
+        if(a < b) {
+            cellParent[b] = a;
+        } else if(b < a) {
+            cellParent[a] = b;
+        }
+    }
+
+    private static int findCell(int[] cellParent, int i) {
+        while(cellParent[i] != i) {
+            cellParent[i] = cellParent[cellParent[i]];
+            i = cellParent[i];
+        }
+        return i;
+    }
+
+    private int find(int label) {
+        while(parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+
+    private int newLabel() {
+        if(numLabels == parent.length) {
+            parent = Arrays.copyOf(parent, parent.length * 2);
+        }
+        parent[numLabels] = numLabels;
+        return numLabels++;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,762 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Contraction Hierarchies over the 8-connected grid graph of a static obstacle map, for answering many queries on one
+ * map. Preprocessing removes the free cells one by one, in an order of importance, and whenever a removed cell lay on
+ * the only shortest path between two of its neighbors, a shortcut edge with the length of that path is added between
+ * them. A query then only follows edges towards more important cells, from both ends, and the two searches meet at
+ * the most important cell of the shortest path. Such upward searches settle a few hundred cells on maps where A*
+ * settles tens of thousands.
+ *
+ * Cells are ordered by edge difference: shortcuts a removal would add minus the edges it removes, counted twice, plus
+ * the number of neighbors already removed, which spreads the removals evenly over the map. The shortcuts of the
+ * priority are estimated with short witness searches. Every round removes a set of cells which
+ * are not neighbors of each other and have a smaller priority than all their neighbors. The witness searches of a
+ * round, which find out whether a shortcut is needed, run in parallel, since they only read the graph. They avoid
+ * every cell of the round, so that each decision stays valid when all of them are removed together.
+ *
+ * The finished hierarchy is stored in compressed sparse row form with cells numbered by importance: the upward edges
+ * of cell r are the entries [firstEdge[r], firstEdge[r + 1]) of the edge arrays. A shortcut remembers the cell it
+ * skips, so that paths are unpacked into grid moves again. The hierarchy never changes after construction, and
+ * queries keep their state in a {@link Workspace}, one per thread.
+ */
+public class ContractionHierarchy {
+
+    // witness searches stop after this many settled cells and add the shortcut to be safe
+    private static final int CONTRACTION_SETTLE_LIMIT = 500;
+    private static final int PRIORITY_SETTLE_LIMIT = 20;
+    private static final double EPSILON = 1e-9;
+
+    private final int width;
+    private final int height;
+    private final int[] rankOfCell; // -1 for obstacles
+    private final int[] cellOfRank;
+    private final int[] firstEdge;
+    private final int[] edgeTarget;
+    private final float[] edgeWeight;
+    private final int[] edgeVia; // rank of the skipped cell of a shortcut, -1 for a move between neighbors
+    private final int numShortcuts;
+
+    private ContractionHierarchy(int width, int height, int[] rankOfCell, int[] cellOfRank, int[] firstEdge,
+                                 int[] edgeTarget, float[] edgeWeight, int[] edgeVia, int numShortcuts) {
+        this.width = width;
+        this.height = height;
+        this.rankOfCell = rankOfCell;
+        this.cellOfRank = cellOfRank;
+        this.firstEdge = firstEdge;
+        this.edgeTarget = edgeTarget;
+        this.edgeWeight = edgeWeight;
+        this.edgeVia = edgeVia;
+        this.numShortcuts = numShortcuts;
+    }
+
+    /**
+     * Builds the hierarchy of a map, running the witness searches on the common fork-join pool.
+     * @param obstacles - grid where obstacles are set
+     * @return the hierarchy
+     */
+    public static ContractionHierarchy build(BitGrid obstacles) {
+        return new Builder(obstacles).build();
+    }
+
+    /**
+     * @return the arrays of the hierarchy, for {@link ArtifactStore}
+     */
+    ArtifactStore.Sections toSections() {
+        return new ArtifactStore.Sections().add(new int[]{width, height, numShortcuts}).add(rankOfCell)
+                .add(cellOfRank).add(firstEdge).add(edgeTarget).add(edgeWeight).add(edgeVia);
+    }
+
+    /**
+     * Recreates a hierarchy from the arrays written by {@link #toSections()}.
+     */
+    static ContractionHierarchy fromSections(ArtifactStore.Sections sections) {
+        int[] sizes = sections.getInts(0);
+        return new ContractionHierarchy(sizes[0], sizes[1], sections.getInts(1), sections.getInts(2),
+                sections.getInts(3), sections.getInts(4), sections.getFloats(5), sections.getInts(6), sizes[2]);
+    }
+
+    /**
+     * Finds the shortest path between two cells.
+     *
+     * @param startX - start x coordinate
+     * @param startY - start y coordinate
+     * @param endX - end x coordinate
+     * @param endY - end y coordinate
+     * @param workspace - query state of the calling thread
+     * @return the path with every grid move unpacked, or {@link SearchStatus#UNREACHABLE}
+     */
+    public PathResult findPath(int startX, int startY, int endX, int endY, Workspace workspace) {
+        int meeting = search(startX, startY, endX, endY, workspace);
+        if(meeting < 0) {
+            return PathResult.of(SearchStatus.UNREACHABLE, workspace.settled);
+        }
+
+        // the forward half is unpacked from the start up to the meeting cell, the backward half from there down
+        workspace.pathSize = 0;
+        workspace.chainSize = 0;
+        for(int r = meeting; workspace.forward.parent[r] >= 0; r = workspace.forward.parent[r]) {
+            workspace.pushChain(workspace.forward.parentEdge[r]);
+        }
+        int current = rankOfCell[startY * width + startX];
+        workspace.appendCell(cellOfRank[current]);
+        for(int i = workspace.chainSize - 1; i >= 0; i--) {
+            int edge = workspace.chain[i];
+            int next = edgeTarget[edge];
+            unpack(current, next, edge, workspace);
+            current = next;
+        }
+        for(int r = meeting; workspace.backward.parent[r] >= 0; r = workspace.backward.parent[r]) {
+            int next = workspace.backward.parent[r];
+            unpack(r, next, workspace.backward.parentEdge[r], workspace);
+        }
+
+        int[] cells = Arrays.copyOf(workspace.path, workspace.pathSize);
+        GridPath path = new GridPath(width, cells, cells.length);
+        return new PathResult(SearchStatus.FOUND, path, path.getLength(), workspace.settled);
+    }
+
+    /**
+     * Computes the length of the shortest path without unpacking it, which is the fastest kind of query.
+     * @return the length, or positive infinity if there is no path
+     */
+    public double distance(int startX, int startY, int endX, int endY, Workspace workspace) {
+        return search(startX, startY, endX, endY, workspace) < 0 ? Double.POSITIVE_INFINITY : workspace.best;
+    }
+
+    /**
+     * Runs the upward searches from both ends, alternating between them. A side stops once its smallest key is no
+     * better than the best path found so far. A cell is stalled, and its edges are not followed, when a more important
+     * neighbor proves that the cell was reached on a detour.
+     * @return the rank of the meeting cell, or -1 if there is no path
+     */
+    private int search(int startX, int startY, int endX, int endY, Workspace workspace) {
+        workspace.settled = 0;
+        if(!contains(startX, startY) || !contains(endX, endY)) return -1;
+        int source = rankOfCell[startY * width + startX], target = rankOfCell[endY * width + endX];
+        if(source < 0 || target < 0) return -1;
+
+        Workspace.Side forward = workspace.forward, backward = workspace.backward;
+        forward.reset(source);
+        backward.reset(target);
+        workspace.best = source == target ? 0 : Double.POSITIVE_INFINITY;
+        int meeting = source == target ? source : -1;
+
+        boolean forwardTurn = true;
+        while(true) {
+            boolean forwardActive = !forward.open.isEmpty() && forward.open.peekKey() < workspace.best;
+            boolean backwardActive = !backward.open.isEmpty() && backward.open.peekKey() < workspace.best;
+            if(!forwardActive && !backwardActive) break;
+            Workspace.Side side = (forwardTurn && forwardActive) || !backwardActive ? forward : backward;
+            Workspace.Side other = side == forward ? backward : forward;
+            forwardTurn = !forwardTurn;
+
+            int r = side.open.poll();
+            double distance = side.getDist(r);
+            workspace.settled++;
+            if(other.isSeen(r) && distance + other.getDist(r) < workspace.best) {
+                workspace.best = distance + other.getDist(r);
+                meeting = r;
+            }
+            if(isStalled(r, distance, side)) continue;
+
+            for(int edge = firstEdge[r]; edge < firstEdge[r + 1]; edge++) {
+                int next = edgeTarget[edge];
+                double nextDistance = distance + edgeWeight[edge];
+                if(nextDistance < side.getDist(next)) {
+                    side.reach(next, nextDistance, r, edge);
+                }
+            }
+        }
+        return meeting;
+    }
+
+    private boolean isStalled(int r, double distance, Workspace.Side side) {
+        for(int edge = firstEdge[r]; edge < firstEdge[r + 1]; edge++) {
+            int next = edgeTarget[edge];
+            if(side.isSeen(next) && side.getDist(next) + edgeWeight[edge] < distance - EPSILON) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Appends the cells of an edge after its first end, replacing shortcuts by the two edges they skip.
+     * @param from - rank of the end the path comes from
+     * @param to - rank of the end the path goes to
+     * @param edge - the edge, stored at whichever end is less important
+     */
+    private void unpack(int from, int to, int edge, Workspace workspace) {
+        int via = edgeVia[edge];
+        if(via < 0) {
+            workspace.appendCell(cellOfRank[to]);
+            return;
+        }
+        unpack(from, via, findEdge(via, from), workspace);
+        unpack(via, to, findEdge(via, to), workspace);
+    }
+
+    private int findEdge(int lower, int higher) {
+        for(int edge = firstEdge[lower]; edge < firstEdge[lower + 1]; edge++) {
+            if(edgeTarget[edge] == higher) return edge;
+        }
+        throw new IllegalStateException("Shortcut skips rank " + lower + " but it has no edge to rank " + higher);
+    }
+
+    private boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return number of free cells, which are the nodes of the hierarchy
+     */
+    public int getNumNodes() {
+        return cellOfRank.length;
+    }
+
+    /**
+     * @return number of upward edges, shortcuts included
+     */
+    public int getNumEdges() {
+        return edgeTarget.length;
+    }
+
+    public int getNumShortcuts() {
+        return numShortcuts;
+    }
+
+    /**
+     * @param cell - cell index, y * width + x
+     * @return rank of the cell, or -1 if it is an obstacle or outside the grid
+     */
+    int getRank(int cell) {
+        return cell >= 0 && cell < rankOfCell.length ? rankOfCell[cell] : -1;
+    }
+
+    /**
+     * @return for each rank, the index of its first upward edge, followed by the number of edges.
+     * The array belongs to the hierarchy and must not be changed
+     */
+    int[] getFirstEdge() {
+        return firstEdge;
+    }
+
+    /**
+     * @return rank at the upper end of each edge. The array belongs to the hierarchy and must not be changed
+     */
+    int[] getEdgeTarget() {
+        return edgeTarget;
+    }
+
+    /**
+     * @return length of each edge. The array belongs to the hierarchy and must not be changed
+     */
+    float[] getEdgeWeight() {
+        return edgeWeight;
+    }
+
+    /**
+     * @return bytes of the arrays of the hierarchy
+     */
+    public long getMemoryBytes() {
+        return 4L * (rankOfCell.length + cellOfRank.length + firstEdge.length)
+                + 12L * edgeTarget.length;
+    }
+
+    /**
+     * Query state for one thread: distances, parents and open sets of both search directions, and the buffers for
+     * unpacking paths. Distances are marked with the number of the query instead of being cleared, so a query only
+     * touches the cells it reaches.
+     */
+    public static final class Workspace {
+
+        private final Side forward;
+        private final Side backward;
+        private double best;
+        private int settled;
+
+        private int[] chain = new int[64];
+        private int chainSize;
+        private int[] path = new int[256];
+        private int pathSize;
+
+        /**
+         * @param hierarchy - the hierarchy the workspace is used with
+         */
+        public Workspace(ContractionHierarchy hierarchy) {
+            int numNodes = hierarchy.getNumNodes();
+            forward = new Side(numNodes);
+            backward = new Side(numNodes);
+        }
+
+        private void pushChain(int edge) {
+            if(chainSize == chain.length) chain = Arrays.copyOf(chain, chainSize * 2);
+            chain[chainSize++] = edge;
+        }
+
+        private void appendCell(int cell) {
+            if(pathSize == path.length) path = Arrays.copyOf(path, pathSize * 2);
+            path[pathSize++] = cell;
+        }
+
+        /**
+         * @return number of cells settled by the last query, over both directions
+         */
+        public int getSettled() {
+            return settled;
+        }
+
+        private static final class Side {
+
+            final double[] dist;
+            final int[] mark;
+            final int[] parent;
+            final int[] parentEdge;
+            final IndexedMinHeap open;
+            int query;
+
+            Side(int numNodes) {
+                dist = new double[numNodes];
+                mark = new int[numNodes];
+                parent = new int[numNodes];
+                parentEdge = new int[numNodes];
+                open = new IndexedMinHeap(numNodes);
+            }
+
+            void reset(int source) {
+                open.clear();
+                query++;
+                if(query == 0) {
+                    Arrays.fill(mark, 0);
+                    query = 1;
+                }
+                mark[source] = query;
+                dist[source] = 0;
+                parent[source] = -1;
+                open.addOrUpdate(source, 0);
+            }
+
+            boolean isSeen(int r) {
+                return mark[r] == query;
+            }
+
+            double getDist(int r) {
+                return mark[r] == query ? dist[r] : Double.POSITIVE_INFINITY;
+            }
+
+            void reach(int r, double distance, int parentRank, int edge) {
+                mark[r] = query;
+                dist[r] = distance;
+                parent[r] = parentRank;
+                parentEdge[r] = edge;
+                open.addOrUpdate(r, distance);
+            }
+        }
+    }
+
+    /**
+     * Contracts the cells of a map and lays out the resulting upward graph.
+     */
+    private static final class Builder {
+
+        private final int width;
+        private final int height;
+        private final int numNodes;
+        private final int[] cellOfNode;
+        private final int[] nodeOfCell;
+
+        // the graph of the cells not yet contracted, where a node only has edges to other remaining nodes
+        private final int[][] targets;
+        private final double[][] weights;
+        private final int[][] vias;
+        private final int[] degrees;
+
+        private final boolean[] contracted;
+        private final boolean[] inRound;
+        private final int[] deletedNeighbors;
+        private final int[] priorities;
+        private final int[] ranks;
+
+        // upward edges of each contracted node, as its edges at the moment it was contracted
+        private final int[][] upTargets;
+        private final double[][] upWeights;
+        private final int[][] upVias;
+        private int numShortcuts;
+
+        // searches not in use by a thread, they only live as long as the builder
+        private final ConcurrentLinkedQueue<WitnessSearch> idleSearches = new ConcurrentLinkedQueue<>();
+
+        Builder(BitGrid obstacles) {
+            width = obstacles.getWidth();
+            height = obstacles.getHeight();
+            nodeOfCell = new int[width * height];
+            Arrays.fill(nodeOfCell, -1);
+            int count = 0;
+            for(int y = 0; y < height; y++) {
+                for(int x = 0; x < width; x++) {
+                    if(!obstacles.get(x, y)) nodeOfCell[y * width + x] = count++;
+                }
+            }
+            numNodes = count;
+            cellOfNode = new int[numNodes];
+            for(int cell = 0; cell < nodeOfCell.length; cell++) {
+                if(nodeOfCell[cell] >= 0) cellOfNode[nodeOfCell[cell]] = cell;
+            }
+
+            targets = new int[numNodes][];
+            weights = new double[numNodes][];
+            vias = new int[numNodes][];
+            degrees = new int[numNodes];
+            for(int node = 0; node < numNodes; node++) {
+                int x = cellOfNode[node] % width, y = cellOfNode[node] / width;
+                targets[node] = new int[Direction.COUNT];
+                weights[node] = new double[Direction.COUNT];
+                vias[node] = new int[Direction.COUNT];
+                for(int d = 0; d < Direction.COUNT; d++) {
+                    int nx = x + Direction.dx(d), ny = y + Direction.dy(d);
+                    if(!obstacles.contains(nx, ny) || obstacles.get(nx, ny)) continue;
+                    int degree = degrees[node]++;
+                    targets[node][degree] = nodeOfCell[ny * width + nx];
+                    weights[node][degree] = Direction.cost(d);
+                    vias[node][degree] = -1;
+                }
+            }
+
+            contracted = new boolean[numNodes];
+            inRound = new boolean[numNodes];
+            deletedNeighbors = new int[numNodes];
+            priorities = new int[numNodes];
+            ranks = new int[numNodes];
+            upTargets = new int[numNodes][];
+            upWeights = new double[numNodes][];
+            upVias = new int[numNodes][];
+        }
+
+        ContractionHierarchy build() {
+            int[] remaining = new int[numNodes];
+            for(int node = 0; node < numNodes; node++) {
+                remaining[node] = node;
+            }
+            int numRemaining = numNodes;
+            updatePriorities(remaining, numRemaining);
+
+            int nextRank = 0;
+            boolean[] touched = new boolean[numNodes];
+            while(numRemaining > 0) {
+                int[] candidates = remaining;
+                int[] round = IntStream.range(0, numRemaining).parallel()
+                        .map(i -> candidates[i])
+                        .filter(this::isLocalMinimum)
+                        .toArray();
+                for(int node : round) {
+                    inRound[node] = true;
+                }
+
+                Shortcuts[] shortcuts = new Shortcuts[round.length];
+                IntStream.range(0, round.length).parallel().forEach(i -> {
+                    shortcuts[i] = new Shortcuts();
+                    findShortcuts(round[i], true, CONTRACTION_SETTLE_LIMIT, shortcuts[i]);
+                });
+
+                int numTouched = 0;
+                int[] touchedNodes = new int[Math.max(1, round.length * 2)];
+                for(int node : round) {
+                    contract(node, nextRank++);
+                    for(int i = 0; i < degrees[node]; i++) {
+                        int neighbor = targets[node][i];
+                        if(!touched[neighbor]) {
+                            touched[neighbor] = true;
+                            if(numTouched == touchedNodes.length) touchedNodes = Arrays.copyOf(touchedNodes, numTouched * 2);
+                            touchedNodes[numTouched++] = neighbor;
+                        }
+                    }
+                    releaseEdges(node);
+                }
+                for(int i = 0; i < round.length; i++) {
+                    Shortcuts added = shortcuts[i];
+                    for(int k = 0; k < added.size; k++) {
+                        addEdge(added.from[k], added.to[k], added.length[k], round[i]);
+                        addEdge(added.to[k], added.from[k], added.length[k], round[i]);
+                    }
+                    numShortcuts += added.size;
+                }
+                for(int node : round) {
+                    inRound[node] = false;
+                }
+
+                int kept = 0;
+                for(int i = 0; i < numRemaining; i++) {
+                    if(!contracted[remaining[i]]) remaining[kept++] = remaining[i];
+                }
+                numRemaining = kept;
+                for(int i = 0; i < numTouched; i++) {
+                    touched[touchedNodes[i]] = false;
+                }
+                updatePriorities(touchedNodes, numTouched);
+            }
+            return layOut();
+        }
+
+        /**
+         * A node is contracted in the current round when its priority is smaller than that of every remaining
+         * neighbor, with ties broken by the node number, so no two neighbors are contracted together.
+         */
+        private boolean isLocalMinimum(int node) {
+            for(int i = 0; i < degrees[node]; i++) {
+                int neighbor = targets[node][i];
+                if(priorities[neighbor] < priorities[node]
+                        || (priorities[neighbor] == priorities[node] && neighbor < node)) return false;
+            }
+            return true;
+        }
+
+        private void updatePriorities(int[] nodes, int count) {
+            IntStream.range(0, count).parallel().forEach(i -> {
+                int node = nodes[i];
+                int added = findShortcuts(node, false, PRIORITY_SETTLE_LIMIT, null);
+                priorities[node] = 2 * (added - degrees[node]) + deletedNeighbors[node];
+            });
+        }
+
+        /**
+         * Finds the pairs of neighbors whose shortest path runs through a node.
+         *
+         * @param node - the node to be contracted
+         * @param avoidRound - whether witnesses must avoid every node of the round, otherwise only the node itself
+         * @param settleLimit - cells a witness search settles at most
+         * @param result - receives the shortcuts, or null when they are only counted
+         * @return the number of shortcuts
+         */
+        private int findShortcuts(int node, boolean avoidRound, int settleLimit, Shortcuts result) {
+            WitnessSearch search = idleSearches.poll();
+            if(search == null) search = new WitnessSearch(targets, weights, degrees);
+            int degree = degrees[node];
+            int[] nodeTargets = targets[node];
+            double[] nodeWeights = weights[node];
+            int count = 0;
+            for(int i = 0; i < degree - 1; i++) {
+                double maxLength = 0;
+                for(int j = i + 1; j < degree; j++) {
+                    maxLength = Math.max(maxLength, nodeWeights[i] + nodeWeights[j]);
+                }
+                search.run(nodeTargets[i], node, avoidRound ? inRound : null, nodeTargets, i + 1, degree, maxLength,
+                        settleLimit);
+                for(int j = i + 1; j < degree; j++) {
+                    double length = nodeWeights[i] + nodeWeights[j];
+                    if(search.getDist(nodeTargets[j]) <= length + EPSILON) continue;
+                    count++;
+                    if(result != null) result.add(nodeTargets[i], nodeTargets[j], length);
+                }
+            }
+            idleSearches.offer(search);
+            return count;
+        }
+
+        /**
+         * Gives the node its rank and keeps its current edges, which all lead to nodes contracted later, as its
+         * upward edges.
+         */
+        private void contract(int node, int rank) {
+            contracted[node] = true;
+            ranks[node] = rank;
+            int degree = degrees[node];
+            upTargets[node] = Arrays.copyOf(targets[node], degree);
+            upWeights[node] = Arrays.copyOf(weights[node], degree);
+            upVias[node] = Arrays.copyOf(vias[node], degree);
+        }
+
+        /**
+         * Removes the edges of a contracted node from its neighbors.
+         */
+        private void releaseEdges(int node) {
+            for(int i = 0; i < degrees[node]; i++) {
+                int neighbor = targets[node][i];
+                deletedNeighbors[neighbor]++;
+                int[] neighborTargets = targets[neighbor];
+                for(int k = 0; k < degrees[neighbor]; k++) {
+                    if(neighborTargets[k] != node) continue;
+                    int last = --degrees[neighbor];
+                    neighborTargets[k] = neighborTargets[last];
+                    weights[neighbor][k] = weights[neighbor][last];
+                    vias[neighbor][k] = vias[neighbor][last];
+                    break;
+                }
+            }
+            targets[node] = null;
+            weights[node] = null;
+            vias[node] = null;
+            degrees[node] = 0;
+        }
+
+        /**
+         * Adds an edge, or shortens an existing one.
+         */
+        private void addEdge(int from, int to, double length, int via) {
+            int degree = degrees[from];
+            for(int i = 0; i < degree; i++) {
+                if(targets[from][i] != to) continue;
+                if(length < weights[from][i]) {
+                    weights[from][i] = length;
+                    vias[from][i] = via;
+                }
+                return;
+            }
+            if(degree == targets[from].length) {
+                targets[from] = Arrays.copyOf(targets[from], degree * 2);
+                weights[from] = Arrays.copyOf(weights[from], degree * 2);
+                vias[from] = Arrays.copyOf(vias[from], degree * 2);
+            }
+            targets[from][degree] = to;
+            weights[from][degree] = length;
+            vias[from][degree] = via;
+            degrees[from]++;
+        }
+
+        /**
+         * Numbers the nodes by rank and packs their upward edges into the edge arrays.
+         */
+        private ContractionHierarchy layOut() {
+            int[] rankOfCell = new int[width * height];
+            Arrays.fill(rankOfCell, -1);
+            int[] cellOfRank = new int[numNodes];
+            int[] nodeOfRank = new int[numNodes];
+            for(int node = 0; node < numNodes; node++) {
+                rankOfCell[cellOfNode[node]] = ranks[node];
+                cellOfRank[ranks[node]] = cellOfNode[node];
+                nodeOfRank[ranks[node]] = node;
+            }
+
+            int[] firstEdge = new int[numNodes + 1];
+            for(int rank = 0; rank < numNodes; rank++) {
+                firstEdge[rank + 1] = firstEdge[rank] + upTargets[nodeOfRank[rank]].length;
+            }
+            int numEdges = firstEdge[numNodes];
+            int[] edgeTarget = new int[numEdges];
+            float[] edgeWeight = new float[numEdges];
+            int[] edgeVia = new int[numEdges];
+            for(int rank = 0; rank < numNodes; rank++) {
+                int node = nodeOfRank[rank];
+                for(int i = 0; i < upTargets[node].length; i++) {
+                    int edge = firstEdge[rank] + i;
+                    edgeTarget[edge] = ranks[upTargets[node][i]];
+                    edgeWeight[edge] = (float) upWeights[node][i];
+                    edgeVia[edge] = upVias[node][i] < 0 ? -1 : ranks[upVias[node][i]];
+                }
+            }
+            return new ContractionHierarchy(width, height, rankOfCell, cellOfRank, firstEdge, edgeTarget, edgeWeight,
+                    edgeVia, numShortcuts);
+        }
+
+        /**
+         * A bounded Dijkstra on the remaining graph, used by one thread at a time.
+         */
+        private static final class WitnessSearch {
+
+            private final int[][] targets;
+            private final double[][] weights;
+            private final int[] degrees;
+
+            private final double[] dist;
+            private final int[] mark;
+            private final int[] goalMark;
+            private final IndexedMinHeap open;
+            private int query;
+
+            /**
+             * @param targets - neighbors of the remaining nodes, the rows are replaced as edges are added
+             * @param weights - lengths of the edges, in the same order as the targets
+             * @param degrees - number of edges of every node
+             */
+            WitnessSearch(int[][] targets, double[][] weights, int[] degrees) {
+                this.targets = targets;
+                this.weights = weights;
+                this.degrees = degrees;
+                int numNodes = degrees.length;
+                dist = new double[numNodes];
+                mark = new int[numNodes];
+                goalMark = new int[numNodes];
+                open = new IndexedMinHeap(numNodes);
+            }
+
+            /**
+             * @param source - node the search starts from
+             * @param skipped - node which is being contracted
+             * @param avoided - nodes the search must not pass, or null
+             * @param maxLength - the search stops beyond this distance
+             * @param settleLimit - the search stops after settling this many nodes
+             */
+            void run(int source, int skipped, boolean[] avoided, int[] goals, int firstGoal, int endGoal,
+                     double maxLength, int settleLimit) {
+                open.clear();
+                query++;
+                for(int i = firstGoal; i < endGoal; i++) {
+                    goalMark[goals[i]] = query;
+                }
+                int goalsLeft = endGoal - firstGoal;
+                mark[source] = query;
+                dist[source] = 0;
+                open.addOrUpdate(source, 0);
+
+                int settled = 0;
+                while(!open.isEmpty() && open.peekKey() <= maxLength + EPSILON && settled < settleLimit) {
+                    int node = open.poll();
+                    settled++;
+                    if(goalMark[node] == query && --goalsLeft == 0) break;
+                    double nodeDist = dist[node];
+                    int[] nodeTargets = targets[node];
+                    double[] nodeWeights = weights[node];
+                    for(int i = 0; i < degrees[node]; i++) {
+                        int next = nodeTargets[i];
+                        if(next == skipped || (avoided != null && avoided[next])) continue;
+                        double nextDist = nodeDist + nodeWeights[i];
+                        if(mark[next] != query || nextDist < dist[next]) {
+                            mark[next] = query;
+                            dist[next] = nextDist;
+                            open.addOrUpdate(next, nextDist);
+                        }
+                    }
+                }
+            }
+
+            double getDist(int node) {
+                return mark[node] == query ? dist[node] : Double.POSITIVE_INFINITY;
+            }
+        }
+    }
+
+    /**
+     * Shortcuts found for one node, as pairs of neighbors with the length of the path through the node.
+     */
+    private static final class Shortcuts {
+
+        int[] from = new int[8];
+        int[] to = new int[8];
+        double[] length = new double[8];
+        int size;
+
+        void add(int a, int b, double pathLength) {
+            if(size == from.length) {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+                length = Arrays.copyOf(length, size * 2);
+            }
+            from[size] = a;
+            to[size] = b;
+            length[size] = pathLength;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Multi-agent planner using windowed cooperative A*. Agents plan one after another in space and time, and every plan
+ * is written to a shared {@link ReservationTable}, so later agents route around the earlier ones: they may not enter
+ * a reserved cell, swap cells with another agent, or cross another agent moving diagonally through the same square.
+ * Every move and every wait takes one tick.
+ *
+ * Plans only cover a window of ticks. Each agent replans when half of its window has passed, and the agents are
+ * staggered so that only a fraction of them replans on any tick, which keeps the cost per tick even. Within the
+ * window an agent heads for a waypoint on its own single-agent path, found once with {@link GridAStar} and only
+ * searched again if the agent has been pushed far away from it.
+ */
+public class CooperativePlanner {
+
+    public static final int DEFAULT_WINDOW = 16;
+    public static final int DEFAULT_MAX_EXPANSIONS = 1024;
+
+    private final BitGrid obstacles;
+    private final int width;
+    private final int height;
+    private final int window;
+    private final int replanInterval;
+    private final int maxExpansions;
+    private final GridAStar guideEngine;
+    private final SearchWorkspace guideWorkspace = new SearchWorkspace();
+    private final ReservationTable reservations;
+    private long now;
+
+    // agents
+    private int numAgents;
+    private int[] positions = new int[16];
+    private int[] goals = new int[16];
+    private int[][] plans = new int[16][];
+    private long[] planStarts = new long[16];
+    private int[][] guides = new int[16][];
+    private int[] guideIndices = new int[16];
+
+    // space-time search, states are (cell, ticks after now)
+    private final int maxStates;
+    private final int[] stateCells;
+    private final int[] stateTimes;
+    private final int[] stateParents;
+    private final double[] stateDists;
+    private final boolean[] stateClosed;
+    private final long[] stateKeys;
+    private final int[] stateIds;
+    private final int[] stateMarks;
+    private final int stateMask;
+    private int stateMark;
+    private int numStates;
+    private final IndexedMinHeap open;
+
+    // statistics
+    private long agentsPlanned;
+    private long planningNanos;
+    private long expansions;
+    private long conflicts;
+    private long guideSearches;
+
+    public CooperativePlanner(Graph graph) {
+        this(BitGrid.fromObstacles(graph), DEFAULT_WINDOW, DEFAULT_MAX_EXPANSIONS);
+    }
+
+    /**
+     * @param obstacles - grid where obstacles are set, it must not change while the planner is used
+     * @param window - number of ticks each plan covers, at least 2
+     * @param maxExpansions - maximum number of expanded states per plan, bounding the time of a single plan
+     */
+    public CooperativePlanner(BitGrid obstacles, int window, int maxExpansions) {
+        if(window < 2 || maxExpansions < 1) {
+            throw new IllegalArgumentException("Window must be at least 2 and expansions positive");
+        }
+        this.obstacles = obstacles;
+        width = obstacles.getWidth();
+        height = obstacles.getHeight();
+        this.window = window;
+        replanInterval = window / 2;
+        this.maxExpansions = maxExpansions;
+        guideEngine = new GridAStar(obstacles);
+        reservations = new ReservationTable(width * height, 64 * (window + 1));
+
+        maxStates = maxExpansions * (Direction.COUNT + 1) + 1;
+        stateCells = new int[maxStates];
+        stateTimes = new int[maxStates];
+        stateParents = new int[maxStates];
+        stateDists = new double[maxStates];
+        stateClosed = new boolean[maxStates];
+        int tableSize = Integer.highestOneBit(maxStates) << 2;
+        stateKeys = new long[tableSize];
+        stateIds = new int[tableSize];
+        stateMarks = new int[tableSize];
+        stateMask = tableSize - 1;
+        open = new IndexedMinHeap(maxStates);
+    }
+
+    /**
+     * Adds an agent at the current tick. It stands still until its first plan, which comes within half a window.
+     *
+     * @return id of the agent, agents are numbered from 0
+     * @throws IllegalArgumentException if the start or goal is blocked, or the start is taken by another agent
+     */
+    public int addAgent(int startX, int startY, int goalX, int goalY) {
+        if(!isFree(startX, startY) || !isFree(goalX, goalY)) {
+            throw new IllegalArgumentException("Start and goal must be free cells");
+        }
+        int start = startY * width + startX;
+        if(reservations.getAgent(start, now) != ReservationTable.FREE) {
+            throw new IllegalArgumentException("Start is taken by agent " + reservations.getAgent(start, now));
+        }
+        if(numAgents == positions.length) {
+            int capacity = numAgents * 2;
+            positions = Arrays.copyOf(positions, capacity);
+            goals = Arrays.copyOf(goals, capacity);
+            plans = Arrays.copyOf(plans, capacity);
+            planStarts = Arrays.copyOf(planStarts, capacity);
+            guides = Arrays.copyOf(guides, capacity);
+            guideIndices = Arrays.copyOf(guideIndices, capacity);
+        }
+        int agent = numAgents++;
+        positions[agent] = start;
+        goals[agent] = goalY * width + goalX;
+
+        int[] plan = new int[window + 1];
+        Arrays.fill(plan, start);
+        plans[agent] = plan;
+        planStarts[agent] = now;
+        for(int t = 0; t <= window; t++) {
+            reservations.reserve(start, now + t, agent);
+        }
+        return agent;
+    }
+
+    /**
+     * Replans the agents whose turn it is, and then moves every agent one step along its plan.
+     */
+    public void tick() {
+        long start = System.nanoTime();
+        for(int agent = 0; agent < numAgents; agent++) {
+            if((now + agent) % replanInterval == 0 || now >= planStarts[agent] + window) {
+                plan(agent);
+            }
+        }
+        planningNanos += System.nanoTime() - start;
+
+        now++;
+        for(int agent = 0; agent < numAgents; agent++) {
+            positions[agent] = plans[agent][(int) (now - planStarts[agent])];
+        }
+        if(now % window == 0) {
+            reservations.purge(now);
+        }
+    }
+
+    /**
+     * Plans the next window of an agent around the reservations of all other agents.
+     */
+    private void plan(int agent) {
+        int[] oldPlan = plans[agent];
+        long oldStart = planStarts[agent];
+        for(long t = now + 1; t <= oldStart + window; t++) {
+            reservations.release(oldPlan[(int) (t - oldStart)], t, agent);
+        }
+
+        int waypoint = nextWaypoint(agent);
+        int best = search(agent, positions[agent], goals[agent], waypoint);
+
+        // walk back from the best state, and wait at its cell for the rest of the window
+        int[] plan = oldPlan;
+        int last = stateTimes[best];
+        for(int s = best; s >= 0; s = stateParents[s]) {
+            plan[stateTimes[s]] = stateCells[s];
+        }
+        Arrays.fill(plan, last + 1, window + 1, stateCells[best]);
+        planStarts[agent] = now;
+
+        for(int t = 1; t <= window; t++) {
+            int holder = reservations.getAgent(plan[t], now + t);
+            if(holder == ReservationTable.FREE) {
+                reservations.reserve(plan[t], now + t, agent);
+            } else if(holder != agent) {
+                conflicts++;
+            }
+        }
+        agentsPlanned++;
+    }
+
+    /**
+     * Space-time A* from the current position, ending at the first state at the end of the window, or at the most
+     * promising deepest state once the expansion budget is spent.
+     * @return the state the plan leads to
+     */
+    private int search(int agent, int start, int goal, int waypoint) {
+        stateMark++;
+        if(stateMark == 0) {
+            Arrays.fill(stateMarks, 0);
+            stateMark = 1;
+        }
+        numStates = 0;
+        open.clear();
+
+        int first = getState(start, 0);
+        stateDists[first] = 0;
+        open.addOrUpdate(first, heuristic(start, waypoint));
+
+        int best = first;
+        double bestKey = open.peekKey();
+        for(int expanded = 0; !open.isEmpty() && expanded < maxExpansions; expanded++) {
+            double key = open.peekKey();
+            int s = open.poll();
+            stateClosed[s] = true;
+            expansions++;
+            if(stateTimes[s] > stateTimes[best] || (stateTimes[s] == stateTimes[best] && key < bestKey)) {
+                best = s;
+                bestKey = key;
+            }
+            if(stateTimes[s] == window) break;
+
+            int cell = stateCells[s];
+            int x = cell % width, y = cell / width;
+            long t = now + stateTimes[s];
+
+            tryStep(agent, s, cell, cell, t, cell == goal ? 0 : 1, waypoint);
+            for(int d = 0; d < Direction.COUNT; d++) {
+                int nx = x + Direction.dx(d), ny = y + Direction.dy(d);
+                if(!isFree(nx, ny)) continue;
+                if(Direction.isDiagonal(d) && crossesAgent(agent, y * width + nx, ny * width + x, t)) continue;
+                tryStep(agent, s, cell, ny * width + nx, t, Direction.cost(d), waypoint);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Relaxes the step from state s at cell to next, unless another agent holds next at t + 1 or moves from next
+     * to cell at the same time.
+     */
+    private void tryStep(int agent, int s, int cell, int next, long t, double cost, int waypoint) {
+        int holder = reservations.getAgent(next, t + 1);
+        if(holder != ReservationTable.FREE && holder != agent) return;
+        if(next != cell) {
+            int swapper = reservations.getAgent(next, t);
+            if(swapper != ReservationTable.FREE && swapper != agent && reservations.getAgent(cell, t + 1) == swapper) return;
+        }
+
+        int n = getState(next, stateTimes[s] + 1);
+        if(n < 0 || stateClosed[n]) return;
+        double dist = stateDists[s] + cost;
+        if(dist < stateDists[n]) {
+            stateDists[n] = dist;
+            stateParents[n] = s;
+            open.addOrUpdate(n, dist + heuristic(next, waypoint));
+        }
+    }
+
+    /**
+     * A diagonal move passes between its two side cells, so it collides with an agent moving from one of them to
+     * the other during the same tick.
+     */
+    private boolean crossesAgent(int agent, int sideA, int sideB, long t) {
+        int other = reservations.getAgent(sideA, t);
+        if(other != ReservationTable.FREE && other != agent && reservations.getAgent(sideB, t + 1) == other) return true;
+        other = reservations.getAgent(sideB, t);
+        return other != ReservationTable.FREE && other != agent && reservations.getAgent(sideA, t + 1) == other;
+    }
+
+    /**
+     * Finds or creates the state of a cell at a number of ticks after now.
+     * @return the state, or -1 if the state limit has been reached
+     */
+    private int getState(int cell, int time) {
+        long key = (long) cell * (window + 1) + time;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & stateMask;
+        while(stateMarks[slot] == stateMark) {
+            if(stateKeys[slot] == key) return stateIds[slot];
+            slot = (slot + 1) & stateMask;
+        }
+        if(numStates == maxStates) return -1;
+
+        int s = numStates++;
+        stateMarks[slot] = stateMark;
+        stateKeys[slot] = key;
+        stateIds[slot] = s;
+        stateCells[s] = cell;
+        stateTimes[s] = time;
+        stateParents[s] = -1;
+        stateDists[s] = Double.POSITIVE_INFINITY;
+        stateClosed[s] = false;
+        return s;
+    }
+
+    /**
+     * Moves the progress of the agent along its single-agent path to the nearby path cell closest to where it is now,
+     * and picks the cell one window further along that path. The path is only searched again when the agent has
+     * been pushed more than half a window away from it.
+     */
+    private int nextWaypoint(int agent) {
+        int position = positions[agent];
+        int[] guide = guides[agent];
+        int progress = -1;
+        if(guide != null) {
+            double closest = replanInterval;
+            int from = Math.max(0, guideIndices[agent] - window);
+            int to = Math.min(guide.length - 1, guideIndices[agent] + 2 * window);
+            for(int i = from; i <= to; i++) {
+                double distance = heuristic(position, guide[i]);
+                if(distance <= closest) {
+                    closest = distance;
+                    progress = i;
+                }
+            }
+        }
+        if(progress < 0) {
+            guideSearches++;
+            int goal = goals[agent];
+            PathResult result = guideEngine.findPath(position % width, position / width, goal % width, goal / width,
+                    guideWorkspace);
+            guide = result.isFound() ? result.getPath().toArray() : new int[] {position};
+            guides[agent] = guide;
+            progress = 0;
+        }
+        guideIndices[agent] = progress;
+        return guide[Math.min(guide.length - 1, progress + window)];
+    }
+
+    private double heuristic(int cell, int target) {
+        return PathAlgorithm.getOctileDistance(cell % width, cell / width, target % width, target / width);
+    }
+
+    private boolean isFree(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height && !obstacles.get(x, y);
+    }
+
+    /**
+     * Counts pairs of agents in the same cell, which stays 0 unless planning failed.
+     */
+    public int countCollisions() {
+        int[] sorted = Arrays.copyOf(positions, numAgents);
+        Arrays.sort(sorted);
+        int collisions = 0;
+        for(int i = 1; i < sorted.length; i++) {
+            if(sorted[i] == sorted[i - 1]) collisions++;
+        }
+        return collisions;
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public int getNumAgents() {
+        return numAgents;
+    }
+
+    public long getTick() {
+        return now;
+    }
+
+    /**
+     * @return cell index of the agent at the current tick
+     */
+    public int getPosition(int agent) {
+        return positions[agent];
+    }
+
+    public int getX(int agent) {
+        return positions[agent] % width;
+    }
+
+    public int getY(int agent) {
+        return positions[agent] / width;
+    }
+
+    public boolean isAtGoal(int agent) {
+        return positions[agent] == goals[agent];
+    }
+
+    public int getNumAgentsAtGoal() {
+        int count = 0;
+        for(int agent = 0; agent < numAgents; agent++) {
+            if(positions[agent] == goals[agent]) count++;
+        }
+        return count;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public long getAgentsPlanned() {
+        return agentsPlanned;
+    }
+
+    /**
+     * @return number of plans per second of time spent planning
+     */
+    public double getAgentsPlannedPerSecond() {
+        return planningNanos == 0 ? 0 : agentsPlanned * 1e9 / planningNanos;
+    }
+
+    public long getPlanningNanos() {
+        return planningNanos;
+    }
+
+    public long getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * @return number of plan steps which could not avoid a cell already reserved by another agent
+     */
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * @return number of single-agent paths searched, initially one per agent
+     */
+    public long getGuideSearches() {
+        return guideSearches;
+    }
+
+    public ReservationTable getReservations() {
+        return reservations;
+    }
+}
@@ -18,7 +18,8 @@ public class Dijkstra extends PathAlgorithm {
         super(graph);
         preProcessNodes(startPoint, endPoint);
 
-        pq = new PriorityQueue<>((a, b) -> Double.compare(a.getDist(), b.getDist()));
+        // a node is removed before it is added again, so with room for every node the queue never grows
+        pq = new PriorityQueue<>(MAX_X_COORDINATE * MAX_Y_COORDINATE, (a, b) -> Double.compare(a.getDist(), b.getDist()));
         pq.add(startNode);
     }
 
@@ -27,19 +28,25 @@ public class Dijkstra extends PathAlgorithm {
      * @param node - the current node to explore
      */
     private void visit(Node node) {
+        int index = graph.indexOf(node);
+        traceExpanded(index);
 
-        for(Node neighbor : graph.getNeighborsFromNode(node)) {
-            if(neighbor.getState() == NodeState.VISITED || neighbor.getState() == NodeState.OBSTACLE) {
+        for(int mask = graph.getNeighborMask(index); mask != 0; mask &= mask - 1) {
+            int direction = Integer.numberOfTrailingZeros(mask);
+            int neighborIndex = graph.getNeighborIndex(index, direction);
+            Node neighbor = graph.getNode(neighborIndex);
+            if(neighbor.getState() == NodeState.VISITED) {
                 continue;
             }
 
-            double distToNeighbor = getDistToNeighbor(node, neighbor);
+            double distToNeighbor = Direction.cost(direction);
 
             if(distToNeighbor + node.getDist() < neighbor.getDist()) {
                 pq.remove(neighbor);
                 neighbor.setDist(distToNeighbor + node.getDist());
                 neighbor.setPrev(node);
                 pq.add(neighbor);
+                traceReached(neighborIndex);
             }
         }
         node.setState(NodeState.VISITED);
@@ -52,9 +59,9 @@ public class Dijkstra extends PathAlgorithm {
     public void visitNext() {
         Node currentNode = pq.poll();
 
-        // if current node is null, then there's guaranteed to be no possible path, and we will thus interrupt the thread
+        // if current node is null, then there's guaranteed to be no possible path
         if(currentNode == null) {
-            Thread.currentThread().interrupt();
+            exhausted = true;
             return;
         }
         visit(currentNode);
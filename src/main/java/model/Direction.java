@@ -0,0 +1,64 @@
+package model;
+
+/**
+ * The eight directions of movement in the grid, numbered 0 to 7 counter-clockwise on screen starting with east,
+ * so that a direction fits in three bits and can be used as a bit position in a neighbor mask.
+ * Odd directions are diagonal, and the opposite of direction d is (d + 4) % 8.
+ */
+public final class Direction {
+
+    public static final int EAST = 0;
+    public static final int NORTH_EAST = 1;
+    public static final int NORTH = 2;
+    public static final int NORTH_WEST = 3;
+    public static final int WEST = 4;
+    public static final int SOUTH_WEST = 5;
+    public static final int SOUTH = 6;
+    public static final int SOUTH_EAST = 7;
+
+    public static final int COUNT = 8;
+    public static final double DIAGONAL_COST = Math.sqrt(2);
+
+    // y grows downwards on the screen, so north is negative y
+    private static final int[] DX = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] DY = {0, -1, -1, -1, 0, 1, 1, 1};
+
+    private Direction() {}
+
+    public static int dx(int direction) {
+        return DX[direction];
+    }
+
+    public static int dy(int direction) {
+        return DY[direction];
+    }
+
+    public static int opposite(int direction) {
+        return (direction + 4) & 7;
+    }
+
+    public static boolean isDiagonal(int direction) {
+        return (direction & 1) != 0;
+    }
+
+    /**
+     * @param direction - the direction of the move
+     * @return the cost of moving one step in given direction
+     */
+    public static double cost(int direction) {
+        return (direction & 1) != 0 ? DIAGONAL_COST : 1.0;
+    }
+
+    /**
+     * Finds the direction of a step.
+     * @param dx - step along x, one of -1, 0 and 1
+     * @param dy - step along y, one of -1, 0 and 1
+     * @return the direction, or -1 if the step is not a move to a neighbor
+     */
+    public static int of(int dx, int dy) {
+        for(int d = 0; d < COUNT; d++) {
+            if(DX[d] == dx && DY[d] == dy) return d;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,176 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Many-to-many shortest path distances on a {@link ContractionHierarchy}, with one upward search per source and per
+ * target instead of one query per pair.
+ *
+ * A shortest path in the hierarchy goes up from the source to its most important cell and down from there to the
+ * target, so its length is the smallest sum of an upward distance from the source and one from the target over the
+ * cells both upward searches settle. The searches from the targets run first and leave an entry (target, distance) in
+ * the bucket of every cell they settle. The search from a source then scans the bucket of every cell it settles and
+ * keeps the smallest sum for each target. The searches of each side run in parallel on the common fork-join pool,
+ * each source writes its own row of the matrix, and the buckets are laid out as one array sorted by rank.
+ *
+ * Cells stalled by the upward search are left out on both sides, since no shortest path goes up through them.
+ */
+public final class DistanceMatrix {
+
+    // distances are summed as floats, a rank is only stalled by a clearly shorter distance
+    private static final float STALL_TOLERANCE = 1e-3f;
+
+    private DistanceMatrix() {
+    }
+
+    /**
+     * Computes the distances from every source to every target.
+     *
+     * @param hierarchy - hierarchy of the map
+     * @param sources - cells of the sources, y * width + x
+     * @param targets - cells of the targets, y * width + x
+     * @return row-major matrix with sources.length rows and targets.length columns, positive infinity where there is
+     * no path, including sources and targets which are obstacles
+     */
+    public static float[] compute(ContractionHierarchy hierarchy, int[] sources, int[] targets) {
+        int numTargets = targets.length;
+        float[] matrix = new float[sources.length * numTargets];
+        Arrays.fill(matrix, Float.POSITIVE_INFINITY);
+        if(sources.length == 0 || numTargets == 0) return matrix;
+
+        // searches not in use by a thread, dropped together with this queue when the matrix is done
+        ConcurrentLinkedQueue<UpwardSearch> idleSearches = new ConcurrentLinkedQueue<>();
+        int[][] targetRanks = new int[numTargets][];
+        float[][] targetDists = new float[numTargets][];
+        IntStream.range(0, numTargets).parallel().forEach(t -> {
+            UpwardSearch search = acquire(idleSearches, hierarchy);
+            search.run(hierarchy.getRank(targets[t]));
+            targetRanks[t] = Arrays.copyOf(search.settledRanks, search.numSettled);
+            targetDists[t] = Arrays.copyOf(search.settledDists, search.numSettled);
+            idleSearches.offer(search);
+        });
+
+        // buckets as one array sorted by rank, the entries of rank r are [firstEntry[r], firstEntry[r + 1])
+        int numNodes = hierarchy.getNumNodes();
+        int[] firstEntry = new int[numNodes + 1];
+        for(int[] ranks : targetRanks) {
+            for(int rank : ranks) {
+                firstEntry[rank + 1]++;
+            }
+        }
+        for(int rank = 0; rank < numNodes; rank++) {
+            firstEntry[rank + 1] += firstEntry[rank];
+        }
+        int[] entryTarget = new int[firstEntry[numNodes]];
+        float[] entryDist = new float[firstEntry[numNodes]];
+        int[] fill = Arrays.copyOf(firstEntry, numNodes);
+        for(int t = 0; t < numTargets; t++) {
+            for(int i = 0; i < targetRanks[t].length; i++) {
+                int entry = fill[targetRanks[t][i]]++;
+                entryTarget[entry] = t;
+                entryDist[entry] = targetDists[t][i];
+            }
+        }
+
+        IntStream.range(0, sources.length).parallel().forEach(s -> {
+            UpwardSearch search = acquire(idleSearches, hierarchy);
+            search.run(hierarchy.getRank(sources[s]));
+            int row = s * numTargets;
+            for(int i = 0; i < search.numSettled; i++) {
+                int rank = search.settledRanks[i];
+                float dist = search.settledDists[i];
+                for(int entry = firstEntry[rank]; entry < firstEntry[rank + 1]; entry++) {
+                    int cell = row + entryTarget[entry];
+                    matrix[cell] = Math.min(matrix[cell], dist + entryDist[entry]);
+                }
+            }
+            idleSearches.offer(search);
+        });
+        return matrix;
+    }
+
+    private static UpwardSearch acquire(ConcurrentLinkedQueue<UpwardSearch> idleSearches,
+                                        ContractionHierarchy hierarchy) {
+        UpwardSearch search = idleSearches.poll();
+        return search != null ? search : new UpwardSearch(hierarchy);
+    }
+
+    /**
+     * Dijkstra over the upward edges from one rank to the end, with stall-on-demand, used by one thread at a time.
+     */
+    private static final class UpwardSearch {
+
+        private final int[] firstEdge;
+        private final int[] edgeTarget;
+        private final float[] edgeWeight;
+
+        private final float[] dist;
+        private final int[] mark;
+        private final IndexedMinHeap open;
+        private int query;
+
+        // the settled ranks which are not stalled, with their distances
+        int[] settledRanks = new int[64];
+        float[] settledDists = new float[64];
+        int numSettled;
+
+        UpwardSearch(ContractionHierarchy hierarchy) {
+            firstEdge = hierarchy.getFirstEdge();
+            edgeTarget = hierarchy.getEdgeTarget();
+            edgeWeight = hierarchy.getEdgeWeight();
+            int numNodes = hierarchy.getNumNodes();
+            dist = new float[numNodes];
+            mark = new int[numNodes];
+            open = new IndexedMinHeap(numNodes);
+        }
+
+        /**
+         * @param source - rank the search starts from, or -1 for a cell which is not in the hierarchy
+         */
+        void run(int source) {
+            numSettled = 0;
+            if(source < 0) return;
+            query++;
+            mark[source] = query;
+            dist[source] = 0;
+            open.addOrUpdate(source, 0);
+
+            while(!open.isEmpty()) {
+                int r = open.poll();
+                float d = dist[r];
+                if(isStalled(r, d)) continue;
+                if(numSettled == settledRanks.length) {
+                    settledRanks = Arrays.copyOf(settledRanks, numSettled * 2);
+                    settledDists = Arrays.copyOf(settledDists, numSettled * 2);
+                }
+                settledRanks[numSettled] = r;
+                settledDists[numSettled] = d;
+                numSettled++;
+
+                for(int edge = firstEdge[r]; edge < firstEdge[r + 1]; edge++) {
+                    int next = edgeTarget[edge];
+                    float nextDist = d + edgeWeight[edge];
+                    if(mark[next] != query || nextDist < dist[next]) {
+                        mark[next] = query;
+                        dist[next] = nextDist;
+                        open.addOrUpdate(next, nextDist);
+                    }
+                }
+            }
+        }
+
+        /**
+         * A rank is stalled when a more important neighbor, reached already, gives it a shorter distance than the
+         * search did.
+         */
+        private boolean isStalled(int r, float d) {
+            for(int edge = firstEdge[r]; edge < firstEdge[r + 1]; edge++) {
+                int next = edgeTarget[edge];
+                if(mark[next] == query && dist[next] + edgeWeight[edge] < d - STALL_TOLERANCE) return true;
+            }
+            return false;
+        }
+    }
+}
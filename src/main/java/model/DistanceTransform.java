@@ -0,0 +1,120 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Octile distance from every cell to the nearest set cell of a grid, ignoring any obstacles in between, for example
+ * to the nearest obstacle for clearance maps, or to a set of seeds for heuristic bounds.
+ *
+ * It is the classic two-pass chamfer transform with a 3x3 mask of weights 1 and sqrt(2), which gives the octile
+ * distance exactly. The forward pass goes down the rows and takes the cells above and to the left into account, the
+ * backward pass goes up and takes the cells below and to the right. Each row is done in two steps: one which lowers
+ * every cell to the distance through the three cells of the previous row, which has no dependencies along the row,
+ * and a scan along the row for the horizontal neighbor, which is a prefix minimum. When the JVM has the module
+ * jdk.incubator.vector both steps run on the Vector API, see {@link VectorRows}, otherwise on plain loops.
+ *
+ * Distances are floats in one array, row after row like the cells of a {@link BitGrid}, and positive infinity when
+ * no cell is set.
+ */
+public final class DistanceTransform {
+
+    static final float DIAGONAL = (float) Direction.DIAGONAL_COST;
+
+    private static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private DistanceTransform() {
+    }
+
+    /**
+     * @param seeds - grid where the cells to measure the distance to are set
+     * @return distance of every cell, y * width + x
+     */
+    public static float[] compute(BitGrid seeds) {
+        float[] distances = new float[seeds.getWidth() * seeds.getHeight()];
+        compute(seeds, distances, VECTORIZED);
+        return distances;
+    }
+
+    /**
+     * Computes the distances into an existing array, for callers who transform many grids of one size.
+     * @param seeds - grid where the cells to measure the distance to are set
+     * @param distances - receives the distance of every cell, it must have room for all cells
+     */
+    public static void compute(BitGrid seeds, float[] distances) {
+        compute(seeds, distances, VECTORIZED);
+    }
+
+    /**
+     * @param vectorized - whether rows are done on the Vector API, which must be present
+     */
+    static void compute(BitGrid seeds, float[] distances, boolean vectorized) {
+        int width = seeds.getWidth(), height = seeds.getHeight();
+        if(distances.length < width * height) {
+            throw new IllegalArgumentException(distances.length + " distances for a grid of " + width * height + " cells");
+        }
+        fillSeeds(seeds, distances);
+
+        for(int y = 0; y < height; y++) {
+            int row = y * width;
+            if(y > 0) relaxFromRow(distances, row, row - width, width, vectorized);
+            int x = vectorized ? Math.max(1, VectorRows.scanRight(distances, row, width)) : 1;
+            for(; x < width; x++) {
+                distances[row + x] = Math.min(distances[row + x], distances[row + x - 1] + 1);
+            }
+        }
+
+        for(int y = height - 1; y >= 0; y--) {
+            int row = y * width;
+            if(y < height - 1) relaxFromRow(distances, row, row + width, width, vectorized);
+            int x = vectorized ? Math.min(width - 2, VectorRows.scanLeft(distances, row, width)) : width - 2;
+            for(; x >= 0; x--) {
+                distances[row + x] = Math.min(distances[row + x], distances[row + x + 1] + 1);
+            }
+        }
+    }
+
+    /**
+     * Sets seeds to 0 and all other cells to infinity, a word of the grid at a time.
+     */
+    private static void fillSeeds(BitGrid seeds, float[] distances) {
+        int width = seeds.getWidth(), wordsPerRow = seeds.getWordsPerRow();
+        long[] words = seeds.getWords();
+        Arrays.fill(distances, 0, width * seeds.getHeight(), Float.POSITIVE_INFINITY);
+        for(int y = 0; y < seeds.getHeight(); y++) {
+            for(int w = 0; w < wordsPerRow; w++) {
+                long word = words[y * wordsPerRow + w];
+                while(word != 0) {
+                    int x = w * 64 + Long.numberOfTrailingZeros(word);
+                    if(x < width) distances[y * width + x] = 0;
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lowers every cell of a row to the distance through the three cells next to it in the row above or below.
+     */
+    private static void relaxFromRow(float[] distances, int row, int neighborRow, int width, boolean vectorized) {
+        distances[row] = Math.min(distances[row], distances[neighborRow] + 1);
+        if(width > 1) {
+            distances[row] = Math.min(distances[row], distances[neighborRow + 1] + DIAGONAL);
+            int last = width - 1;
+            distances[row + last] = Math.min(distances[row + last],
+                    Math.min(distances[neighborRow + last] + 1, distances[neighborRow + last - 1] + DIAGONAL));
+        }
+        int x = vectorized ? VectorRows.relaxFromRow(distances, row, neighborRow, width) : 1;
+        for(; x < width - 1; x++) {
+            float straight = distances[neighborRow + x] + 1;
+            float diagonal = Math.min(distances[neighborRow + x - 1], distances[neighborRow + x + 1]) + DIAGONAL;
+            distances[row + x] = Math.min(distances[row + x], Math.min(straight, diagonal));
+        }
+    }
+
+    /**
+     * @return whether rows are done on the Vector API
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+}
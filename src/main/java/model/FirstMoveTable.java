@@ -0,0 +1,313 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/**
+ * All-pairs first moves of a static map: for every pair of free cells, the direction of the first move of a shortest
+ * path between them. A query follows the first moves from the start to the goal, one table lookup per move, so it
+ * costs time in the length of the path and never searches. Meant for maps of some thousands of cells, since the
+ * preprocessing runs one Dijkstra from every free cell, on all cores.
+ *
+ * Each row of the table, the first moves from one source, is stored with run-length encoding. The targets of a row are
+ * ordered by a depth-first traversal of the free cells, which keeps cells that are close together on the map close in
+ * the order, and such cells are mostly reached by the same first move, so a row has a few runs instead of a move for
+ * every cell. Where several first moves are optimal for a target, the run keeps whichever of them covers the most
+ * targets. The traversal also numbers every connected component as a consecutive range, so a row only covers the
+ * component of its source, and the source itself fits into any run.
+ *
+ * A run is stored as one int, with the order of its first target shifted left by three bits and the move below.
+ */
+public class FirstMoveTable {
+
+    private static final int MOVE_BITS = 3;
+    private static final int MOVE_MASK = (1 << MOVE_BITS) - 1;
+    private static final int ALL_MOVES = (1 << Direction.COUNT) - 1;
+    private static final double EPSILON = 1e-9;
+
+    private final int width;
+    private final int height;
+    private final int[] orderOfCell; // -1 for obstacles
+    private final int[] cellOfOrder;
+    private final int[] componentStart; // for each order, the first order of its component
+    private final int[] firstRun;
+    private final int[] runs;
+
+    private FirstMoveTable(int width, int height, int[] orderOfCell, int[] cellOfOrder, int[] componentStart,
+                           int[] firstRun, int[] runs) {
+        this.width = width;
+        this.height = height;
+        this.orderOfCell = orderOfCell;
+        this.cellOfOrder = cellOfOrder;
+        this.componentStart = componentStart;
+        this.firstRun = firstRun;
+        this.runs = runs;
+    }
+
+    /**
+     * Computes the table of a map, running the searches on the common fork-join pool.
+     * @param obstacles - grid where obstacles are set
+     * @return the table
+     */
+    public static FirstMoveTable build(BitGrid obstacles) {
+        int width = obstacles.getWidth(), height = obstacles.getHeight();
+        int[] orderOfCell = new int[width * height];
+        Arrays.fill(orderOfCell, -1);
+        int[] cellOfOrder = new int[(int) (width * (long) height - obstacles.cardinality())];
+        int[] componentStart = new int[cellOfOrder.length];
+        int[] componentEnd = new int[cellOfOrder.length];
+
+        // iterative depth-first traversal, each cell on the stack remembers the next direction to try
+        int[] stack = new int[cellOfOrder.length];
+        byte[] nextDirection = new byte[width * height];
+        int count = 0;
+        for(int root = 0; root < width * height; root++) {
+            if(orderOfCell[root] >= 0 || obstacles.get(root % width, root / width)) continue;
+            int start = count;
+            orderOfCell[root] = count;
+            cellOfOrder[count++] = root;
+            int top = 0;
+            stack[top++] = root;
+            while(top > 0) {
+                int cell = stack[top - 1];
+                int d = nextDirection[cell];
+                if(d == Direction.COUNT) {
+                    top--;
+                    continue;
+                }
+                nextDirection[cell]++;
+                int nx = cell % width + Direction.dx(d), ny = cell / width + Direction.dy(d);
+                if(!obstacles.contains(nx, ny) || obstacles.get(nx, ny)) continue;
+                int neighbor = ny * width + nx;
+                if(orderOfCell[neighbor] >= 0) continue;
+                orderOfCell[neighbor] = count;
+                cellOfOrder[count++] = neighbor;
+                stack[top++] = neighbor;
+            }
+            Arrays.fill(componentStart, start, count, start);
+            Arrays.fill(componentEnd, start, count, count);
+        }
+
+        int numNodes = cellOfOrder.length;
+        // searches not in use by a thread, dropped together with this queue when the build is done
+        ConcurrentLinkedQueue<RowSearch> idleSearches = new ConcurrentLinkedQueue<>();
+        int[][] rows = new int[numNodes][];
+        IntStream.range(0, numNodes).parallel().forEach(source -> {
+            RowSearch search = idleSearches.poll();
+            if(search == null) search = new RowSearch(obstacles, orderOfCell, cellOfOrder, componentStart, componentEnd);
+            rows[source] = search.encodeRow(source);
+            idleSearches.offer(search);
+        });
+
+        int[] firstRun = new int[numNodes + 1];
+        for(int source = 0; source < numNodes; source++) {
+            firstRun[source + 1] = firstRun[source] + rows[source].length;
+        }
+        int[] runs = new int[firstRun[numNodes]];
+        for(int source = 0; source < numNodes; source++) {
+            System.arraycopy(rows[source], 0, runs, firstRun[source], rows[source].length);
+        }
+        return new FirstMoveTable(width, height, orderOfCell, cellOfOrder, componentStart, firstRun, runs);
+    }
+
+    /**
+     * @return the arrays of the table, for {@link ArtifactStore}
+     */
+    ArtifactStore.Sections toSections() {
+        return new ArtifactStore.Sections().add(new int[]{width, height}).add(orderOfCell).add(cellOfOrder)
+                .add(componentStart).add(firstRun).add(runs);
+    }
+
+    /**
+     * Recreates a table from the arrays written by {@link #toSections()}.
+     */
+    static FirstMoveTable fromSections(ArtifactStore.Sections sections) {
+        int[] sizes = sections.getInts(0);
+        return new FirstMoveTable(sizes[0], sizes[1], sections.getInts(1), sections.getInts(2), sections.getInts(3),
+                sections.getInts(4), sections.getInts(5));
+    }
+
+    /**
+     * Finds the first move of a shortest path between two cells.
+     * @return the direction of the move, or -1 if the cells are the same or there is no path
+     */
+    public int getFirstMove(int startX, int startY, int endX, int endY) {
+        if(!contains(startX, startY) || !contains(endX, endY)) return -1;
+        int source = orderOfCell[startY * width + startX], target = orderOfCell[endY * width + endX];
+        if(source < 0 || target < 0 || source == target || componentStart[source] != componentStart[target]) return -1;
+        return getMove(source, target);
+    }
+
+    /**
+     * Walks the first moves from the start to the goal.
+     *
+     * @param startX - start x coordinate
+     * @param startY - start y coordinate
+     * @param endX - end x coordinate
+     * @param endY - end y coordinate
+     * @return the path, or {@link SearchStatus#UNREACHABLE}. No nodes are expanded, so the expansions are always 0
+     */
+    public PathResult findPath(int startX, int startY, int endX, int endY) {
+        if(!contains(startX, startY) || !contains(endX, endY)) return PathResult.of(SearchStatus.UNREACHABLE, 0);
+        int current = orderOfCell[startY * width + startX], target = orderOfCell[endY * width + endX];
+        if(current < 0 || target < 0 || componentStart[current] != componentStart[target]) {
+            return PathResult.of(SearchStatus.UNREACHABLE, 0);
+        }
+
+        int[] cells = new int[64];
+        int size = 0;
+        cells[size++] = cellOfOrder[current];
+        while(current != target) {
+            int cell = cellOfOrder[current];
+            int d = getMove(current, target);
+            cell += Direction.dy(d) * width + Direction.dx(d);
+            if(size == cells.length) cells = Arrays.copyOf(cells, size * 2);
+            if(size > cellOfOrder.length) {
+                throw new IllegalStateException("First moves from order " + current + " do not lead to order " + target);
+            }
+            cells[size++] = cell;
+            current = orderOfCell[cell];
+        }
+        GridPath path = new GridPath(width, cells, size);
+        return new PathResult(SearchStatus.FOUND, path, path.getLength(), 0);
+    }
+
+    /**
+     * Looks up the run of a row which covers a target, by binary search over the starts of the runs.
+     */
+    private int getMove(int source, int target) {
+        int low = firstRun[source], high = firstRun[source + 1] - 1;
+        while(low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if(runs[middle] >>> MOVE_BITS <= target) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return runs[low] & MOVE_MASK;
+    }
+
+    private boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return number of free cells, which is the number of rows of the table
+     */
+    public int getNumNodes() {
+        return cellOfOrder.length;
+    }
+
+    public int getNumRuns() {
+        return runs.length;
+    }
+
+    /**
+     * @return bytes of the arrays of the table
+     */
+    public long getMemoryBytes() {
+        return 4L * (orderOfCell.length + cellOfOrder.length + componentStart.length + firstRun.length + runs.length);
+    }
+
+    /**
+     * Dijkstra from one source over the free cells, numbered by their order, used by one thread at a time.
+     */
+    private static final class RowSearch {
+
+        private final BitGrid obstacles;
+        private final int width;
+        private final int[] orderOfCell;
+        private final int[] cellOfOrder;
+        private final int[] componentStart;
+        private final int[] componentEnd;
+
+        private final double[] dist;
+        private final int[] mark;
+        private final int[] firstMoves; // bit d is set when a shortest path starts with a move in direction d
+        private final IndexedMinHeap open;
+        private int[] row = new int[64];
+        private int query;
+
+        RowSearch(BitGrid obstacles, int[] orderOfCell, int[] cellOfOrder, int[] componentStart, int[] componentEnd) {
+            this.obstacles = obstacles;
+            this.width = obstacles.getWidth();
+            this.orderOfCell = orderOfCell;
+            this.cellOfOrder = cellOfOrder;
+            this.componentStart = componentStart;
+            this.componentEnd = componentEnd;
+            int numNodes = cellOfOrder.length;
+            dist = new double[numNodes];
+            mark = new int[numNodes];
+            firstMoves = new int[numNodes];
+            open = new IndexedMinHeap(numNodes);
+        }
+
+        /**
+         * Searches from a source and encodes its first moves over the targets of its component.
+         * @param source - order of the source
+         * @return the runs of the row
+         */
+        int[] encodeRow(int source) {
+            query++;
+            mark[source] = query;
+            dist[source] = 0;
+            open.addOrUpdate(source, 0);
+            while(!open.isEmpty()) {
+                int node = open.poll();
+                double nodeDist = dist[node];
+                int cell = cellOfOrder[node];
+                int x = cell % width, y = cell / width;
+                for(int d = 0; d < Direction.COUNT; d++) {
+                    int nx = x + Direction.dx(d), ny = y + Direction.dy(d);
+                    if(!obstacles.contains(nx, ny) || obstacles.get(nx, ny)) continue;
+                    int next = orderOfCell[ny * width + nx];
+                    double nextDist = nodeDist + Direction.cost(d);
+                    int moves = node == source ? 1 << d : firstMoves[node];
+                    if(mark[next] != query || nextDist < dist[next] - EPSILON) {
+                        mark[next] = query;
+                        dist[next] = nextDist;
+                        firstMoves[next] = moves;
+                        open.addOrUpdate(next, nextDist);
+                    } else if(nextDist <= dist[next] + EPSILON) {
+                        firstMoves[next] |= moves;
+                    }
+                }
+            }
+
+            // a run goes on while some move is optimal for all of its targets, the source itself fits any run
+            int start = componentStart[source], end = componentEnd[source];
+            int size = 0;
+            int runStart = start, runMoves = ALL_MOVES;
+            for(int target = start; target < end; target++) {
+                if(target == source) continue;
+                if((runMoves & firstMoves[target]) != 0) {
+                    runMoves &= firstMoves[target];
+                    continue;
+                }
+                size = addRun(size, runStart, runMoves);
+                runStart = target;
+                runMoves = firstMoves[target];
+            }
+            size = addRun(size, runStart, runMoves);
+            return Arrays.copyOf(row, size);
+        }
+
+        private int addRun(int size, int runStart, int runMoves) {
+            if(size == row.length) row = Arrays.copyOf(row, size * 2);
+            row[size] = runStart << MOVE_BITS | Integer.numberOfTrailingZeros(runMoves);
+            return size + 1;
+        }
+    }
+}
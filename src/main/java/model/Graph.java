@@ -1,63 +1,177 @@
 package model;
 
 import java.util.ArrayList;
-import java.util.Optional;
+import java.util.Arrays;
 
 /**
- * Representation of a graph, which consists of a list of nodes where each node has a reference to its neighbors.
+ * Representation of a grid graph. Nodes are stored by their cell index y * width + x, and the connectivity of each
+ * cell is stored as a neighbor mask of one byte, where bit d is set if the neighbor in {@link Direction} d is inside
+ * the grid and not an obstacle.
  */
 public class Graph {
 
     // width and height of grid graph
-    private static int WIDTH;
-    private static int HEIGHT;
+    private final int WIDTH;
+    private final int HEIGHT;
     private ArrayList<Node> nodes;
+    private final Node[] nodesByIndex;
+    private final byte[] neighborMasks;
+    private final BitGrid obstacleGrid;
+    private boolean neighborsInitialized;
+    private ConnectivityIndex connectivity;
+    // false once the nodes have been replaced, until the obstacles of the index have been compared with the grid
+    private boolean connectivityChecked;
 
     public Graph() {
-        WIDTH = 30;
-        HEIGHT = 30;
+        this(30, 30);
+    }
+
+    public Graph(int width, int height) {
+        WIDTH = width;
+        HEIGHT = height;
         nodes = new ArrayList<>();
+        nodesByIndex = new Node[width * height];
+        neighborMasks = new byte[width * height];
+        obstacleGrid = new BitGrid(width, height);
     }
 
     /**
-     * Initializes adjacency lists.
+     * Initializes the neighbor masks of all nodes, in time linear in the number of nodes.
+     * Must be called after obstacles have been changed directly on the nodes rather than through {@link #setObstacle}.
      */
     public void initNeighbors() {
-
+        connectivityChecked = false;
+        obstacleGrid.fill(false);
         for(Node node : nodes) {
-                if(node.getState() == NodeState.OBSTACLE) continue;
-                ArrayList<Node> neighbors = new ArrayList<>();
+            if(node.getState() == NodeState.OBSTACLE) {
+                obstacleGrid.set(node.getXCoordinate(), node.getYCoordinate(), true);
+            }
+        }
+        for(int y = 0; y < HEIGHT; y++) {
+            for(int x = 0; x < WIDTH; x++) {
+                updateNeighborMask(x, y);
+            }
+        }
+        neighborsInitialized = true;
+    }
 
-                int x = node.getXCoordinate();
-                int y = node.getYCoordinate();
-                for(int i = x - 1; i < x + 2; i++) {
-                    for(int j = y - 1; j < y + 2; j++) {
+    /**
+     * Recomputes the neighbor mask of a single cell.
+     */
+    private void updateNeighborMask(int x, int y) {
+        int index = y * WIDTH + x;
+        if(isObstacle(x, y)) {
+            neighborMasks[index] = 0;
+            return;
+        }
+        int mask = 0;
+        for(int d = 0; d < Direction.COUNT; d++) {
+            int i = x + Direction.dx(d), j = y + Direction.dy(d);
 
-                        // if coordinate (i, j) is out of bounds, equal to (x, y) or if it's an obstacle then skip
-                        if(isOutOfBounds(i, j) || (i == x && j == y) || getNodeByCoordinate(i, j).getState() == NodeState.OBSTACLE) continue;
+            // if coordinate (i, j) is out of bounds or if it's an obstacle then skip
+            if(isOutOfBounds(i, j) || isObstacle(i, j)) continue;
+            mask |= 1 << d;
+        }
+        neighborMasks[index] = (byte) mask;
+    }
+
+    private boolean isObstacle(int x, int y) {
+        Node node = nodesByIndex[y * WIDTH + x];
+        return node != null && node.getState() == NodeState.OBSTACLE;
+    }
 
-                        int xNeighbor = i;
-                        int yNeighbor = j;
+    /**
+     * Adds or removes an obstacle. Only the neighbor masks in the 3x3 neighborhood of the cell are updated.
+     *
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @param obstacle - whether the cell should become an obstacle or a free cell
+     */
+    public void setObstacle(int x, int y, boolean obstacle) {
+        Node node = getNodeByCoordinate(x, y);
+        if(node == null) return;
 
-                        neighbors.add(
-                                getNodeByCoordinate(xNeighbor, yNeighbor)
-                        );
-                    }
+        node.setState(obstacle ? NodeState.OBSTACLE : NodeState.UNVISITED);
+        obstacleGrid.set(x, y, obstacle);
+        if(connectivity != null) {
+            connectivity.setObstacle(x, y, obstacle);
+        }
+        if(!neighborsInitialized) return;
+
+        for(int j = y - 1; j < y + 2; j++) {
+            for(int i = x - 1; i < x + 2; i++) {
+                if(!isOutOfBounds(i, j)) updateNeighborMask(i, j);
+            }
+        }
+    }
+
+    /**
+     * Applies a batch of edits in one pass, in the order they were made. The neighbor masks around every edited cell
+     * and the connectivity index are updated as in {@link #setObstacle}. Most edits only look at the eight cells
+     * around them, a flood fill is needed where a new obstacle meets other obstacles in a way which may split a
+     * component. Once the flood fills of a batch have relabeled as many cells as the grid has, the index is dropped
+     * instead and built again on the next query, since building it costs about that much.
+     * @param edits - the edits, which are left as they are
+     */
+    public void applyEdits(ObstacleEdits edits) {
+        if(edits.getWidth() != WIDTH || edits.getHeight() != HEIGHT) {
+            throw new IllegalArgumentException("Edits are for a " + edits.getWidth() + "x" + edits.getHeight()
+                    + " grid but the graph is " + WIDTH + "x" + HEIGHT);
+        }
+        if(edits.isEmpty()) return;
+
+        long floodBudget = (long) WIDTH * HEIGHT;
+        for(int i = 0; i < edits.size(); i++) {
+            int index = edits.getCell(i);
+            Node node = nodesByIndex[index];
+            if(node == null) continue;
+
+            int x = index % WIDTH, y = index / WIDTH;
+            boolean obstacle = edits.isObstacle(i);
+            node.setState(obstacle ? NodeState.OBSTACLE : NodeState.UNVISITED);
+            obstacleGrid.set(x, y, obstacle);
+            if(connectivity != null) {
+                floodBudget -= connectivity.setObstacle(x, y, obstacle);
+                if(floodBudget < 0) connectivity = null;
+            }
+            if(!neighborsInitialized) continue;
+
+            for(int j = Math.max(0, y - 1); j < Math.min(HEIGHT, y + 2); j++) {
+                for(int k = Math.max(0, x - 1); k < Math.min(WIDTH, x + 2); k++) {
+                    updateNeighborMask(k, j);
                 }
-                node.setNeighbors(neighbors);
+            }
         }
     }
 
+    /**
+     * Determines in constant time whether there can be a path between two points, by comparing their components in
+     * the connectivity index. The index is built on first use and kept up to date by the edits. When the
+     * nodes have been replaced, as every algorithm does before it searches, the index is kept if the obstacles are
+     * still the same, which takes one comparison of the obstacle grids, and only built again otherwise.
+     * @param start - start point
+     * @param end - end point
+     * @return false if there is guaranteed to be no path, for example when a point is an obstacle or out of bounds
+     */
+    public boolean isReachable(Point start, Point end) {
+        if(connectivity == null || (!connectivityChecked && !connectivity.hasObstacles(obstacleGrid))) {
+            connectivity = new ConnectivityIndex(obstacleGrid);
+        }
+        connectivityChecked = true;
+        return connectivity.isConnected(start.x, start.y, end.x, end.y);
+    }
+
     /**
      * Method is used when a new graph should be created, but with the obstacles of a previous one.
      * @return - a two-dimensional array where obstacles are marked.
      */
     public boolean[][] getClonedObstacleMap() {
         boolean[][] obstacleMap = new boolean[WIDTH][HEIGHT];
-        getObstacleNodes().forEach(n ->
-                obstacleMap[n.getXCoordinate()][n.getYCoordinate()] = true
-        );
-
+        for(Node n : nodes) {
+            if(n.getState() == NodeState.OBSTACLE) {
+                obstacleMap[n.getXCoordinate()][n.getYCoordinate()] = true;
+            }
+        }
         return obstacleMap;
     }
 
@@ -81,23 +195,87 @@ public class Graph {
         return HEIGHT;
     }
 
+    public int indexOf(int x, int y) {
+        return y * WIDTH + x;
+    }
+
+    public int indexOf(Node node) {
+        return node.getYCoordinate() * WIDTH + node.getXCoordinate();
+    }
+
+    /**
+     * @param index - index of a cell
+     * @param direction - a {@link Direction}
+     * @return index of the neighboring cell in given direction, only valid if the neighbor is inside the grid
+     */
+    public int getNeighborIndex(int index, int direction) {
+        return index + Direction.dy(direction) * WIDTH + Direction.dx(direction);
+    }
+
+    /**
+     * @param index - index of a cell
+     * @return the neighbor mask of the cell, with bit d set when the neighbor in direction d can be moved to
+     */
+    public int getNeighborMask(int index) {
+        if(!neighborsInitialized) {
+            initNeighbors();
+        }
+        return neighborMasks[index] & 0xFF;
+    }
+
+    public Node getNode(int index) {
+        return nodesByIndex[index];
+    }
+
+    /**
+     * @return grid where the obstacles are set, kept up to date by the graph, so it must not be changed and should
+     * be copied if it is kept
+     */
+    public BitGrid getObstacleGrid() {
+        return obstacleGrid;
+    }
+
+    /**
+     * @return the connectivity index used by {@link #isReachable}, or null if it has not been built
+     */
+    public ConnectivityIndex getConnectivity() {
+        return connectivity;
+    }
+
     public ArrayList<Node> getObstacleNodes() {
-        return new ArrayList<>(
-                nodes.stream().filter(n -> n.getState() == NodeState.OBSTACLE).toList()
-        );
+        return getNodesInState(NodeState.OBSTACLE);
     }
 
     public ArrayList<Node> getVisitedNodes() {
-        return new ArrayList<>(
-                nodes.stream().filter(n -> n.getState() == NodeState.VISITED).toList()
-        );
+        return getNodesInState(NodeState.VISITED);
     }
 
+    /**
+     * Collects the nodes in a state with a plain loop, which only allocates the list itself.
+     */
+    private ArrayList<Node> getNodesInState(NodeState state) {
+        ArrayList<Node> list = new ArrayList<>();
+        for(Node node : nodes) {
+            if(node.getState() == state) list.add(node);
+        }
+        return list;
+    }
+
+    /**
+     * Builds a list of the neighbors of a node from its neighbor mask. Search loops should iterate the bits of
+     * {@link #getNeighborMask(int)} instead, which does not allocate.
+     * @param node - the node to get neighbors for
+     * @return list of neighbors which are not obstacles
+     */
     public ArrayList<Node> getNeighborsFromNode(Node node) {
-        int idx = nodes.indexOf(node);
-        if(idx == -1) return new ArrayList<>();
+        ArrayList<Node> neighbors = new ArrayList<>();
+        if(isOutOfBounds(node.getXCoordinate(), node.getYCoordinate())) return neighbors;
 
-        return nodes.get(idx).getNeighbors();
+        int index = indexOf(node);
+        for(int mask = getNeighborMask(index); mask != 0; mask &= mask - 1) {
+            neighbors.add(nodesByIndex[getNeighborIndex(index, Integer.numberOfTrailingZeros(mask))]);
+        }
+        return neighbors;
     }
 
     public ArrayList<Node> getNodes() {
@@ -106,29 +284,34 @@ public class Graph {
 
     public void addNode(Node node) {
         nodes.add(node);
+        nodesByIndex[indexOf(node)] = node;
+        obstacleGrid.set(node.getXCoordinate(), node.getYCoordinate(), node.getState() == NodeState.OBSTACLE);
+        neighborsInitialized = false;
+        connectivityChecked = false;
     }
 
     public Node getNodeByCoordinate(int x, int y) {
-        Optional<Node> optNode = getNodes().stream().filter(
-                n -> x == n.getXCoordinate() && y == n.getYCoordinate()
-        ).findFirst();
-        if(optNode.isEmpty()) {
+        Node node = isOutOfBounds(x, y) ? null : nodesByIndex[y * WIDTH + x];
+        if(node == null) {
             System.out.println("Node could not be found");
-            return null;
         }
-        return optNode.get();
+        return node;
     }
 
     public void populateEmpty() {
 
         for(int x = 0; x < WIDTH; x++) {
             for(int y = 0; y < HEIGHT; y++) {
-                nodes.add(new Node(x, y));
+                addNode(new Node(x, y));
             }
         }
     }
 
     public void reset() {
         nodes = new ArrayList<>();
+        Arrays.fill(nodesByIndex, null);
+        obstacleGrid.fill(false);
+        neighborsInitialized = false;
+        connectivityChecked = false;
     }
 }
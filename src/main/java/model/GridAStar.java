@@ -0,0 +1,111 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A* on a bit-packed obstacle grid, with all search state in a {@link SearchWorkspace} supplied by the caller.
+ * The engine itself never changes after construction, so one instance can serve queries from any number of threads
+ * as long as every thread uses its own workspace.
+ *
+ * Distances are summed as floats in the workspace, so the path found is the shortest up to their rounding error, see
+ * {@link SearchWorkspace}: on large maps it can be marginally longer than the shortest one. The length reported with
+ * a path is summed again in double precision along that path, so it is the exact length of the returned path, not
+ * necessarily the shortest distance.
+ */
+public class GridAStar {
+
+    private final BitGrid obstacles;
+    private final int width;
+    private final int height;
+
+    /**
+     * @param obstacles - grid where obstacles are set, it must not be changed while the engine is in use
+     */
+    public GridAStar(BitGrid obstacles) {
+        this.obstacles = obstacles;
+        width = obstacles.getWidth();
+        height = obstacles.getHeight();
+    }
+
+    /**
+     * Finds a shortest 8-connected path between two cells, up to the rounding of float distances.
+     *
+     * @param startX - start x coordinate
+     * @param startY - start y coordinate
+     * @param endX - end x coordinate
+     * @param endY - end y coordinate
+     * @param workspace - search state of the calling thread
+     * @return the result, which is {@link SearchStatus#UNREACHABLE} when there is no path
+     */
+    public PathResult findPath(int startX, int startY, int endX, int endY, SearchWorkspace workspace) {
+        SearchStatus status = search(startX, startY, endX, endY, workspace);
+        if(status != SearchStatus.FOUND) {
+            return PathResult.of(status, workspace.getExpansions());
+        }
+        // distances are stored as floats, the length of the returned path is summed again in double precision
+        int size = workspace.getPathSize();
+        GridPath path = new GridPath(width, Arrays.copyOf(workspace.getPathCells(), size), size);
+        return new PathResult(status, path, path.getLength(), workspace.getExpansions());
+    }
+
+    /**
+     * Finds the shortest 8-connected path between two cells and leaves it in the workspace, see
+     * {@link SearchWorkspace#getPathCells()}. Once the workspace has grown to the grid and the longest path, a search
+     * allocates nothing, which makes this the method for callers who run many queries on one thread.
+     *
+     * @param startX - start x coordinate
+     * @param startY - start y coordinate
+     * @param endX - end x coordinate
+     * @param endY - end y coordinate
+     * @param workspace - search state of the calling thread, which receives the path
+     * @return {@link SearchStatus#FOUND}, or {@link SearchStatus#UNREACHABLE} when there is no path
+     */
+    public SearchStatus search(int startX, int startY, int endX, int endY, SearchWorkspace workspace) {
+        if(!isFree(startX, startY) || !isFree(endX, endY)) {
+            workspace.finish(-1, 0);
+            return SearchStatus.UNREACHABLE;
+        }
+        workspace.prepare(width * height);
+
+        int start = startY * width + startX;
+        int goal = endY * width + endX;
+        workspace.reach(start, 0, -1);
+        workspace.pushOpen(start, (float) PathAlgorithm.getOctileDistance(startX, startY, endX, endY));
+
+        int expansions = 0;
+        while(!workspace.isOpenEmpty()) {
+            int current = workspace.pollOpen();
+            workspace.close(current);
+            expansions++;
+            if(current == goal) {
+                workspace.finish(goal, expansions);
+                return SearchStatus.FOUND;
+            }
+
+            int x = current % width, y = current / width;
+            float currentDist = workspace.getDist(current);
+            for(int d = 0; d < Direction.COUNT; d++) {
+                int nx = x + Direction.dx(d), ny = y + Direction.dy(d);
+                if(!isFree(nx, ny)) continue;
+                int neighbor = ny * width + nx;
+                if(workspace.isClosed(neighbor)) continue;
+
+                float distance = currentDist + (float) Direction.cost(d);
+                if(distance < workspace.getDist(neighbor)) {
+                    workspace.reach(neighbor, distance, current);
+                    workspace.pushOpen(neighbor, distance + (float) PathAlgorithm.getOctileDistance(nx, ny, endX, endY));
+                }
+            }
+        }
+        workspace.finish(-1, expansions);
+        return SearchStatus.UNREACHABLE;
+    }
+
+    private boolean isFree(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height && !obstacles.get(x, y);
+    }
+
+    public BitGrid getObstacles() {
+        return obstacles;
+    }
+}
@@ -0,0 +1,270 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bit-packed map file. The file starts with a 16 byte header (magic, version, width, height) followed by the rows of
+ * the grid, where each row is stored as little-endian 64-bit words laid out exactly like a row of a {@link BitGrid}.
+ * Since every row has the same size, any row can be read without reading the rows before it.
+ */
+public class GridMapFile implements Closeable {
+
+    public static final int MAGIC = 0x44495247; // "GRID" in little-endian
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+
+    private GridMapFile(FileChannel channel, int width, int height) {
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+        wordsPerRow = (width + 63) >>> 6;
+    }
+
+    /**
+     * Opens a map file for reading.
+     * @param path - path to the map file
+     * @return the opened map file
+     * @throws IOException if the file can't be read or is not a map file
+     */
+    public static GridMapFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            header.flip();
+            if(header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a version " + VERSION + " map file: " + path);
+            }
+            int width = header.getInt();
+            int height = header.getInt();
+            long expectedSize = HEADER_BYTES + (long) ((width + 63) >>> 6) * 8 * height;
+            if(width <= 0 || height <= 0 || channel.size() < expectedSize) {
+                throw new IOException("Map file is truncated or corrupt: " + path);
+            }
+            return new GridMapFile(channel, width, height);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a writer which receives the rows of a map, in order, and writes them to the given path.
+     *
+     * @param path - the file to write, it is replaced if it exists
+     * @param width - width of the map
+     * @param height - height of the map
+     * @return a writer which must be closed once all rows have been written
+     * @throws IOException if the file can't be created
+     */
+    public static Writer writer(Path path, int width, int height) throws IOException {
+        return new Writer(path, width, height);
+    }
+
+    /**
+     * Writes a whole grid to a map file.
+     * @param path - the file to write
+     * @param grid - the grid to write
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path path, BitGrid grid) throws IOException {
+        try(Writer writer = writer(path, grid.getWidth(), grid.getHeight())) {
+            long[] row = new long[grid.getWordsPerRow()];
+            for(int y = 0; y < grid.getHeight(); y++) {
+                System.arraycopy(grid.getWords(), y * row.length, row, 0, row.length);
+                writer.acceptRow(y, row);
+            }
+        }
+    }
+
+    /**
+     * Encodes a grid in the map file format, for sending a map without going through a file.
+     * @param grid - the grid to encode
+     * @return the header followed by the rows
+     */
+    public static byte[] toBytes(BitGrid grid) {
+        long[] words = grid.getWords();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + words.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(grid.getWidth()).putInt(grid.getHeight());
+        buffer.asLongBuffer().put(words);
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a grid in the map file format.
+     * @param data - the header followed by the rows
+     * @return the decoded grid
+     * @throws IllegalArgumentException if the data is not a complete map
+     */
+    public static BitGrid fromBytes(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        if(data.length < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IllegalArgumentException("Not a version " + VERSION + " map");
+        }
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        if(width <= 0 || height <= 0 || data.length != HEADER_BYTES + (long) ((width + 63) >>> 6) * 8 * height) {
+            throw new IllegalArgumentException("Map of " + width + "x" + height + " doesn't match " + data.length + " bytes");
+        }
+        BitGrid grid = new BitGrid(width, height);
+        long[] words = grid.getWords();
+        buffer.asLongBuffer().get(words);
+
+        // clear the bits past the last column of each row
+        int wordsPerRow = grid.getWordsPerRow();
+        long lastMask = (width & 63) == 0 ? -1L : (1L << (width & 63)) - 1;
+        for(int y = 0; y < height; y++) {
+            words[y * wordsPerRow + wordsPerRow - 1] &= lastMask;
+        }
+        return grid;
+    }
+
+    /**
+     * Reads a row of the map.
+     * @param y - the row to read
+     * @param dst - array of at least {@link #getWordsPerRow()} words which receives the row
+     * @throws IOException if the row can't be read
+     */
+    public void readRow(int y, long[] dst) throws IOException {
+        readWords(y, 0, wordsPerRow, dst, 0);
+    }
+
+    /**
+     * Reads a range of words from a row of the map.
+     *
+     * @param y - the row to read from
+     * @param firstWord - index of the first word within the row
+     * @param numWords - number of words to read
+     * @param dst - array receiving the words
+     * @param offset - position in dst where the first word is stored
+     * @throws IOException if the words can't be read
+     */
+    public void readWords(int y, int firstWord, int numWords, long[] dst, int offset) throws IOException {
+        if(y < 0 || y >= height || firstWord < 0 || firstWord + numWords > wordsPerRow) {
+            throw new IndexOutOfBoundsException("Row " + y + ", words " + firstWord + "+" + numWords);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(numWords * 8).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, buffer, HEADER_BYTES + ((long) y * wordsPerRow + firstWord) * 8);
+        buffer.flip();
+        buffer.asLongBuffer().get(dst, offset, numWords);
+    }
+
+    /**
+     * Reads the whole map into memory.
+     * @return a grid containing the map
+     * @throws IOException if the map can't be read
+     */
+    public BitGrid readGrid() throws IOException {
+        BitGrid grid = new BitGrid(width, height);
+        for(int y = 0; y < height; y++) {
+            readWords(y, 0, wordsPerRow, grid.getWords(), y * wordsPerRow);
+        }
+        return grid;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if(read < 0) {
+                throw new IOException("Unexpected end of map file");
+            }
+            position += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * Streams rows to a map file through a fixed size buffer, so memory use only depends on the width of the map.
+     * Errors while writing are thrown as {@link UncheckedIOException} since rows arrive through {@link RowSink}.
+     */
+    public static class Writer implements RowSink, Closeable {
+
+        private static final int BUFFER_BYTES = 1 << 20;
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final int wordsPerRow;
+        private final int height;
+        private int nextRow;
+
+        private Writer(Path path, int width, int height) throws IOException {
+            if(width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("Map dimensions must be positive: " + width + "x" + height);
+            }
+            this.height = height;
+            wordsPerRow = (width + 63) >>> 6;
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_BYTES, wordsPerRow * 8)).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height);
+        }
+
+        @Override
+        public void acceptRow(int y, long[] words) {
+            if(y != nextRow) {
+                throw new IllegalStateException("Expected row " + nextRow + " but got row " + y);
+            }
+            try {
+                if(buffer.remaining() < wordsPerRow * 8) {
+                    flush();
+                }
+                for(int i = 0; i < wordsPerRow; i++) {
+                    buffer.putLong(words[i]);
+                }
+                nextRow++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                if(nextRow != height) {
+                    throw new IOException("Map file was closed after " + nextRow + " of " + height + " rows");
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
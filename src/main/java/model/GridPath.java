@@ -0,0 +1,308 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact path representation, stored as the cell indices (y * width + x) of the path from start to end in a
+ * primitive array instead of a list of nodes.
+ *
+ * Paths where consecutive cells are neighbors can also be encoded as their moves: either packed with 3 bits per move,
+ * or run-length encoded where every straight run of moves takes a single varint of (length - 1) * 8 + direction.
+ */
+public class GridPath {
+
+    private static final int MOVES_PER_WORD = 21;
+
+    private final int width;
+    private final int[] cells;
+    private final int size;
+
+    /**
+     * Wraps an array of cell indices without copying it.
+     * @param width - width of the grid the cell indices refer to
+     * @param cells - cell indices from start to end
+     * @param size - number of cells of the array which belong to the path
+     */
+    public GridPath(int width, int[] cells, int size) {
+        if(size < 0 || size > cells.length) {
+            throw new IllegalArgumentException("Size " + size + " is outside of the array");
+        }
+        this.width = width;
+        this.cells = cells;
+        this.size = size;
+    }
+
+    /**
+     * Creates a path from a list of nodes.
+     * @param width - width of the grid
+     * @param nodes - the nodes of the path
+     * @param reversed - whether the list goes from end to start, like {@link PathAlgorithm#getPath()} does
+     * @return the path from start to end
+     */
+    public static GridPath of(int width, List<Node> nodes, boolean reversed) {
+        int[] cells = new int[nodes.size()];
+        for(int i = 0; i < cells.length; i++) {
+            Node node = nodes.get(reversed ? cells.length - 1 - i : i);
+            cells[i] = node.getYCoordinate() * width + node.getXCoordinate();
+        }
+        return new GridPath(width, cells, cells.length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getCell(int i) {
+        return cells[i];
+    }
+
+    public int getX(int i) {
+        return cells[i] % width;
+    }
+
+    public int getY(int i) {
+        return cells[i] / width;
+    }
+
+    /**
+     * @return a read-only view of the cell indices, which shares the array of the path
+     */
+    public IntBuffer asIntBuffer() {
+        return IntBuffer.wrap(cells, 0, size).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a copy of the cell indices
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(cells, size);
+    }
+
+    /**
+     * Computes the length of the path, where consecutive cells are connected by straight lines.
+     * @return the length of the path
+     */
+    public double getLength() {
+        return getLength(width, cells, size);
+    }
+
+    /**
+     * Computes the length of a path given as cell indices, without wrapping them in a path.
+     * @param width - width of the grid
+     * @param cells - cell indices from start to end
+     * @param size - number of cells of the array which belong to the path
+     * @return the length of the path
+     */
+    public static double getLength(int width, int[] cells, int size) {
+        double length = 0;
+        for(int i = 1; i < size; i++) {
+            int dx = cells[i] % width - cells[i - 1] % width, dy = cells[i] / width - cells[i - 1] / width;
+            length += (Math.abs(dx) <= 1 && Math.abs(dy) <= 1)
+                    ? (dx != 0 && dy != 0 ? Direction.DIAGONAL_COST : Math.abs(dx + dy))
+                    : Math.hypot(dx, dy);
+        }
+        return length;
+    }
+
+    /**
+     * Finds the {@link Direction} of the move from cell i - 1 to cell i.
+     * @throws IllegalStateException if the two cells are not neighbors
+     */
+    public int getMove(int i) {
+        int direction = Direction.of(getX(i) - getX(i - 1), getY(i) - getY(i - 1));
+        if(direction < 0) {
+            throw new IllegalStateException("Cells " + (i - 1) + " and " + i + " of the path are not neighbors");
+        }
+        return direction;
+    }
+
+    /**
+     * Packs the moves of the path with 3 bits per move, 21 moves per word, starting at the lowest bits.
+     * @return the packed moves, the number of moves is size() - 1
+     */
+    public long[] toPackedMoves() {
+        int numMoves = Math.max(0, size - 1);
+        long[] packed = new long[(numMoves + MOVES_PER_WORD - 1) / MOVES_PER_WORD];
+        for(int i = 0; i < numMoves; i++) {
+            packed[i / MOVES_PER_WORD] |= (long) getMove(i + 1) << (3 * (i % MOVES_PER_WORD));
+        }
+        return packed;
+    }
+
+    /**
+     * Creates a path from packed moves.
+     *
+     * @param width - width of the grid
+     * @param startCell - cell index of the start of the path
+     * @param packed - the moves, packed by {@link #toPackedMoves()}
+     * @param numMoves - number of moves
+     * @return the path
+     */
+    public static GridPath fromPackedMoves(int width, int startCell, long[] packed, int numMoves) {
+        int[] cells = new int[numMoves + 1];
+        cells[0] = startCell;
+        for(int i = 0; i < numMoves; i++) {
+            int direction = (int) (packed[i / MOVES_PER_WORD] >>> (3 * (i % MOVES_PER_WORD))) & 7;
+            cells[i + 1] = cells[i] + Direction.dy(direction) * width + Direction.dx(direction);
+        }
+        return new GridPath(width, cells, cells.length);
+    }
+
+    /**
+     * Serializes the path as varints: the number of cells, the start cell, the number of runs, and then one varint per
+     * run of moves in the same direction, holding (run length - 1) * 8 + direction. An empty path is a single zero
+     * byte, the number of cells.
+     * @return the encoded path
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if(size == 0) {
+            out.write(0);
+            return out.toByteArray();
+        }
+
+        int numRuns = 0;
+        for(int i = 1; i < size; i++) {
+            if(i == 1 || getMove(i) != getMove(i - 1)) numRuns++;
+        }
+        writeVarint(out, size);
+        writeVarint(out, cells[0]);
+        writeVarint(out, numRuns);
+
+        int i = 1;
+        while(i < size) {
+            int direction = getMove(i);
+            int runLength = 1;
+            while(i + runLength < size && getMove(i + runLength) == direction) {
+                runLength++;
+            }
+            writeVarint(out, ((long) (runLength - 1) << 3) | direction);
+            i += runLength;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a path serialized by {@link #encode()}.
+     * @param width - width of the grid
+     * @param data - the encoded path
+     * @return the path
+     * @throws IllegalArgumentException if the data is truncated, has bytes after the path, or its runs do not add up
+     * to the number of cells
+     */
+    public static GridPath decode(int width, byte[] data) {
+        int[] position = {0};
+        long size = readVarint(data, position);
+        if(size < 0 || size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Encoded path claims " + size + " cells");
+        }
+        if(size == 0) {
+            checkEnd(data, position);
+            return new GridPath(width, new int[0], 0);
+        }
+        long start = readVarint(data, position);
+        long numRuns = readVarint(data, position);
+        if(start < 0 || start > Integer.MAX_VALUE || numRuns < 0 || numRuns > size - 1) {
+            throw new IllegalArgumentException("Encoded path has an invalid start cell or number of runs");
+        }
+
+        // the runs are checked before the cells are allocated, so that a corrupt size can't allocate a huge array
+        int runsStart = position[0];
+        long numMoves = 0;
+        for(long run = 0; run < numRuns; run++) {
+            numMoves += (readVarint(data, position) >>> 3) + 1;
+            if(numMoves > size - 1) {
+                throw new IllegalArgumentException("Encoded path has more than the " + size + " cells it claims");
+            }
+        }
+        if(numMoves != size - 1) {
+            throw new IllegalArgumentException("Encoded path has " + (numMoves + 1) + " cells but claims " + size);
+        }
+        checkEnd(data, position);
+
+        int[] cells = new int[(int) size];
+        cells[0] = (int) start;
+        position[0] = runsStart;
+        int i = 1;
+        for(long run = 0; run < numRuns; run++) {
+            long value = readVarint(data, position);
+            int direction = (int) (value & 7);
+            long runLength = (value >>> 3) + 1;
+            int step = Direction.dy(direction) * width + Direction.dx(direction);
+            for(long k = 0; k < runLength; k++, i++) {
+                cells[i] = cells[i - 1] + step;
+            }
+        }
+        return new GridPath(width, cells, (int) size);
+    }
+
+    private static void checkEnd(byte[] data, int[] position) {
+        if(position[0] != data.length) {
+            throw new IllegalArgumentException("Encoded path is followed by " + (data.length - position[0]) + " bytes");
+        }
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the data ends inside the varint or it is longer than 64 bits
+     */
+    static long readVarint(byte[] data, int[] position) {
+        long value = 0;
+        int shift = 0;
+        while(true) {
+            if(position[0] >= data.length) {
+                throw new IllegalArgumentException("Encoded data is truncated");
+            }
+            if(shift > 63) {
+                throw new IllegalArgumentException("Varint is longer than 64 bits");
+            }
+            byte b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if(b >= 0) return value;
+            shift += 7;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GridPath)) return false;
+        GridPath other = (GridPath) o;
+        return width == other.width && Arrays.equals(cells, 0, size, other.cells, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = width;
+        for(int i = 0; i < size; i++) {
+            hash = 31 * hash + cells[i];
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "GridPath{" +
+                "width=" + width +
+                ", size=" + size +
+                '}';
+    }
+}
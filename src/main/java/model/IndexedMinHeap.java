@@ -0,0 +1,185 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap over the integers [0, capacity), typically cell indices, with a key per item.
+ * Every item remembers its position in the heap, so that the key of an item can be changed in logarithmic time
+ * instead of removing and re-adding it as {@link java.util.PriorityQueue} does. Nothing is allocated after construction
+ * unless the heap is grown.
+ */
+public class IndexedMinHeap {
+
+    private int[] heap;
+    private double[] keys;
+    private int[] positions; // position of each item in the heap, or -1 if it is not in the heap
+    private int size;
+
+    /**
+     * @param capacity - items must be in [0, capacity)
+     */
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        keys = new double[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Adds an item, or changes its key if it is already in the heap.
+     * @param item - the item
+     * @param key - the new key of the item
+     */
+    public void addOrUpdate(int item, double key) {
+        int position = positions[item];
+        if(position < 0) {
+            position = size++;
+            heap[position] = item;
+            positions[item] = position;
+            keys[item] = key;
+            siftUp(position);
+        } else {
+            double oldKey = keys[item];
+            keys[item] = key;
+            if(key < oldKey) {
+                siftUp(position);
+            } else {
+                siftDown(position);
+            }
+        }
+    }
+
+    /**
+     * Removes the item with the smallest key.
+     * @return the removed item, or -1 if the heap is empty
+     */
+    public int poll() {
+        if(size == 0) return -1;
+        int top = heap[0];
+        positions[top] = -1;
+        size--;
+        if(size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * @return the item with the smallest key, or -1 if the heap is empty
+     */
+    public int peek() {
+        return size == 0 ? -1 : heap[0];
+    }
+
+    /**
+     * @return the smallest key, or positive infinity if the heap is empty
+     */
+    public double peekKey() {
+        return size == 0 ? Double.POSITIVE_INFINITY : keys[heap[0]];
+    }
+
+    public boolean contains(int item) {
+        return positions[item] >= 0;
+    }
+
+    public double getKey(int item) {
+        return keys[item];
+    }
+
+    /**
+     * @param position - position in [0, size)
+     * @return the item stored at given position of the heap array, useful to iterate over all items
+     */
+    public int itemAt(int position) {
+        return heap[position];
+    }
+
+    /**
+     * Restores the heap order after keys have been changed through {@link #setKeyUnordered}.
+     */
+    public void heapify() {
+        for(int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Changes the key of an item without restoring the heap order. Used to change many keys at once followed by
+     * a single call to {@link #heapify()}.
+     */
+    public void setKeyUnordered(int item, double key) {
+        keys[item] = key;
+    }
+
+    /**
+     * Removes all items, in time proportional to the number of items in the heap.
+     */
+    public void clear() {
+        for(int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Grows the heap so that items up to the given capacity can be added, keeping the items in it.
+     * @param capacity - the new capacity, nothing happens if it is not larger than the current one
+     */
+    public void ensureCapacity(int capacity) {
+        int oldCapacity = heap.length;
+        if(capacity <= oldCapacity) return;
+        heap = Arrays.copyOf(heap, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        Arrays.fill(positions, oldCapacity, capacity, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getCapacity() {
+        return heap.length;
+    }
+
+    private void siftUp(int position) {
+        int item = heap[position];
+        double key = keys[item];
+        while(position > 0) {
+            int parentPosition = (position - 1) >>> 1;
+            int parent = heap[parentPosition];
+            if(keys[parent] <= key) break;
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+        heap[position] = item;
+        positions[item] = position;
+    }
+
+    private void siftDown(int position) {
+        int item = heap[position];
+        double key = keys[item];
+        int half = size >>> 1;
+        while(position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if(right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            if(keys[heap[child]] >= key) break;
+            heap[position] = heap[child];
+            positions[heap[child]] = position;
+            position = child;
+        }
+        heap[position] = item;
+        positions[item] = position;
+    }
+}
@@ -0,0 +1,116 @@
+package model;
+
+/**
+ * Line of sight checks against a bit-packed obstacle grid. Two cells see each other when every cell of the rasterized
+ * line between them is free. Consecutive cells of a rasterized line are always neighbors, so a clear line is also a
+ * valid path in the grid.
+ *
+ * A line whose slope is at most 1 crosses each row in one horizontal run of cells. The runs are computed directly from
+ * the slope and every run is tested a whole 64-bit word at a time. Steep lines are tested the same way against a
+ * transposed copy of the grid, where they become flat.
+ */
+public class LineOfSight {
+
+    private final BitGrid obstacles;
+    private final BitGrid transposed;
+
+    /**
+     * @param obstacles - grid where obstacles are set, it is read but not copied
+     */
+    public LineOfSight(BitGrid obstacles) {
+        this.obstacles = obstacles;
+        transposed = new BitGrid(obstacles.getHeight(), obstacles.getWidth());
+        for(int y = 0; y < obstacles.getHeight(); y++) {
+            for(int x = 0; x < obstacles.getWidth(); x++) {
+                if(obstacles.get(x, y)) transposed.set(y, x, true);
+            }
+        }
+    }
+
+    /**
+     * Determines if there is a clear line between two cells.
+     * @return false if a cell of the line is an obstacle or outside the grid
+     */
+    public boolean isClear(int x0, int y0, int x1, int y1) {
+        if(!obstacles.contains(x0, y0) || !obstacles.contains(x1, y1)) return false;
+
+        if(Math.abs(x1 - x0) >= Math.abs(y1 - y0)) {
+            return isFlatLineClear(obstacles, x0, y0, x1, y1);
+        }
+        return isFlatLineClear(transposed, y0, x0, y1, x1);
+    }
+
+    /**
+     * Checks several lines, one after the other. This is a convenience loop over
+     * {@link #isClear(int, int, int, int)} for callers which hold lines as cell indices, nothing is shared between the
+     * lines, each one is as fast as on its own.
+     *
+     * @param count - number of lines
+     * @param fromCells - cell indices (y * width + x) of the first end of each line
+     * @param toCells - cell indices of the other end of each line
+     * @param result - receives whether each line is clear
+     */
+    public void isClear(int count, int[] fromCells, int[] toCells, boolean[] result) {
+        int width = obstacles.getWidth();
+        for(int i = 0; i < count; i++) {
+            result[i] = isClear(fromCells[i] % width, fromCells[i] / width, toCells[i] % width, toCells[i] / width);
+        }
+    }
+
+    /**
+     * Checks a line with |dy| <= |dx|. Position t along x belongs to row floor((2 t dy + dx) / (2 dx)), so the run
+     * of row k is every t with (2k - 1) dx <= 2 t dy < (2k + 1) dx.
+     */
+    private static boolean isFlatLineClear(BitGrid grid, int x0, int y0, int x1, int y1) {
+        if(x1 < x0) {
+            int tmp = x0; x0 = x1; x1 = tmp;
+            tmp = y0; y0 = y1; y1 = tmp;
+        }
+        int dx = x1 - x0;
+        int dy = Math.abs(y1 - y0);
+        int stepY = y1 >= y0 ? 1 : -1;
+
+        if(dy == 0) {
+            return isRunClear(grid, y0, x0, x1);
+        }
+
+        long twiceDy = 2L * dy;
+        for(int k = 0; k <= dy; k++) {
+            long from = ceilDiv((2L * k - 1) * dx, twiceDy);
+            long to = ceilDiv((2L * k + 1) * dx, twiceDy) - 1;
+            from = Math.max(from, 0);
+            to = Math.min(to, dx);
+            if(from > to) continue;
+            if(!isRunClear(grid, y0 + k * stepY, x0 + (int) from, x0 + (int) to)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Tests the cells [fromX, toX] of a row, one word at a time.
+     */
+    private static boolean isRunClear(BitGrid grid, int y, int fromX, int toX) {
+        long[] words = grid.getWords();
+        int offset = y * grid.getWordsPerRow();
+        int firstWord = fromX >>> 6, lastWord = toX >>> 6;
+        long firstMask = -1L << fromX;
+        long lastMask = -1L >>> (63 - (toX & 63));
+
+        if(firstWord == lastWord) {
+            return (words[offset + firstWord] & firstMask & lastMask) == 0;
+        }
+        if((words[offset + firstWord] & firstMask) != 0) return false;
+        for(int w = firstWord + 1; w < lastWord; w++) {
+            if(words[offset + w] != 0) return false;
+        }
+        return (words[offset + lastWord] & lastMask) == 0;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return -Math.floorDiv(-a, b);
+    }
+
+    public BitGrid getObstacles() {
+        return obstacles;
+    }
+}
@@ -0,0 +1,166 @@
+package model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a maze row by row using Eller's algorithm. Only the set membership of the rooms in the current row is
+ * kept in memory, so memory use is proportional to the width of the maze, and the rows can be streamed to a
+ * {@link RowSink}, for example a {@link GridMapFile.Writer}, without ever holding the whole maze.
+ */
+public class MazeEllerGenerator extends MazeGenerator {
+
+    public MazeEllerGenerator(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Generates a maze and streams its rows of walls to the sink, in order.
+     *
+     * @param width - width of the grid
+     * @param height - height of the grid
+     * @param sink - receives each row of walls, the row array is reused between calls
+     */
+    public void generate(int width, int height, RowSink sink) {
+        if(width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Maze dimensions must be positive: " + width + "x" + height);
+        }
+        stream(width, height, new SplittableRandom(getSeed()), sink);
+    }
+
+    @Override
+    protected void carve(BitGrid walls, int columns, int rows, SplittableRandom random) {
+        int wordsPerRow = walls.getWordsPerRow();
+        stream(walls.getWidth(), walls.getHeight(), random,
+                (y, row) -> System.arraycopy(row, 0, walls.getWords(), y * wordsPerRow, wordsPerRow));
+    }
+
+    /**
+     * Every room row produces two grid rows: the row with the rooms and the passages between them, and the row below
+     * with the passages going down. Rooms are joined with their right neighbor at random unless they already belong
+     * to the same set, and every set then gets at least one passage down so that it stays connected to the maze.
+     * In the last row all remaining sets are joined.
+     */
+    private void stream(int width, int height, SplittableRandom random, RowSink sink) {
+        int columns = (width + 1) / 2;
+        int rows = (height + 1) / 2;
+
+        long[] roomRow = new long[(width + 63) >>> 6];
+        long[] wallRow = new long[roomRow.length];
+
+        // set ids are in [0, columns), parent is a union-find over the set ids of the current row
+        int[] set = new int[columns];
+        int[] parent = new int[columns];
+        int[] members = new int[columns];
+        boolean[] hasDown = new boolean[columns];
+        boolean[] used = new boolean[columns];
+        int[] freeIds = new int[columns];
+        for(int c = 0; c < columns; c++) {
+            set[c] = c;
+            parent[c] = c;
+        }
+
+        long randomBits = 0;
+        int bitsLeft = 0;
+
+        for(int r = 0; r < rows; r++) {
+            boolean lastRow = r == rows - 1;
+
+            // join rooms horizontally
+            fillWalls(roomRow, width);
+            for(int c = 0; c < columns; c++) {
+                openCell(roomRow, c << 1);
+            }
+            for(int c = 0; c < columns - 1; c++) {
+                int a = find(parent, set[c]);
+                int b = find(parent, set[c + 1]);
+                if(a == b) continue;
+
+                if(bitsLeft == 0) {
+                    randomBits = random.nextLong();
+                    bitsLeft = 64;
+                }
+                boolean join = lastRow || (randomBits & 1) != 0;
+                randomBits >>>= 1;
+                bitsLeft--;
+
+                if(join) {
+                    parent[a] = b;
+                    openCell(roomRow, (c << 1) + 1);
+                }
+            }
+            for(int c = 0; c < columns; c++) {
+                set[c] = find(parent, set[c]);
+            }
+            sink.acceptRow(r << 1, roomRow);
+
+            if(lastRow) {
+                if((r << 1) + 1 < height) {
+                    fillWalls(wallRow, width);
+                    sink.acceptRow((r << 1) + 1, wallRow);
+                }
+                break;
+            }
+
+            // open passages down, making sure that the last member of a set goes down if no one else has
+            for(int c = 0; c < columns; c++) {
+                members[set[c]]++;
+            }
+            fillWalls(wallRow, width);
+            for(int c = 0; c < columns; c++) {
+                int id = set[c];
+                members[id]--;
+
+                if(bitsLeft == 0) {
+                    randomBits = random.nextLong();
+                    bitsLeft = 64;
+                }
+                boolean down = (randomBits & 1) != 0 || (members[id] == 0 && !hasDown[id]);
+                randomBits >>>= 1;
+                bitsLeft--;
+
+                if(down) {
+                    hasDown[id] = true;
+                    openCell(wallRow, c << 1);
+                } else {
+                    set[c] = -1;
+                }
+            }
+            sink.acceptRow((r << 1) + 1, wallRow);
+
+            // rooms without a passage from above start in new sets
+            for(int c = 0; c < columns; c++) {
+                if(set[c] >= 0) used[set[c]] = true;
+            }
+            int numFree = 0;
+            for(int id = 0; id < columns; id++) {
+                if(!used[id]) freeIds[numFree++] = id;
+                used[id] = false;
+                hasDown[id] = false;
+                parent[id] = id;
+            }
+            for(int c = 0; c < columns; c++) {
+                if(set[c] < 0) set[c] = freeIds[--numFree];
+            }
+        }
+    }
+
+    private static int find(int[] parent, int i) {
+        while(parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void fillWalls(long[] row, int width) {
+        Arrays.fill(row, -1L);
+        if((width & 63) != 0) {
+            row[row.length - 1] = (1L << (width & 63)) - 1;
+        }
+    }
+
+    private static void openCell(long[] row, int x) {
+        row[x >>> 6] &= ~(1L << x);
+    }
+}
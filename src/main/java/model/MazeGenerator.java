@@ -0,0 +1,87 @@
+package model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Base class for maze generators. A maze is carved into a grid of walls where rooms sit on even coordinates,
+ * and the cells between two rooms are opened up when the rooms are connected. The result is a perfect maze,
+ * meaning there is exactly one path between any two rooms.
+ *
+ * Generators keep no state between calls, so one instance can be used by several threads at the same time,
+ * and the same seed always yields the same maze.
+ */
+public abstract class MazeGenerator {
+
+    private final long seed;
+
+    /**
+     * @param seed - seed for the random generator, the same seed and dimensions always give the same maze
+     */
+    protected MazeGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Generates a maze with the given dimensions.
+     *
+     * @param width - width of the grid
+     * @param height - height of the grid
+     * @return a grid where walls are set
+     */
+    public BitGrid generate(int width, int height) {
+        BitGrid walls = new BitGrid(width, height);
+        walls.fill(true);
+        carve(walls, (width + 1) / 2, (height + 1) / 2, new SplittableRandom(seed));
+        return walls;
+    }
+
+    /**
+     * Generates a maze and transfers its walls to the graph as obstacles. The start and end cells are opened,
+     * which always connects them to the maze since every cell touches a room, either directly or diagonally.
+     *
+     * @param graph - the Graph object to be modified to represent the maze
+     * @param start - the starting Point of the maze
+     * @param end - the ending Point of the maze
+     */
+    public void generateMaze(Graph graph, Point start, Point end) {
+        BitGrid walls = generate(graph.getWIDTH(), graph.getHEIGHT());
+        walls.set(start.x, start.y, false);
+        walls.set(end.x, end.y, false);
+
+        for(Node node : graph.getNodes()) {
+            if(walls.get(node.getXCoordinate(), node.getYCoordinate())) {
+                node.setState(NodeState.OBSTACLE);
+            }
+        }
+        graph.initNeighbors();
+    }
+
+    /**
+     * Carves passages into the walls by connecting rooms.
+     *
+     * @param walls - grid where every cell starts out as a wall
+     * @param columns - number of room columns
+     * @param rows - number of room rows
+     * @param random - random generator seeded for this call
+     */
+    protected abstract void carve(BitGrid walls, int columns, int rows, SplittableRandom random);
+
+    /**
+     * Opens the room at given room coordinate.
+     */
+    protected static void openRoom(BitGrid walls, int column, int row) {
+        walls.set(column << 1, row << 1, false);
+    }
+
+    /**
+     * Opens the room (column, row) and the wall between it and the neighboring room in direction (dx, dy).
+     */
+    protected static void openPassage(BitGrid walls, int column, int row, int dx, int dy) {
+        walls.set((column << 1) + dx, (row << 1) + dy, false);
+        walls.set((column + dx) << 1, (row + dy) << 1, false);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
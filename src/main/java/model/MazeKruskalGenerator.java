@@ -0,0 +1,90 @@
+package model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates a maze using randomized Kruskal's algorithm. All walls between rooms are shuffled, and a wall is removed
+ * whenever the rooms on either side of it are not yet connected, which is tracked with a union-find structure.
+ */
+public class MazeKruskalGenerator extends MazeGenerator {
+
+    public MazeKruskalGenerator(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Edges are encoded as integers, where the first (columns - 1) * rows values are walls between a room and its
+     * right neighbor, and the rest are walls between a room and the room below it.
+     */
+    @Override
+    protected void carve(BitGrid walls, int columns, int rows, SplittableRandom random) {
+        int numRooms = columns * rows;
+        int numHorizontal = (columns - 1) * rows;
+        int numEdges = numHorizontal + columns * (rows - 1);
+
+        int[] edges = new int[numEdges];
+        for(int i = 0; i < numEdges; i++) {
+            edges[i] = i;
+        }
+        // Fisher-Yates shuffle, the bounded index is taken with a multiply-shift instead of a division
+        for(int i = numEdges - 1; i > 0; i--) {
+            int j = (int) (((random.nextLong() >>> 32) * (i + 1)) >>> 32);
+            int tmp = edges[i];
+            edges[i] = edges[j];
+            edges[j] = tmp;
+        }
+
+        // roots store the negated size of their set, all other rooms store their parent
+        int[] parent = new int[numRooms];
+        for(int i = 0; i < numRooms; i++) {
+            parent[i] = -1;
+            walls.set((i % columns) << 1, (i / columns) << 1, false);
+        }
+
+        int remaining = numRooms - 1;
+        for(int i = 0; i < numEdges && remaining > 0; i++) {
+            int edge = edges[i];
+            int column, row, dx, dy;
+            if(edge < numHorizontal) {
+                column = edge % (columns - 1);
+                row = edge / (columns - 1);
+                dx = 1;
+                dy = 0;
+            } else {
+                column = (edge - numHorizontal) % columns;
+                row = (edge - numHorizontal) / columns;
+                dx = 0;
+                dy = 1;
+            }
+
+            int a = find(parent, row * columns + column);
+            int b = find(parent, (row + dy) * columns + column + dx);
+            if(a != b) {
+                // union by size keeps the trees shallow
+                if(parent[a] > parent[b]) {
+                    int tmp = a;
+                    a = b;
+                    b = tmp;
+                }
+                parent[a] += parent[b];
+                parent[b] = a;
+                openPassage(walls, column, row, dx, dy);
+                remaining--;
+            }
+        }
+    }
+
+    /**
+     * Finds the representative of a set, halving the path on the way.
+     */
+    private static int find(int[] parent, int i) {
+        while(parent[i] >= 0) {
+            int next = parent[i];
+            if(parent[next] >= 0) {
+                parent[i] = parent[next];
+            }
+            i = next;
+        }
+        return i;
+    }
+}
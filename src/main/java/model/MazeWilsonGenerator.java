@@ -0,0 +1,72 @@
+package model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates a maze using Wilson's algorithm, which samples uniformly among all possible perfect mazes.
+ * Loop-erased random walks are started from rooms outside the maze until they hit it, and the walk is then added.
+ */
+public class MazeWilsonGenerator extends MazeGenerator {
+
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+
+    public MazeWilsonGenerator(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Loops are erased implicitly: every room remembers only the direction it was last left in, so following the
+     * directions from the start of the walk gives the loop-erased path.
+     */
+    @Override
+    protected void carve(BitGrid walls, int columns, int rows, SplittableRandom random) {
+        int numRooms = columns * rows;
+        boolean[] inMaze = new boolean[numRooms];
+        byte[] exitDirection = new byte[numRooms];
+
+        inMaze[0] = true;
+        openRoom(walls, 0, 0);
+
+        // random directions are drawn two bits at a time from a buffered long
+        long randomBits = 0;
+        int bitsLeft = 0;
+
+        for(int start = 1; start < numRooms; start++) {
+            if(inMaze[start]) continue;
+
+            // random walk until the maze is hit
+            int room = start;
+            while(!inMaze[room]) {
+                int column = room % columns, row = room / columns;
+                int d;
+                int c, r;
+                do {
+                    if(bitsLeft == 0) {
+                        randomBits = random.nextLong();
+                        bitsLeft = 32;
+                    }
+                    d = (int) (randomBits & 3);
+                    randomBits >>>= 2;
+                    bitsLeft--;
+                    c = column + DX[d];
+                    r = row + DY[d];
+                } while(c < 0 || c >= columns || r < 0 || r >= rows);
+
+                exitDirection[room] = (byte) d;
+                room = r * columns + c;
+            }
+
+            // add the loop-erased walk to the maze
+            room = start;
+            while(!inMaze[room]) {
+                int column = room % columns, row = room / columns;
+                int d = exitDirection[room];
+                inMaze[room] = true;
+                openRoom(walls, column, row);
+                openPassage(walls, column, row, DX[d], DY[d]);
+                room = (row + DY[d]) * columns + column + DX[d];
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A* from one start towards a set of target cells, answering what would otherwise take one search per target: the
+ * nearest target, the k nearest targets, or the distances to all of them, all in a single expansion.
+ *
+ * The heuristic is the smallest octile distance to a target which has not been reached yet, or the distance to the
+ * bounding box of those targets while there are too many of them to loop over for every cell. It is consistent for a
+ * fixed set of targets, and it only grows when a target is reached and drops out of the set. Keys in the open set can
+ * then be too small, so a cell whose key is out of date is pushed back with its current key instead of being expanded,
+ * and every expanded cell has the smallest current key, just as in plain A*. The search stops as soon as enough
+ * targets have been reached.
+ *
+ * Targets are cells, y * width + x, and may repeat. Like {@link GridAStar} the engine keeps no state of its own, the
+ * search runs in a {@link SearchWorkspace} of the calling thread.
+ */
+public class MultiTargetSearch {
+
+    // up to this many targets the heuristic loops over them, see TargetSet#heuristic
+    private static final int MAX_EXACT_TARGETS = 16;
+
+    private final BitGrid obstacles;
+    private final int width;
+    private final int height;
+
+    /**
+     * @param obstacles - grid where obstacles are set, it must not be changed while the engine is in use
+     */
+    public MultiTargetSearch(BitGrid obstacles) {
+        this.obstacles = obstacles;
+        width = obstacles.getWidth();
+        height = obstacles.getHeight();
+    }
+
+    /**
+     * Finds the target with the shortest path from the start, and leaves that path in the workspace, see
+     * {@link SearchWorkspace#getPathCells()}.
+     *
+     * @param startX - start x coordinate
+     * @param startY - start y coordinate
+     * @param targets - cells of the targets
+     * @param workspace - search state of the calling thread
+     * @return index of the nearest target in the targets, or -1 if none can be reached
+     */
+    public int findNearest(int startX, int startY, int[] targets, SearchWorkspace workspace) {
+        int[] nearest = new int[1];
+        return search(startX, startY, targets, 1, nearest, new float[targets.length], workspace) == 0 ? -1 : nearest[0];
+    }
+
+    /**
+     * Finds the k targets with the shortest paths from the start, and leaves the path to the nearest one in the
+     * workspace.
+     *
+     * @param startX - start x coordinate
+     * @param startY - start y coordinate
+     * @param targets - cells of the targets
+     * @param k - number of targets to find
+     * @param nearest - receives the indices of the found targets, nearest first, it needs room for k of them
+     * @param distances - receives the distances of the found targets, in the same order as the indices
+     * @param workspace - search state of the calling thread
+     * @return number of targets found, less than k if fewer can be reached
+     */
+    public int findNearest(int startX, int startY, int[] targets, int k, int[] nearest, float[] distances,
+                           SearchWorkspace workspace) {
+        float[] distanceOfTarget = new float[targets.length];
+        int found = search(startX, startY, targets, k, nearest, distanceOfTarget, workspace);
+        for(int i = 0; i < found; i++) {
+            distances[i] = distanceOfTarget[nearest[i]];
+        }
+        return found;
+    }
+
+    /**
+     * Computes the distances from the start to all targets, and leaves the path to the nearest one in the workspace.
+     *
+     * @param startX - start x coordinate
+     * @param startY - start y coordinate
+     * @param targets - cells of the targets
+     * @param distances - receives the distance of every target at its index, positive infinity if it cannot be reached
+     * @param workspace - search state of the calling thread
+     * @return number of targets which can be reached
+     */
+    public int findDistances(int startX, int startY, int[] targets, float[] distances, SearchWorkspace workspace) {
+        return search(startX, startY, targets, targets.length, new int[targets.length], distances, workspace);
+    }
+
+    /**
+     * Runs the search until the needed number of targets has been reached or no cell is left.
+     *
+     * @param needed - number of targets after which the search stops
+     * @param reached - receives the indices of the reached targets in the order they are reached
+     * @param distances - receives the distance of every target at its index, positive infinity if it is not reached
+     * @return number of reached targets
+     */
+    private int search(int startX, int startY, int[] targets, int needed, int[] reached, float[] distances,
+                       SearchWorkspace workspace) {
+        Arrays.fill(distances, 0, targets.length, Float.POSITIVE_INFINITY);
+        TargetSet remaining = new TargetSet(targets, needed <= MAX_EXACT_TARGETS);
+        if(!isFree(startX, startY) || remaining.size == 0 || needed <= 0) {
+            workspace.finish(-1, 0);
+            return 0;
+        }
+        workspace.prepare(width * height);
+
+        int start = startY * width + startX;
+        workspace.reach(start, 0, -1);
+        workspace.pushOpen(start, remaining.heuristic(startX, startY));
+
+        int numReached = 0;
+        int expansions = 0;
+        while(!workspace.isOpenEmpty()) {
+            float key = workspace.peekOpenKey();
+            int current = workspace.pollOpen();
+            int x = current % width, y = current / width;
+            float currentDist = workspace.getDist(current);
+            float h = remaining.heuristic(x, y);
+            if(currentDist + h > key) {
+                // targets have been reached since the key was computed, the cell waits for its turn again
+                workspace.pushOpen(current, currentDist + h);
+                continue;
+            }
+            workspace.close(current);
+            expansions++;
+
+            int found = remaining.find(current);
+            if(found >= 0) {
+                // repeated targets are reached together
+                for(int i = found; i < remaining.cells.length && remaining.cells[i] == current && numReached < needed; i++) {
+                    int target = remaining.indices[i];
+                    if(target < 0) continue;
+                    distances[target] = currentDist;
+                    reached[numReached++] = target;
+                    remaining.remove(i);
+                }
+                if(numReached == needed || remaining.size == 0) break;
+            }
+
+            for(int d = 0; d < Direction.COUNT; d++) {
+                int nx = x + Direction.dx(d), ny = y + Direction.dy(d);
+                if(!isFree(nx, ny)) continue;
+                int neighbor = ny * width + nx;
+                if(workspace.isClosed(neighbor)) continue;
+
+                float distance = currentDist + (float) Direction.cost(d);
+                if(distance < workspace.getDist(neighbor)) {
+                    workspace.reach(neighbor, distance, current);
+                    workspace.pushOpen(neighbor, distance + remaining.heuristic(nx, ny));
+                }
+            }
+        }
+        workspace.finish(numReached == 0 ? -1 : targets[reached[0]], expansions);
+        return numReached;
+    }
+
+    private boolean isFree(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height && !obstacles.get(x, y);
+    }
+
+    public BitGrid getObstacles() {
+        return obstacles;
+    }
+
+    /**
+     * The targets which have not been reached yet, sorted by cell for looking them up, with the heuristic towards them.
+     */
+    private final class TargetSet {
+
+        final int[] cells;
+        final int[] indices;
+        private final int[] positions; // positions in the sorted arrays, the first size of them are not reached
+        private final boolean exact;
+        int size;
+        private int minX, minY, maxX, maxY;
+
+        /**
+         * @param targets - cells of the targets, those outside the grid or on obstacles are left out
+         * @param exact - whether the heuristic is the distance to the nearest target even when there are many
+         */
+        TargetSet(int[] targets, boolean exact) {
+            this.exact = exact;
+            long[] sorted = new long[targets.length];
+            for(int i = 0; i < targets.length; i++) {
+                int cell = targets[i];
+                if(cell >= 0 && cell < width * height && !obstacles.get(cell % width, cell / width)) {
+                    sorted[size++] = (long) cell << 32 | i;
+                }
+            }
+            Arrays.sort(sorted, 0, size);
+            cells = new int[size];
+            indices = new int[size];
+            positions = new int[size];
+            for(int i = 0; i < size; i++) {
+                cells[i] = (int) (sorted[i] >>> 32);
+                indices[i] = (int) sorted[i];
+                positions[i] = i;
+            }
+            updateBounds();
+        }
+
+        /**
+         * @return the sorted position of the first target on the cell which has not been reached, or -1
+         */
+        int find(int cell) {
+            int i = Arrays.binarySearch(cells, cell);
+            if(i < 0) return -1;
+            while(i > 0 && cells[i - 1] == cell) {
+                i--;
+            }
+            for(; i < cells.length && cells[i] == cell; i++) {
+                if(indices[i] >= 0) return i;
+            }
+            return -1;
+        }
+
+        void remove(int position) {
+            indices[position] = ~indices[position];
+            for(int i = 0; i < size; i++) {
+                if(positions[i] == position) {
+                    positions[i] = positions[--size];
+                    break;
+                }
+            }
+            updateBounds();
+        }
+
+        /**
+         * A lower bound of the distance from a cell to the nearest remaining target, which never decreases as targets
+         * are removed. With few targets it is the smallest octile distance to one of them, with many it is the octile
+         * distance to their bounding box, which is weaker but does not cost a loop over all targets for every cell.
+         */
+        float heuristic(int x, int y) {
+            if(exact || size <= MAX_EXACT_TARGETS) {
+                double min = Double.POSITIVE_INFINITY;
+                for(int i = 0; i < size; i++) {
+                    int cell = cells[positions[i]];
+                    min = Math.min(min, PathAlgorithm.getOctileDistance(x, y, cell % width, cell / width));
+                }
+                return (float) min;
+            }
+            int nearestX = Math.max(minX, Math.min(maxX, x)), nearestY = Math.max(minY, Math.min(maxY, y));
+            return (float) PathAlgorithm.getOctileDistance(x, y, nearestX, nearestY);
+        }
+
+        private void updateBounds() {
+            minX = minY = Integer.MAX_VALUE;
+            maxX = maxY = Integer.MIN_VALUE;
+            for(int i = 0; i < size; i++) {
+                int cell = cells[positions[i]];
+                minX = Math.min(minX, cell % width);
+                maxX = Math.max(maxX, cell % width);
+                minY = Math.min(minY, cell / width);
+                maxY = Math.max(maxY, cell / width);
+            }
+        }
+    }
+}
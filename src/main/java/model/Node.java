@@ -1,6 +1,5 @@
 package model;
 
-import java.util.ArrayList;
 import java.util.Objects;
 
 /**
@@ -9,7 +8,6 @@ import java.util.Objects;
 public class Node {
 
     private Node prev;
-    private ArrayList<Node> neighbors; // surrounding nodes
     private final Point point; // coordinate
     private NodeState state;
     protected double dist; // distance
@@ -17,19 +15,10 @@ public class Node {
     public Node(int x, int y) {
         point = new Point(x, y);
         state = NodeState.UNVISITED;
-        neighbors = null;
         dist = Double.MAX_VALUE;
         prev = null;
     }
 
-    public ArrayList<Node> getNeighbors() {
-        return neighbors;
-    }
-
-    public void setNeighbors(ArrayList<Node> neighbors) {
-        this.neighbors = neighbors;
-    }
-
     public void setPrev(Node prev) {
         this.prev = prev;
     }
@@ -64,7 +53,6 @@ public class Node {
 
     public void reset() {
         state = NodeState.UNVISITED;
-        neighbors = null;
         dist = 0;
         prev = null;
     }
@@ -86,7 +74,6 @@ public class Node {
     public String toString() {
         return "Node{" +
                 "prev=" + prev +
-                ", neighbors=" + neighbors +
                 ", point=" + point +
                 ", state=" + state +
                 ", dist=" + dist +
@@ -0,0 +1,147 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A batch of obstacle edits which is collected while the user draws and applied to a {@link Graph} at once through
+ * {@link Graph#applyEdits}. Strokes are drawn between consecutive mouse samples with Bresenham's line algorithm, so
+ * a fast drag marks every cell it passes over even when the samples lie far apart.
+ *
+ * Every cell is kept at most once per value, the arrays only grow and {@link #clear()} takes time proportional to the
+ * number of edits, so a batch can be reused for every frame without allocating.
+ */
+public class ObstacleEdits {
+
+    private final int width;
+    private final int height;
+    private final BitGrid added;
+    private final BitGrid removed;
+    private int[] cells = new int[64];
+    private boolean[] obstacles = new boolean[64];
+    private int size;
+
+    private boolean inStroke;
+    private boolean strokeObstacle;
+    private int lastX;
+    private int lastY;
+
+    /**
+     * @param width - width of the graph the edits are applied to
+     * @param height - height of the graph the edits are applied to
+     */
+    public ObstacleEdits(int width, int height) {
+        this.width = width;
+        this.height = height;
+        added = new BitGrid(width, height);
+        removed = new BitGrid(width, height);
+    }
+
+    /**
+     * Edits a single cell. A cell which is outside of the grid is ignored, and a later edit of the same cell wins.
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @param obstacle - whether the cell becomes an obstacle or a free cell
+     */
+    public void add(int x, int y, boolean obstacle) {
+        if(!added.contains(x, y)) return;
+        BitGrid same = obstacle ? added : removed;
+        if(same.get(x, y)) return;
+        same.set(x, y, true);
+        (obstacle ? removed : added).set(x, y, false);
+
+        if(size == cells.length) {
+            cells = Arrays.copyOf(cells, size * 2);
+            obstacles = Arrays.copyOf(obstacles, size * 2);
+        }
+        cells[size] = y * width + x;
+        obstacles[size] = obstacle;
+        size++;
+    }
+
+    /**
+     * Starts a stroke at a cell, which is edited right away.
+     */
+    public void beginStroke(int x, int y, boolean obstacle) {
+        inStroke = true;
+        strokeObstacle = obstacle;
+        lastX = x;
+        lastY = y;
+        add(x, y, obstacle);
+    }
+
+    /**
+     * Continues the stroke to a cell, editing every cell of the line from the previous one. Nothing happens when no
+     * stroke has been started.
+     */
+    public void continueStroke(int x, int y) {
+        if(!inStroke) return;
+
+        int dx = Math.abs(x - lastX), dy = -Math.abs(y - lastY);
+        int stepX = lastX < x ? 1 : -1, stepY = lastY < y ? 1 : -1;
+        int error = dx + dy;
+        int i = lastX, j = lastY;
+        while(true) {
+            add(i, j, strokeObstacle);
+            if(i == x && j == y) break;
+            int twiceError = 2 * error;
+            if(twiceError >= dy) {
+                error += dy;
+                i += stepX;
+            }
+            if(twiceError <= dx) {
+                error += dx;
+                j += stepY;
+            }
+        }
+        lastX = x;
+        lastY = y;
+    }
+
+    public void endStroke() {
+        inStroke = false;
+    }
+
+    /**
+     * Removes all edits, keeping a stroke in progress.
+     */
+    public void clear() {
+        for(int i = 0; i < size; i++) {
+            int x = cells[i] % width, y = cells[i] / width;
+            added.set(x, y, false);
+            removed.set(x, y, false);
+        }
+        size = 0;
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return cell index (y * width + x) of the i-th edit
+     */
+    public int getCell(int i) {
+        return cells[i];
+    }
+
+    /**
+     * @return whether the i-th edit makes the cell an obstacle
+     */
+    public boolean isObstacle(int i) {
+        return obstacles[i];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -12,6 +12,8 @@ public abstract class PathAlgorithm {
     protected Graph graph;
     protected Node startNode;
     protected Node endNode;
+    protected boolean exhausted;
+    private TraceRecorder traceRecorder;
 
     protected PathAlgorithm(Graph graph) {
         MAX_X_COORDINATE = graph.getWIDTH();
@@ -25,6 +27,44 @@ public abstract class PathAlgorithm {
      */
     public abstract void visitNext();
 
+    /**
+     * Determines if the search has run out of nodes to visit without reaching the destination,
+     * which means that there is no possible path.
+     * @return - boolean value whether the search is exhausted
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Records the expansion and frontier events of the search from now on.
+     * @param traceRecorder - recorder receiving the events, or null to stop recording
+     */
+    public void setTraceRecorder(TraceRecorder traceRecorder) {
+        this.traceRecorder = traceRecorder;
+    }
+
+    public TraceRecorder getTraceRecorder() {
+        return traceRecorder;
+    }
+
+    /**
+     * Tells the trace recorder, if any, that a node is being expanded. Called before the neighbors of the node are
+     * explored, so that frontier events follow the expansion they belong to.
+     * @param index - cell index of the node
+     */
+    protected void traceExpanded(int index) {
+        if(traceRecorder != null) traceRecorder.expanded(index);
+    }
+
+    /**
+     * Tells the trace recorder, if any, that a node has been added to the frontier or got a better distance there.
+     * @param index - cell index of the node
+     */
+    protected void traceReached(int index) {
+        if(traceRecorder != null) traceRecorder.reached(index);
+    }
+
     /**
      * Determines if destination node is reached.
      * @return - boolean value whether path is found
@@ -48,6 +88,42 @@ public abstract class PathAlgorithm {
         return list;
     }
 
+    /**
+     * Builds the path from start node to end node as cell indices, in time linear in the length of the path.
+     * @return the path, empty if no path has been found
+     */
+    public GridPath getGridPath() {
+        if(!pathIsFound()) {
+            return new GridPath(MAX_X_COORDINATE, new int[0], 0);
+        }
+        int size = 0;
+        for(Node temp = endNode; temp != null; temp = temp.getPrev()) {
+            size++;
+        }
+        int[] cells = new int[size];
+        copyPath(cells);
+        return new GridPath(MAX_X_COORDINATE, cells, size);
+    }
+
+    /**
+     * Writes the path from start node to end node into an array without allocating, so that a caller running many
+     * queries can reuse one array for all of them.
+     * @param cells - receives the cell indices of the path, it must be large enough for the whole path
+     * @return number of cells of the path, 0 if no path has been found
+     */
+    public int copyPath(int[] cells) {
+        if(!pathIsFound()) return 0;
+        int size = 0;
+        for(Node temp = endNode; temp != null; temp = temp.getPrev()) {
+            size++;
+        }
+        int i = size;
+        for(Node temp = endNode; temp != null; temp = temp.getPrev()) {
+            cells[--i] = graph.indexOf(temp);
+        }
+        return size;
+    }
+
     /**
      * Method pre-processes different kind of nodes of the graph and their neighbors.
      * @param startPoint - defined starting position
@@ -107,6 +183,20 @@ public abstract class PathAlgorithm {
         return Math.sqrt(Math.pow(endX - startX, 2) + Math.pow(endY - startY, 2));
     }
 
+    /**
+     * Computes the octile distance between coordinates, which is the length of the shortest path between them when
+     * there are no obstacles and moves go in eight directions.
+     * @param startX - start x position
+     * @param startY - start y position
+     * @param endX - end x position
+     * @param endY - end y position
+     * @return octile distance from start to end
+     */
+    public static double getOctileDistance(int startX, int startY, int endX, int endY) {
+        int dx = Math.abs(endX - startX), dy = Math.abs(endY - startY);
+        return Math.max(dx, dy) + (Direction.DIAGONAL_COST - 1) * Math.min(dx, dy);
+    }
+
     public double getFoundPathDistance() {
         return endNode.getDist();
     }
@@ -0,0 +1,63 @@
+package model;
+
+/**
+ * Result of a single path query: how the search ended, and the path with its length when one was found.
+ */
+public class PathResult {
+
+    private final SearchStatus status;
+    private final GridPath path;
+    private final double distance;
+    private final int expansions;
+
+    public PathResult(SearchStatus status, GridPath path, double distance, int expansions) {
+        this.status = status;
+        this.path = path;
+        this.distance = distance;
+        this.expansions = expansions;
+    }
+
+    /**
+     * @return a result for a query without any path
+     */
+    public static PathResult of(SearchStatus status, int expansions) {
+        return new PathResult(status, null, Double.POSITIVE_INFINITY, expansions);
+    }
+
+    public boolean isFound() {
+        return status == SearchStatus.FOUND;
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public SearchStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the path from start to end, or null if no path was found
+     */
+    public GridPath getPath() {
+        return path;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return number of nodes expanded by the search
+     */
+    public int getExpansions() {
+        return expansions;
+    }
+
+    @Override
+    public String toString() {
+        return "PathResult{" +
+                "status=" + status +
+                ", distance=" + distance +
+                ", expansions=" + expansions +
+                '}';
+    }
+}
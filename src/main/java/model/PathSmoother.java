@@ -0,0 +1,62 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shortens paths by removing every waypoint which can be skipped with a clear line of sight, so that a path of one
+ * cell per step becomes a few straight segments. Works on the result of any {@link PathAlgorithm#getPath()}.
+ */
+public class PathSmoother {
+
+    private final LineOfSight lineOfSight;
+
+    public PathSmoother(BitGrid obstacles) {
+        this(new LineOfSight(obstacles));
+    }
+
+    public PathSmoother(LineOfSight lineOfSight) {
+        this.lineOfSight = lineOfSight;
+    }
+
+    /**
+     * Greedily walks the path from its first node, and from every kept waypoint skips ahead as far as the line of
+     * sight reaches.
+     *
+     * @param path - path of neighboring nodes, in any direction
+     * @return the kept waypoints in the same order, always including the first and last node
+     */
+    public ArrayList<Node> smooth(List<Node> path) {
+        ArrayList<Node> waypoints = new ArrayList<>();
+        if(path.isEmpty()) return waypoints;
+
+        Node anchor = path.get(0);
+        waypoints.add(anchor);
+        for(int i = 2; i < path.size(); i++) {
+            Node candidate = path.get(i);
+            if(!lineOfSight.isClear(anchor.getXCoordinate(), anchor.getYCoordinate(),
+                    candidate.getXCoordinate(), candidate.getYCoordinate())) {
+                anchor = path.get(i - 1);
+                waypoints.add(anchor);
+            }
+        }
+        if(path.size() > 1) {
+            waypoints.add(path.get(path.size() - 1));
+        }
+        return waypoints;
+    }
+
+    /**
+     * Computes the length of a path of waypoints, where the waypoints are connected by straight lines.
+     * @param waypoints - the waypoints
+     * @return sum of the euclidean distances between consecutive waypoints
+     */
+    public static double getLength(List<Node> waypoints) {
+        double length = 0;
+        for(int i = 1; i < waypoints.size(); i++) {
+            Node a = waypoints.get(i - 1), b = waypoints.get(i);
+            length += Math.hypot(a.getXCoordinate() - b.getXCoordinate(), a.getYCoordinate() - b.getYCoordinate());
+        }
+        return length;
+    }
+}
@@ -0,0 +1,124 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Space-time reservation table for multi-agent planning: which agent occupies a cell at a given tick.
+ *
+ * Reservations live in an open addressing hash table keyed by (tick, cell). Released reservations are only marked as
+ * free, and reservations of ticks which have passed are ignored, so both are dropped together by {@link #purge(long)},
+ * which the planner calls regularly. Memory therefore depends on the number of agents and the length of their plans,
+ * not on how long the simulation runs.
+ */
+public class ReservationTable {
+
+    public static final int FREE = -1;
+    private static final long EMPTY = -1;
+
+    private final int numCells;
+    private long[] keys;
+    private int[] agents;
+    private int mask;
+    private int used; // slots with a key, including released and passed reservations
+
+    /**
+     * @param numCells - number of cells of the grid
+     * @param expectedReservations - number of reservations alive at the same time, the table grows if needed
+     */
+    public ReservationTable(int numCells, int expectedReservations) {
+        this.numCells = numCells;
+        int capacity = Integer.highestOneBit(Math.max(16, expectedReservations * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        agents = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        used = 0;
+    }
+
+    /**
+     * @return the agent which reserved the cell at the tick, or {@link #FREE}
+     */
+    public int getAgent(int cell, long tick) {
+        long key = tick * numCells + cell;
+        for(int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+            if(keys[slot] == key) return agents[slot];
+            if(keys[slot] == EMPTY) return FREE;
+        }
+    }
+
+    /**
+     * Reserves a cell at a tick, replacing any earlier reservation of it.
+     */
+    public void reserve(int cell, long tick, int agent) {
+        if(used * 4L >= keys.length * 3L) {
+            rehash(keys.length * 2, Long.MIN_VALUE);
+        }
+        long key = tick * numCells + cell;
+        int slot = slotOf(key);
+        while(keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if(keys[slot] == EMPTY) {
+            keys[slot] = key;
+            used++;
+        }
+        agents[slot] = agent;
+    }
+
+    /**
+     * Releases the reservation of a cell at a tick, if it is held by the given agent.
+     */
+    public void release(int cell, long tick, int agent) {
+        long key = tick * numCells + cell;
+        for(int slot = slotOf(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if(keys[slot] == key) {
+                if(agents[slot] == agent) agents[slot] = FREE;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drops released reservations and reservations of ticks before the given one.
+     * @param now - the current tick
+     */
+    public void purge(long now) {
+        rehash(keys.length, now * numCells);
+    }
+
+    private void rehash(int capacity, long firstLiveKey) {
+        long[] oldKeys = keys;
+        int[] oldAgents = agents;
+        allocate(capacity);
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] == EMPTY || oldAgents[i] == FREE || oldKeys[i] < firstLiveKey) continue;
+            int slot = slotOf(oldKeys[i]);
+            while(keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            agents[slot] = oldAgents[i];
+            used++;
+        }
+    }
+
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    /**
+     * @return number of slots in use, including released reservations not purged yet
+     */
+    public int getUsedSlots() {
+        return used;
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+}
@@ -0,0 +1,17 @@
+package model;
+
+/**
+ * Receives a grid one row at a time, for example from a streaming maze generator.
+ */
+@FunctionalInterface
+public interface RowSink {
+
+    /**
+     * Accepts a row of the grid. The row is laid out like a row of a {@link BitGrid}, bit x of the row lives in
+     * word x / 64 at position x % 64. The array may be reused by the caller once this method returns.
+     *
+     * @param y - the row number, rows are always delivered in increasing order
+     * @param words - the bits of the row
+     */
+    void acceptRow(int y, long[] words);
+}
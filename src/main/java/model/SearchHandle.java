@@ -0,0 +1,153 @@
+package model;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Handle of a search submitted to a {@link SearchScheduler}, used to cancel the search or wait for its result.
+ *
+ * Cancellation is cooperative: the search checks the cancel flag before each visited node, and a thread blocked in
+ * {@link SearchListener#onStep} is interrupted so that it wakes up.
+ */
+public class SearchHandle {
+
+    private final PathAlgorithm alg;
+    private final long deadlineNanos;
+    private final int checkInterval;
+    private final SearchListener listener;
+    private final CompletableFuture<SearchStatus> result = new CompletableFuture<>();
+
+    private volatile boolean cancelRequested;
+    private volatile long steps;
+    private Thread runner; // guarded by this
+
+    SearchHandle(PathAlgorithm alg, long deadlineNanos, int checkInterval, SearchListener listener) {
+        this.alg = alg;
+        this.deadlineNanos = deadlineNanos;
+        this.checkInterval = checkInterval;
+        this.listener = listener;
+    }
+
+    /**
+     * Runs the search on the calling thread until it ends.
+     * @return how the search ended
+     */
+    SearchStatus run() {
+        synchronized (this) {
+            if(cancelRequested) {
+                return finish(SearchStatus.CANCELLED);
+            }
+            runner = Thread.currentThread();
+        }
+
+        SearchStatus status;
+        try {
+            status = search();
+        } catch (RuntimeException | Error e) {
+            detachRunner();
+            result.completeExceptionally(e);
+            throw e;
+        }
+        detachRunner();
+        return finish(status);
+    }
+
+    private SearchStatus search() {
+        int untilCheck = checkInterval;
+        while(true) {
+            if(alg.pathIsFound()) return SearchStatus.FOUND;
+            if(alg.isExhausted()) return SearchStatus.UNREACHABLE;
+            if(cancelRequested) return SearchStatus.CANCELLED;
+
+            alg.visitNext();
+            steps++;
+            if(--untilCheck == 0) {
+                untilCheck = checkInterval;
+                if(deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos > 0 && !alg.pathIsFound()) {
+                    return SearchStatus.DEADLINE_EXCEEDED;
+                }
+            }
+            listener.onStep(alg);
+        }
+    }
+
+    /**
+     * Stops interrupting the worker thread and clears any interrupt meant for this search, so that it does not leak
+     * into the next search run by the same thread.
+     */
+    private synchronized void detachRunner() {
+        runner = null;
+        Thread.interrupted();
+    }
+
+    /**
+     * Tells the listener and completes the result. A listener which throws fails the result instead, so that threads
+     * waiting for the search are released either way.
+     */
+    private SearchStatus finish(SearchStatus status) {
+        try {
+            listener.onFinished(alg, status);
+        } catch (RuntimeException | Error e) {
+            result.completeExceptionally(e);
+            throw e;
+        }
+        result.complete(status);
+        return status;
+    }
+
+    /**
+     * Requests the search to stop. A search which has not started yet ends as cancelled without running.
+     */
+    public synchronized void cancel() {
+        cancelRequested = true;
+        if(runner != null) {
+            runner.interrupt();
+        }
+    }
+
+    /**
+     * Waits for the search to end.
+     * @return how the search ended
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public SearchStatus await() throws InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed", e.getCause());
+        }
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * @return how the search ended, or null while it is still queued or running
+     */
+    public SearchStatus getStatus() {
+        return result.getNow(null);
+    }
+
+    /**
+     * @return a future which completes with the status once the search has ended
+     */
+    public CompletableFuture<SearchStatus> getResult() {
+        return result;
+    }
+
+    public PathAlgorithm getAlgorithm() {
+        return alg;
+    }
+
+    /**
+     * @return number of nodes visited so far
+     */
+    public long getSteps() {
+        return steps;
+    }
+}
@@ -0,0 +1,21 @@
+package model;
+
+/**
+ * Receives progress from a search run by a {@link SearchScheduler}. Both methods are called on the worker thread.
+ */
+public interface SearchListener {
+
+    /**
+     * Called after each visited node. May block, for example to slow the search down for visualization,
+     * but should return promptly when the thread is interrupted since that means the search was cancelled.
+     * @param alg - the running algorithm
+     */
+    default void onStep(PathAlgorithm alg) {}
+
+    /**
+     * Called once when the search has ended.
+     * @param alg - the algorithm
+     * @param status - how the search ended
+     */
+    default void onFinished(PathAlgorithm alg, SearchStatus status) {}
+}
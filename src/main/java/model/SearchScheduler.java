@@ -0,0 +1,119 @@
+package model;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs searches on a fixed set of reusable worker threads with a bounded queue of waiting searches, so that no
+ * threads are created per search and a burst of queries can't pile up without limit. Every search has a deadline
+ * which is checked every few visited nodes, and can be cancelled cooperatively through its {@link SearchHandle}.
+ */
+public class SearchScheduler implements AutoCloseable {
+
+    public static final int DEFAULT_CHECK_INTERVAL = 64;
+
+    private static final AtomicInteger schedulerCount = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+    private final int checkInterval;
+    private final Set<SearchHandle> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a scheduler with a single worker.
+     * @param queueCapacity - number of searches which may wait while another one runs
+     */
+    public SearchScheduler(int queueCapacity) {
+        this(1, queueCapacity, DEFAULT_CHECK_INTERVAL);
+    }
+
+    /**
+     * @param workers - number of worker threads
+     * @param queueCapacity - number of searches which may wait for a worker
+     * @param checkInterval - number of visited nodes between checks of the deadline
+     */
+    public SearchScheduler(int workers, int queueCapacity, int checkInterval) {
+        if(workers <= 0 || queueCapacity <= 0 || checkInterval <= 0) {
+            throw new IllegalArgumentException("Workers, queue capacity and check interval must be positive");
+        }
+        this.checkInterval = checkInterval;
+
+        String prefix = "search-" + schedulerCount.incrementAndGet() + "-";
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Schedules a search without a deadline.
+     * @see #submit(PathAlgorithm, long, SearchListener)
+     */
+    public SearchHandle submit(PathAlgorithm alg, SearchListener listener) {
+        return submit(alg, Long.MAX_VALUE, listener);
+    }
+
+    /**
+     * Schedules a search.
+     *
+     * @param alg - the algorithm to run, it must not be used by anyone else until the search has ended
+     * @param timeoutNanos - how long the search may take, counted from now
+     * @param listener - receives progress and the result of the search
+     * @return handle to cancel or wait for the search
+     * @throws RejectedExecutionException if the queue of waiting searches is full, or the scheduler is closed
+     */
+    public SearchHandle submit(PathAlgorithm alg, long timeoutNanos, SearchListener listener) {
+        long now = System.nanoTime();
+        long deadline = timeoutNanos >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeoutNanos;
+
+        SearchHandle handle = new SearchHandle(alg, deadline, checkInterval, listener);
+        pending.add(handle);
+        try {
+            executor.execute(() -> {
+                try {
+                    handle.run();
+                } finally {
+                    pending.remove(handle);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(handle);
+            throw e;
+        }
+        return handle;
+    }
+
+    /**
+     * Cancels every queued and running search, for example when the map they search has been edited.
+     */
+    public void cancelAll() {
+        for(SearchHandle handle : pending) {
+            handle.cancel();
+        }
+    }
+
+    /**
+     * @return number of searches which are queued or running
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Cancels all searches and stops the workers once they are done.
+     */
+    @Override
+    public void close() {
+        cancelAll();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,10 @@
+package model;
+
+/**
+ * Describes how a search ended.
+ */
+public enum SearchStatus {
+    FOUND, UNREACHABLE, CANCELLED, DEADLINE_EXCEEDED,
+    /** The search needed more states than its memory budget allows. */
+    LIMIT_EXCEEDED
+}
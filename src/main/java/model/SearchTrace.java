@@ -0,0 +1,244 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A recorded search: the event log of a {@link TraceRecorder} together with the map it ran on and its outcome.
+ *
+ * The binary form is a magic number followed by varints: version, width, height, number of steps, number of events,
+ * the obstacles as alternating runs of free and blocked cells in row-major order, the status (ordinal + 1, or 0 for
+ * none), the number of cells of the path followed by the zigzag encoded differences between its cells, which also
+ * works for any-angle paths, and the length and bytes of the event log.
+ */
+public class SearchTrace {
+
+    public static final int MAGIC = 0x45435254; // "TRCE" in little-endian
+    public static final int VERSION = 1;
+
+    private final BitGrid obstacles;
+    private final byte[] events;
+    private final int numSteps;
+    private final long numEvents;
+    private final SearchStatus status;
+    private final GridPath path;
+
+    SearchTrace(BitGrid obstacles, byte[] events, int numSteps, long numEvents, SearchStatus status, GridPath path) {
+        this.obstacles = obstacles;
+        this.events = events;
+        this.numSteps = numSteps;
+        this.numEvents = numEvents;
+        this.status = status;
+        this.path = path;
+    }
+
+    /**
+     * @return the trace in its binary form
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(events.length + 64);
+        for(int shift = 0; shift < 32; shift += 8) {
+            out.write(MAGIC >>> shift);
+        }
+        GridPath.writeVarint(out, VERSION);
+        GridPath.writeVarint(out, obstacles.getWidth());
+        GridPath.writeVarint(out, obstacles.getHeight());
+        GridPath.writeVarint(out, numSteps);
+        GridPath.writeVarint(out, numEvents);
+        writeObstacleRuns(out);
+        GridPath.writeVarint(out, status == null ? 0 : status.ordinal() + 1);
+
+        int pathSize = path == null ? 0 : path.size();
+        GridPath.writeVarint(out, pathSize);
+        for(int i = 0, last = 0; i < pathSize; i++) {
+            long delta = (long) path.getCell(i) - last;
+            GridPath.writeVarint(out, (delta << 1) ^ (delta >> 63));
+            last = path.getCell(i);
+        }
+        GridPath.writeVarint(out, events.length);
+        out.writeBytes(events);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a trace from its binary form. Every count is checked against the bytes which are left before anything
+     * is allocated for it.
+     * @throws IllegalArgumentException if the data is not a trace, is truncated or damaged, or has bytes after it
+     */
+    public static SearchTrace fromBytes(byte[] data) {
+        int magic = 0;
+        for(int i = 0; i < 4 && i < data.length; i++) {
+            magic |= (data[i] & 0xFF) << (8 * i);
+        }
+        int[] position = {4};
+        if(data.length < 4 || magic != MAGIC || GridPath.readVarint(data, position) != VERSION) {
+            throw new IllegalArgumentException("Not a version " + VERSION + " search trace");
+        }
+        int width = readCount(data, position, "width");
+        int height = readCount(data, position, "height");
+        if((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Search trace map of " + width + "x" + height + " is too large");
+        }
+        int numSteps = readCount(data, position, "number of steps");
+        long numEvents = GridPath.readVarint(data, position);
+        if(numEvents < 0) {
+            throw new IllegalArgumentException("Search trace has a negative number of events");
+        }
+        BitGrid obstacles = readObstacleRuns(data, position, width, height);
+
+        long status = GridPath.readVarint(data, position);
+        if(status < 0 || status > SearchStatus.values().length) {
+            throw new IllegalArgumentException("Search trace has an unknown status " + status);
+        }
+
+        // every cell of the path takes at least one byte
+        int pathSize = readCount(data, position, "path size");
+        if(pathSize > data.length - position[0]) {
+            throw new IllegalArgumentException("Search trace is truncated");
+        }
+        GridPath path = null;
+        if(pathSize > 0) {
+            int[] cells = new int[pathSize];
+            long last = 0;
+            for(int i = 0; i < pathSize; i++) {
+                long zigzag = GridPath.readVarint(data, position);
+                last += (zigzag >>> 1) ^ -(zigzag & 1);
+                if(last < 0 || last >= (long) width * height) {
+                    throw new IllegalArgumentException("Search trace path leaves the map");
+                }
+                cells[i] = (int) last;
+            }
+            path = new GridPath(width, cells, pathSize);
+        }
+
+        int eventBytes = readCount(data, position, "event log length");
+        if(eventBytes != data.length - position[0]) {
+            throw new IllegalArgumentException("Search trace has " + (data.length - position[0])
+                    + " bytes after the path but an event log of " + eventBytes);
+        }
+        byte[] events = slice(data, position, eventBytes);
+        return new SearchTrace(obstacles, events, numSteps, numEvents,
+                status == 0 ? null : SearchStatus.values()[(int) status - 1], path);
+    }
+
+    /**
+     * Reads a varint which must be a count that fits into an int.
+     */
+    private static int readCount(byte[] data, int[] position, String name) {
+        long value = GridPath.readVarint(data, position);
+        if(value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Search trace has an invalid " + name + " " + value);
+        }
+        return (int) value;
+    }
+
+    public void save(Path file) throws IOException {
+        Files.write(file, toBytes());
+    }
+
+    public static SearchTrace load(Path file) throws IOException {
+        return fromBytes(Files.readAllBytes(file));
+    }
+
+    private void writeObstacleRuns(ByteArrayOutputStream out) {
+        int width = obstacles.getWidth(), height = obstacles.getHeight();
+        ByteArrayOutputStream runs = new ByteArrayOutputStream();
+        int numRuns = 0;
+        boolean blocked = false;
+        long run = 0;
+        for(int y = 0; y < height; y++) {
+            for(int x = 0; x < width; x++) {
+                if(obstacles.get(x, y) != blocked) {
+                    GridPath.writeVarint(runs, run);
+                    numRuns++;
+                    blocked = !blocked;
+                    run = 0;
+                }
+                run++;
+            }
+        }
+        GridPath.writeVarint(runs, run);
+        numRuns++;
+
+        GridPath.writeVarint(out, numRuns);
+        out.writeBytes(runs.toByteArray());
+    }
+
+    /**
+     * Reads the obstacle runs, which must cover the map exactly. They are checked before the grid is allocated.
+     */
+    private static BitGrid readObstacleRuns(byte[] data, int[] position, int width, int height) {
+        long numCells = (long) width * height;
+        int numRuns = readCount(data, position, "number of obstacle runs");
+        int runsStart = position[0];
+        long cell = 0;
+        for(int i = 0; i < numRuns; i++) {
+            long run = GridPath.readVarint(data, position);
+            if(run < 0 || run > numCells - cell) {
+                throw new IllegalArgumentException("Obstacle runs exceed the map");
+            }
+            cell += run;
+        }
+        if(cell != numCells) {
+            throw new IllegalArgumentException("Obstacle runs cover " + cell + " of " + numCells + " cells");
+        }
+
+        BitGrid grid = new BitGrid(width, height);
+        position[0] = runsStart;
+        cell = 0;
+        for(int i = 0; i < numRuns; i++) {
+            long run = GridPath.readVarint(data, position);
+            if((i & 1) == 1) {
+                for(long c = cell; c < cell + run; c++) {
+                    grid.set((int) (c % width), (int) (c / width), true);
+                }
+            }
+            cell += run;
+        }
+        return grid;
+    }
+
+    private static byte[] slice(byte[] data, int[] position, int length) {
+        byte[] slice = new byte[length];
+        System.arraycopy(data, position[0], slice, 0, length);
+        position[0] += length;
+        return slice;
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public BitGrid getObstacles() {
+        return obstacles;
+    }
+
+    /**
+     * @return the event log, shared with the trace
+     */
+    byte[] getEvents() {
+        return events;
+    }
+
+    public int getNumSteps() {
+        return numSteps;
+    }
+
+    public long getNumEvents() {
+        return numEvents;
+    }
+
+    /**
+     * @return how the search ended, or null if it is not known
+     */
+    public SearchStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the found path, or null
+     */
+    public GridPath getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,259 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reusable per-thread state for searches, kept off the Java heap in direct buffers so that large searches neither
+ * fill the heap nor make the garbage collector scan millions of cells.
+ *
+ * Every cell has a packed 16 byte struct: float distance, int parent, int mark and int position in the open set.
+ * The open set is a binary heap in a second buffer of 8 byte entries: int cell and float key. Buffers are only
+ * allocated when a larger grid is searched, and are not cleared between searches. Instead every search gets a new
+ * generation number, and a cell only counts as seen when its mark belongs to the current generation.
+ *
+ * Distances and keys are floats. Float sums of many moves carry rounding errors, so on large maps two paths whose
+ * lengths differ by less than that error can be ordered wrongly, and a search may settle on one which is marginally
+ * longer than the shortest. The error grows with the number of moves, each adds a relative error of up to 6e-8.
+ *
+ * A workspace must only be used by one search at a time.
+ */
+public class SearchWorkspace {
+
+    private static final int CELL_BYTES = 16;
+    private static final int DIST = 0;
+    private static final int PARENT = 4;
+    private static final int MARK = 8;
+    private static final int HEAP_POSITION = 12;
+    private static final int ENTRY_BYTES = 8;
+
+    private ByteBuffer cells = allocate(0);
+    private ByteBuffer heap = allocate(0);
+    private int capacity;
+    private int openSize;
+
+    // result of the last search, the path array is reused by later searches
+    private int[] path = new int[0];
+    private int pathSize;
+    private int expansions;
+
+    // marks of the current search: seenMark for cells with a tentative distance, seenMark + 1 for closed cells
+    private int seenMark;
+
+    /**
+     * Prepares the workspace for a new search on a grid with the given number of cells.
+     * @param numCells - number of cells of the grid
+     * @throws IllegalArgumentException if the grid is too large for a single buffer
+     */
+    public void prepare(int numCells) {
+        if(capacity < numCells) {
+            if(numCells > Integer.MAX_VALUE / CELL_BYTES) {
+                throw new IllegalArgumentException("Grid of " + numCells + " cells is too large for a workspace");
+            }
+            cells = allocate(numCells * CELL_BYTES);
+            heap = allocate(numCells * ENTRY_BYTES);
+            capacity = numCells;
+            seenMark = 0;
+        }
+        openSize = 0;
+        seenMark += 2;
+        if(seenMark < 0) {
+            // the generation counter wrapped around, start over with clean marks
+            for(int cell = 0; cell < capacity; cell++) {
+                cells.putInt(cell * CELL_BYTES + MARK, 0);
+            }
+            seenMark = 2;
+        }
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * @return whether the cell has been reached in the current search
+     */
+    public boolean isSeen(int cell) {
+        int mark = cells.getInt(cell * CELL_BYTES + MARK);
+        return mark == seenMark || mark == seenMark + 1;
+    }
+
+    public boolean isClosed(int cell) {
+        return cells.getInt(cell * CELL_BYTES + MARK) == seenMark + 1;
+    }
+
+    /**
+     * @return the distance of the cell, or positive infinity if it has not been reached in the current search
+     */
+    public float getDist(int cell) {
+        return isSeen(cell) ? cells.getFloat(cell * CELL_BYTES + DIST) : Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Sets the distance and parent of a cell and marks it as seen.
+     */
+    public void reach(int cell, float distance, int parentCell) {
+        int base = cell * CELL_BYTES;
+        cells.putFloat(base + DIST, distance);
+        cells.putInt(base + PARENT, parentCell);
+        int mark = cells.getInt(base + MARK);
+        if(mark != seenMark && mark != seenMark + 1) {
+            cells.putInt(base + MARK, seenMark);
+            cells.putInt(base + HEAP_POSITION, -1);
+        }
+    }
+
+    public void close(int cell) {
+        cells.putInt(cell * CELL_BYTES + MARK, seenMark + 1);
+    }
+
+    public int getParent(int cell) {
+        return cells.getInt(cell * CELL_BYTES + PARENT);
+    }
+
+    /**
+     * Adds a seen cell to the open set, or changes its key if it is already in it.
+     */
+    public void pushOpen(int cell, float key) {
+        int position = cells.getInt(cell * CELL_BYTES + HEAP_POSITION);
+        if(position < 0) {
+            position = openSize++;
+            siftUp(position, cell, key);
+        } else if(key < heap.getFloat(position * ENTRY_BYTES + 4)) {
+            siftUp(position, cell, key);
+        } else {
+            siftDown(position, cell, key);
+        }
+    }
+
+    /**
+     * Removes the cell with the smallest key from the open set.
+     * @return the removed cell, or -1 if the open set is empty
+     */
+    public int pollOpen() {
+        if(openSize == 0) return -1;
+        int top = heap.getInt(0);
+        cells.putInt(top * CELL_BYTES + HEAP_POSITION, -1);
+        openSize--;
+        if(openSize > 0) {
+            int last = openSize * ENTRY_BYTES;
+            siftDown(0, heap.getInt(last), heap.getFloat(last + 4));
+        }
+        return top;
+    }
+
+    /**
+     * @return the smallest key in the open set, which must not be empty
+     */
+    public float peekOpenKey() {
+        return heap.getFloat(4);
+    }
+
+    public boolean isOpenEmpty() {
+        return openSize == 0;
+    }
+
+    public int getOpenSize() {
+        return openSize;
+    }
+
+    private void siftUp(int position, int cell, float key) {
+        while(position > 0) {
+            int parentPosition = (position - 1) >>> 1;
+            float parentKey = heap.getFloat(parentPosition * ENTRY_BYTES + 4);
+            if(parentKey <= key) break;
+            move(parentPosition, position);
+            position = parentPosition;
+        }
+        put(position, cell, key);
+    }
+
+    private void siftDown(int position, int cell, float key) {
+        int half = openSize >>> 1;
+        while(position < half) {
+            int child = 2 * position + 1;
+            float childKey = heap.getFloat(child * ENTRY_BYTES + 4);
+            int right = child + 1;
+            if(right < openSize) {
+                float rightKey = heap.getFloat(right * ENTRY_BYTES + 4);
+                if(rightKey < childKey) {
+                    child = right;
+                    childKey = rightKey;
+                }
+            }
+            if(childKey >= key) break;
+            move(child, position);
+            position = child;
+        }
+        put(position, cell, key);
+    }
+
+    private void move(int from, int to) {
+        int cell = heap.getInt(from * ENTRY_BYTES);
+        heap.putLong(to * ENTRY_BYTES, heap.getLong(from * ENTRY_BYTES));
+        cells.putInt(cell * CELL_BYTES + HEAP_POSITION, to);
+    }
+
+    private void put(int position, int cell, float key) {
+        heap.putInt(position * ENTRY_BYTES, cell);
+        heap.putFloat(position * ENTRY_BYTES + 4, key);
+        cells.putInt(cell * CELL_BYTES + HEAP_POSITION, position);
+    }
+
+    /**
+     * Stores the result of a search: the path is followed from the goal through the parents and written from start to
+     * goal into an array which is only grown, never replaced by a smaller one.
+     * @param goal - the reached goal, or -1 if no path has been found
+     * @param expansions - number of expanded cells
+     */
+    void finish(int goal, int expansions) {
+        this.expansions = expansions;
+        int size = 0;
+        for(int cell = goal; cell != -1; cell = getParent(cell)) {
+            size++;
+        }
+        if(path.length < size) {
+            path = new int[Math.max(size, 2 * path.length)];
+        }
+        for(int cell = goal, i = size; cell != -1; cell = getParent(cell)) {
+            path[--i] = cell;
+        }
+        pathSize = size;
+    }
+
+    /**
+     * @return the cells of the path of the last search, from start to goal, in the first {@link #getPathSize()}
+     * entries. The array belongs to the workspace and is overwritten by the next search
+     */
+    public int[] getPathCells() {
+        return path;
+    }
+
+    /**
+     * @return number of cells of the path of the last search, 0 if no path has been found
+     */
+    public int getPathSize() {
+        return pathSize;
+    }
+
+    /**
+     * @return number of cells the last search expanded
+     */
+    public int getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * @return the number of cells the workspace currently has room for
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return bytes of off-heap memory held by the workspace
+     */
+    public long getOffHeapBytes() {
+        return (long) capacity * (CELL_BYTES + ENTRY_BYTES);
+    }
+}
@@ -0,0 +1,178 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Lazy Theta*, an any-angle variant of A*. A node may take the parent of the node it was reached from as its own
+ * parent, so that paths are straight lines between waypoints instead of steps between neighboring cells. The line of
+ * sight to the inherited parent is only checked when the node is expanded, which saves most of the checks.
+ *
+ * Path lengths are euclidean distances between the waypoints, and {@link #getPath()} returns the waypoints only.
+ */
+public class ThetaStar extends PathAlgorithm {
+
+    private final LineOfSight lineOfSight;
+    private final int goal;
+    private final int width;
+
+    private final double[] g;
+    private final int[] parent;
+    private final boolean[] closed;
+    private final IndexedMinHeap open;
+    private final int goalX;
+    private final int goalY;
+
+    /**
+     * @param startPoint - start coordinate
+     * @param endPoint - end coordinate
+     * @param graph - the graph representation
+     */
+    public ThetaStar(Point startPoint, Point endPoint, Graph graph) {
+        super(graph);
+        preProcessNodes(startPoint, endPoint);
+        lineOfSight = new LineOfSight(BitGrid.fromObstacles(graph));
+        width = MAX_X_COORDINATE;
+        goalX = endPoint.x;
+        goalY = endPoint.y;
+
+        int numCells = MAX_X_COORDINATE * MAX_Y_COORDINATE;
+        g = new double[numCells];
+        parent = new int[numCells];
+        closed = new boolean[numCells];
+        open = new IndexedMinHeap(numCells);
+        Arrays.fill(g, Double.POSITIVE_INFINITY);
+        Arrays.fill(parent, -1);
+
+        int start = graph.indexOf(startNode);
+        goal = graph.indexOf(endNode);
+        g[start] = 0;
+        parent[start] = start;
+        open.addOrUpdate(start, heuristic(start));
+    }
+
+    @Override
+    public void visitNext() {
+        int current = open.poll();
+        if(current < 0) {
+            exhausted = true;
+            return;
+        }
+        setVertex(current);
+        closed[current] = true;
+        graph.getNode(current).setState(NodeState.VISITED);
+        traceExpanded(current);
+        if(current == goal) return;
+
+        int currentParent = parent[current];
+        for(int mask = graph.getNeighborMask(current); mask != 0; mask &= mask - 1) {
+            int neighbor = graph.getNeighborIndex(current, Integer.numberOfTrailingZeros(mask));
+            if(closed[neighbor]) continue;
+
+            // assume the neighbor can see the parent of the current node, this is verified in setVertex
+            double distance = g[currentParent] + distance(currentParent, neighbor);
+            if(distance < g[neighbor]) {
+                g[neighbor] = distance;
+                parent[neighbor] = currentParent;
+                open.addOrUpdate(neighbor, distance + heuristic(neighbor));
+                traceReached(neighbor);
+            }
+        }
+    }
+
+    /**
+     * Verifies the line of sight to the assumed parent, and otherwise picks the best expanded neighbor as parent.
+     */
+    private void setVertex(int node) {
+        int nodeParent = parent[node];
+        if(nodeParent == node || lineOfSight.isClear(x(nodeParent), y(nodeParent), x(node), y(node))) return;
+
+        g[node] = Double.POSITIVE_INFINITY;
+        for(int mask = graph.getNeighborMask(node); mask != 0; mask &= mask - 1) {
+            int direction = Integer.numberOfTrailingZeros(mask);
+            int neighbor = graph.getNeighborIndex(node, direction);
+            if(!closed[neighbor]) continue;
+
+            double distance = g[neighbor] + Direction.cost(direction);
+            if(distance < g[node]) {
+                g[node] = distance;
+                parent[node] = neighbor;
+            }
+        }
+    }
+
+    @Override
+    public boolean pathIsFound() {
+        return closed[goal];
+    }
+
+    /**
+     * @return the waypoints of the path, from end node to start node
+     */
+    @Override
+    public ArrayList<Node> getPath() {
+        ArrayList<Node> list = new ArrayList<>();
+        if(!closed[goal]) return list;
+
+        int node = goal;
+        list.add(graph.getNode(node));
+        while(parent[node] != node) {
+            node = parent[node];
+            list.add(graph.getNode(node));
+        }
+        return list;
+    }
+
+    /**
+     * @return the waypoints of the path from start node to end node
+     */
+    @Override
+    public GridPath getGridPath() {
+        if(!closed[goal]) {
+            return new GridPath(width, new int[0], 0);
+        }
+        int size = 1;
+        for(int node = goal; parent[node] != node; node = parent[node]) {
+            size++;
+        }
+        int[] cells = new int[size];
+        copyPath(cells);
+        return new GridPath(width, cells, size);
+    }
+
+    @Override
+    public int copyPath(int[] cells) {
+        if(!closed[goal]) return 0;
+        int size = 1;
+        for(int node = goal; parent[node] != node; node = parent[node]) {
+            size++;
+        }
+        int i = size;
+        cells[--i] = goal;
+        for(int node = goal; parent[node] != node; node = parent[node]) {
+            cells[--i] = parent[node];
+        }
+        return size;
+    }
+
+    @Override
+    public double getFoundPathDistance() {
+        return g[goal];
+    }
+
+    private double heuristic(int node) {
+        return Math.hypot(x(node) - goalX, y(node) - goalY);
+    }
+
+    private double distance(int a, int b) {
+        return Math.hypot(x(a) - x(b), y(a) - y(b));
+    }
+
+    private int x(int node) {
+        return node % width;
+    }
+
+    private int y(int node) {
+        return node / width;
+    }
+}
@@ -0,0 +1,204 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A* on a {@link TiledGrid}. The search state is kept per reached cell in hash tables instead of arrays over the whole
+ * map, so its memory grows with the number of reached cells and is capped by a state limit, while the map itself is
+ * paged in and out by the grid. Together the memory of a query stays bounded on maps of any size.
+ *
+ * Cells are identified by y * width + x as a long, since large maps have more cells than an int can count.
+ */
+public class TiledAStar {
+
+    public static final int DEFAULT_MAX_STATES = 1 << 24;
+    private static final int INITIAL_STATES = 1 << 12;
+
+    private final TiledGrid grid;
+    private final int width;
+    private final int maxStates;
+
+    // states, numbered in the order they are reached
+    private long[] cells = new long[INITIAL_STATES];
+    private double[] dists = new double[INITIAL_STATES];
+    private int[] parents = new int[INITIAL_STATES];
+    private boolean[] closed = new boolean[INITIAL_STATES];
+    private int numStates;
+    private final IndexedMinHeap open = new IndexedMinHeap(INITIAL_STATES);
+
+    // cell to state, open addressing
+    private long[] tableCells = new long[INITIAL_STATES * 2];
+    private int[] tableStates = new int[INITIAL_STATES * 2];
+
+    private long[] path;
+    private double distance;
+    private int expansions;
+
+    public TiledAStar(TiledGrid grid) {
+        this(grid, DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * @param grid - the grid to search
+     * @param maxStates - maximum number of cells a search may reach before it gives up
+     */
+    public TiledAStar(TiledGrid grid, int maxStates) {
+        this.grid = grid;
+        width = grid.getWidth();
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * Finds the shortest 8-connected path between two cells.
+     * @return {@link SearchStatus#FOUND} and the path through {@link #getPath()}, {@link SearchStatus#UNREACHABLE},
+     * or {@link SearchStatus#LIMIT_EXCEEDED} if more cells than the state limit had to be reached
+     */
+    public SearchStatus search(int startX, int startY, int endX, int endY) {
+        path = null;
+        distance = Double.POSITIVE_INFINITY;
+        expansions = 0;
+        if(!isFree(startX, startY) || !isFree(endX, endY)) return SearchStatus.UNREACHABLE;
+
+        clear();
+        long goal = (long) endY * width + endX;
+        int first = getState((long) startY * width + startX);
+        dists[first] = 0;
+        open.addOrUpdate(first, PathAlgorithm.getOctileDistance(startX, startY, endX, endY));
+
+        while(!open.isEmpty()) {
+            int current = open.poll();
+            closed[current] = true;
+            expansions++;
+            long cell = cells[current];
+            if(cell == goal) {
+                distance = dists[current];
+                path = buildPath(current);
+                return SearchStatus.FOUND;
+            }
+
+            int x = (int) (cell % width), y = (int) (cell / width);
+            for(int d = 0; d < Direction.COUNT; d++) {
+                int nx = x + Direction.dx(d), ny = y + Direction.dy(d);
+                if(!isFree(nx, ny)) continue;
+
+                int neighbor = getState((long) ny * width + nx);
+                if(neighbor < 0) return SearchStatus.LIMIT_EXCEEDED;
+                if(closed[neighbor]) continue;
+
+                double dist = dists[current] + Direction.cost(d);
+                if(dist < dists[neighbor]) {
+                    dists[neighbor] = dist;
+                    parents[neighbor] = current;
+                    open.addOrUpdate(neighbor, dist + PathAlgorithm.getOctileDistance(nx, ny, endX, endY));
+                }
+            }
+        }
+        return SearchStatus.UNREACHABLE;
+    }
+
+    private void clear() {
+        open.clear();
+        numStates = 0;
+        Arrays.fill(tableCells, -1);
+    }
+
+    /**
+     * Finds or creates the state of a cell.
+     * @return the state, or -1 if the state limit has been reached
+     */
+    private int getState(long cell) {
+        int mask = tableCells.length - 1;
+        int slot = slotOf(cell, mask);
+        while(tableCells[slot] != -1) {
+            if(tableCells[slot] == cell) return tableStates[slot];
+            slot = (slot + 1) & mask;
+        }
+        if(numStates == maxStates) return -1;
+        if(numStates == cells.length) {
+            grow();
+            return getState(cell);
+        }
+
+        int state = numStates++;
+        tableCells[slot] = cell;
+        tableStates[slot] = state;
+        cells[state] = cell;
+        dists[state] = Double.POSITIVE_INFINITY;
+        parents[state] = -1;
+        closed[state] = false;
+        return state;
+    }
+
+    /**
+     * Doubles the room for states, and rebuilds the table at twice the number of states.
+     */
+    private void grow() {
+        int capacity = (int) Math.min(maxStates, cells.length * 2L);
+        cells = Arrays.copyOf(cells, capacity);
+        dists = Arrays.copyOf(dists, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        closed = Arrays.copyOf(closed, capacity);
+        open.ensureCapacity(capacity);
+
+        tableCells = new long[Integer.highestOneBit(capacity - 1) << 2];
+        tableStates = new int[tableCells.length];
+        Arrays.fill(tableCells, -1);
+        int mask = tableCells.length - 1;
+        for(int state = 0; state < numStates; state++) {
+            int slot = slotOf(cells[state], mask);
+            while(tableCells[slot] != -1) {
+                slot = (slot + 1) & mask;
+            }
+            tableCells[slot] = cells[state];
+            tableStates[slot] = state;
+        }
+    }
+
+    private static int slotOf(long cell, int mask) {
+        return (int) ((cell * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private long[] buildPath(int state) {
+        int size = 0;
+        for(int s = state; s != -1; s = parents[s]) {
+            size++;
+        }
+        long[] result = new long[size];
+        for(int s = state; s != -1; s = parents[s]) {
+            result[--size] = cells[s];
+        }
+        return result;
+    }
+
+    private boolean isFree(int x, int y) {
+        return grid.contains(x, y) && !grid.get(x, y);
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    /**
+     * @return the cells of the path found by the last search from start to end, or null
+     */
+    public long[] getPath() {
+        return path;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public int getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * @return number of cells reached by the last search
+     */
+    public int getNumStates() {
+        return numStates;
+    }
+
+    public TiledGrid getGrid() {
+        return grid;
+    }
+}
@@ -0,0 +1,216 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Obstacle grid which is read from a {@link GridMapFile} in square chunks, only when a cell of a chunk is first
+ * looked at. At most a fixed number of chunks, derived from a memory budget, is kept in memory, and the least recently
+ * used chunk is dropped when another one has to be loaded. The map file never changes, so a dropped chunk is simply
+ * read again when it is needed, and a search sees the same grid no matter which chunks are in memory.
+ *
+ * Chunks are a multiple of 64 cells wide, so that every row of a chunk is a run of whole words of the map file.
+ * A grid is meant to be used by one thread at a time.
+ */
+public class TiledGrid implements Closeable {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+
+    private final GridMapFile file;
+    private final int width;
+    private final int height;
+    private final int chunkSize;
+    private final int chunkWords;
+    private final int chunkShift;
+    private final int chunksPerRow;
+    private final int maxChunks;
+    private final Map<Long, long[]> chunks;
+
+    // the chunk of the previous lookup, checked before the map since searches mostly stay within a chunk
+    private long lastKey = -1;
+    private long[] lastChunk;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long loadNanos;
+    private long maxLoadNanos;
+
+    /**
+     * @param file - the opened map file, closed together with the grid
+     * @param chunkSize - side length of the chunks, a power of two and at least 64
+     * @param memoryBudget - bytes of chunk data which may be kept in memory, at least one chunk is always kept
+     */
+    public TiledGrid(GridMapFile file, int chunkSize, long memoryBudget) {
+        if(chunkSize < 64 || Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException("Chunk size must be a power of two of at least 64, was " + chunkSize);
+        }
+        this.file = file;
+        width = file.getWidth();
+        height = file.getHeight();
+        this.chunkSize = chunkSize;
+        chunkWords = chunkSize >>> 6;
+        chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+        chunksPerRow = (width + chunkSize - 1) >>> chunkShift;
+        maxChunks = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / getChunkBytes()));
+        chunks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                if(size() <= maxChunks) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Opens a map file as a grid with chunks of {@link #DEFAULT_CHUNK_SIZE} cells.
+     * @param path - path to the map file
+     * @param memoryBudget - bytes of chunk data which may be kept in memory
+     * @throws IOException if the file can't be read or is not a map file
+     */
+    public static TiledGrid open(Path path, long memoryBudget) throws IOException {
+        return new TiledGrid(GridMapFile.open(path), DEFAULT_CHUNK_SIZE, memoryBudget);
+    }
+
+    /**
+     * Determines if a cell is an obstacle, loading its chunk if needed.
+     * @throws UncheckedIOException if the chunk can't be read
+     */
+    public boolean get(int x, int y) {
+        int chunkX = x >>> chunkShift, chunkY = y >>> chunkShift;
+        long key = (long) chunkY * chunksPerRow + chunkX;
+        long[] chunk;
+        if(key == lastKey) {
+            hits++;
+            chunk = lastChunk;
+        } else {
+            chunk = getChunk(key, chunkX, chunkY);
+            lastKey = key;
+            lastChunk = chunk;
+        }
+        int localX = x & (chunkSize - 1), localY = y & (chunkSize - 1);
+        return (chunk[localY * chunkWords + (localX >>> 6)] >>> localX & 1) != 0;
+    }
+
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    private long[] getChunk(long key, int chunkX, int chunkY) {
+        long[] chunk = chunks.get(key);
+        if(chunk != null) {
+            hits++;
+            return chunk;
+        }
+        misses++;
+        long start = System.nanoTime();
+        chunk = load(chunkX, chunkY);
+        long nanos = System.nanoTime() - start;
+        loadNanos += nanos;
+        maxLoadNanos = Math.max(maxLoadNanos, nanos);
+        chunks.put(key, chunk);
+        return chunk;
+    }
+
+    /**
+     * Reads the rows of a chunk. Chunks at the right and bottom edge are padded with free cells.
+     */
+    private long[] load(int chunkX, int chunkY) {
+        long[] chunk = new long[chunkSize * chunkWords];
+        int firstWord = chunkX * chunkWords;
+        int numWords = Math.min(chunkWords, file.getWordsPerRow() - firstWord);
+        int firstRow = chunkY << chunkShift;
+        int numRows = Math.min(chunkSize, height - firstRow);
+        try {
+            for(int row = 0; row < numRows; row++) {
+                file.readWords(firstRow + row, firstWord, numWords, chunk, row * chunkWords);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunk;
+    }
+
+    /**
+     * Drops all chunks from memory. The counters are kept.
+     */
+    public void evictAll() {
+        chunks.clear();
+        lastKey = -1;
+        lastChunk = null;
+    }
+
+    public void resetCounters() {
+        hits = misses = evictions = loadNanos = maxLoadNanos = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        evictAll();
+        file.close();
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public long getChunkBytes() {
+        return (long) chunkSize * chunkWords * 8;
+    }
+
+    public int getMaxChunks() {
+        return maxChunks;
+    }
+
+    public int getResidentChunks() {
+        return chunks.size();
+    }
+
+    /**
+     * @return number of lookups whose chunk was in memory
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of lookups which had to load their chunk
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return total time spent loading chunks
+     */
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+
+    public long getMaxLoadNanos() {
+        return maxLoadNanos;
+    }
+
+    public double getMeanLoadMicros() {
+        return misses == 0 ? 0 : loadNanos / 1000.0 / misses;
+    }
+}
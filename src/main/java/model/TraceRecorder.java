@@ -0,0 +1,84 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Records the expansion order and frontier changes of a search as a compact log. Every event is a single varint of
+ * the zigzag encoded difference to the cell index of the previous event, shifted left by one with the event type in
+ * the lowest bit. Searches mostly move between nearby cells, so most events take one or two bytes.
+ *
+ * Every expansion starts a new step, and the frontier events which follow it belong to that step.
+ */
+public class TraceRecorder {
+
+    static final int EXPANDED = 0;
+    static final int REACHED = 1;
+
+    private byte[] events = new byte[1024];
+    private int length;
+    private int lastCell;
+    private int numSteps;
+    private long numEvents;
+
+    /**
+     * Records the expansion of a cell, which starts a new step.
+     * @param cell - cell index of the expanded node
+     */
+    public void expanded(int cell) {
+        numSteps++;
+        write(cell, EXPANDED);
+    }
+
+    /**
+     * Records a cell which has been added to the frontier or got a better distance.
+     * @param cell - cell index of the node
+     */
+    public void reached(int cell) {
+        write(cell, REACHED);
+    }
+
+    private void write(int cell, int type) {
+        long delta = (long) cell - lastCell;
+        lastCell = cell;
+        long value = (((delta << 1) ^ (delta >> 63)) << 1) | type;
+
+        if(length + 10 > events.length) {
+            events = Arrays.copyOf(events, events.length * 2);
+        }
+        while((value & ~0x7FL) != 0) {
+            events[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        events[length++] = (byte) value;
+        numEvents++;
+    }
+
+    /**
+     * Ends the recording.
+     *
+     * @param obstacles - obstacles of the searched map, stored in the trace so that it can be shown on its own
+     * @param status - how the search ended
+     * @param path - the found path, or null
+     * @return the recorded trace
+     */
+    public SearchTrace finish(BitGrid obstacles, SearchStatus status, GridPath path) {
+        return new SearchTrace(obstacles, Arrays.copyOf(events, length), numSteps, numEvents, status, path);
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public int getNumSteps() {
+        return numSteps;
+    }
+
+    public long getNumEvents() {
+        return numEvents;
+    }
+
+    /**
+     * @return number of bytes of the event log so far
+     */
+    public int getByteSize() {
+        return length;
+    }
+}
@@ -0,0 +1,176 @@
+package model;
+
+/**
+ * Replays a {@link SearchTrace} without running the search again. The replayer holds the state of the search after
+ * a given step, which cells have been expanded and which are on the frontier, and can move to any step.
+ *
+ * Moving forward decodes the events in between. To move backwards, the state is restored from the closest keyframe
+ * before the target and decoded forward from there. Keyframes are taken while the trace is read the first time, at
+ * most {@link #MAX_KEYFRAMES} of them, so seeking never decodes more than one keyframe interval of events.
+ */
+public class TraceReplayer {
+
+    public static final int MAX_KEYFRAMES = 64;
+    private static final int MIN_KEYFRAME_INTERVAL = 256;
+
+    private final SearchTrace trace;
+    private final byte[] events;
+    private final BitGrid expanded;
+    private final BitGrid frontier;
+    private final int width;
+    private final int keyframeInterval;
+    private final Keyframe[] keyframes;
+
+    private int step;
+    private int position;
+    private int lastCell;
+
+    public TraceReplayer(SearchTrace trace) {
+        this.trace = trace;
+        events = trace.getEvents();
+        BitGrid obstacles = trace.getObstacles();
+        width = obstacles.getWidth();
+        expanded = new BitGrid(width, obstacles.getHeight());
+        frontier = new BitGrid(width, obstacles.getHeight());
+
+        int numSteps = trace.getNumSteps();
+        keyframeInterval = Math.max(MIN_KEYFRAME_INTERVAL, (numSteps + MAX_KEYFRAMES - 1) / MAX_KEYFRAMES);
+        keyframes = new Keyframe[numSteps / keyframeInterval + 1];
+
+        // frontier events before the first expansion belong to step 0
+        applyFrontierEvents();
+        keyframes[0] = new Keyframe();
+        while(step < numSteps) {
+            advance();
+            if(step % keyframeInterval == 0) {
+                keyframes[step / keyframeInterval] = new Keyframe();
+            }
+        }
+        keyframes[0].restore();
+    }
+
+    /**
+     * Moves to the state right after the given step, where step 0 is the state before the first expansion.
+     * @param target - the step, clamped to [0, number of steps]
+     */
+    public void seek(int target) {
+        target = Math.max(0, Math.min(trace.getNumSteps(), target));
+        if(target < step || target - step > keyframeInterval) {
+            Keyframe keyframe = keyframes[target / keyframeInterval];
+            if(target < step || keyframe.step > step) {
+                keyframe.restore();
+            }
+        }
+        while(step < target) {
+            advance();
+        }
+    }
+
+    /**
+     * Moves the given number of steps forward, or backwards if negative.
+     */
+    public void step(int steps) {
+        seek((int) Math.max(0, Math.min(Integer.MAX_VALUE, (long) step + steps)));
+    }
+
+    /**
+     * Decodes one expansion and the frontier events following it.
+     */
+    private void advance() {
+        apply(readEvent());
+        step++;
+        applyFrontierEvents();
+    }
+
+    private void applyFrontierEvents() {
+        // the type is in the lowest bit of the first byte of each event
+        while(position < events.length && (events[position] & 1) == TraceRecorder.REACHED) {
+            apply(readEvent());
+        }
+    }
+
+    private void apply(int event) {
+        int x = lastCell % width, y = lastCell / width;
+        if(event == TraceRecorder.EXPANDED) {
+            expanded.set(x, y, true);
+            frontier.set(x, y, false);
+        } else if(!expanded.get(x, y)) {
+            frontier.set(x, y, true);
+        }
+    }
+
+    /**
+     * Reads the next event and moves lastCell to its cell.
+     * @return the type of the event
+     */
+    private int readEvent() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = events[position++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while(b < 0);
+
+        long zigzag = value >>> 1;
+        lastCell += (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+        return (int) (value & 1);
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public SearchTrace getTrace() {
+        return trace;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public int getNumSteps() {
+        return trace.getNumSteps();
+    }
+
+    public boolean isAtEnd() {
+        return step == trace.getNumSteps();
+    }
+
+    /**
+     * @return the cells expanded up to the current step, changed in place as the replayer moves
+     */
+    public BitGrid getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * @return the cells on the frontier at the current step, changed in place as the replayer moves
+     */
+    public BitGrid getFrontier() {
+        return frontier;
+    }
+
+    public BitGrid getObstacles() {
+        return trace.getObstacles();
+    }
+
+    /**
+     * Snapshot of the replay state at a step.
+     */
+    private class Keyframe {
+
+        final int step = TraceReplayer.this.step;
+        final int position = TraceReplayer.this.position;
+        final int lastCell = TraceReplayer.this.lastCell;
+        final long[] expandedWords = expanded.getWords().clone();
+        final long[] frontierWords = frontier.getWords().clone();
+
+        void restore() {
+            TraceReplayer.this.step = step;
+            TraceReplayer.this.position = position;
+            TraceReplayer.this.lastCell = lastCell;
+            System.arraycopy(expandedWords, 0, expanded.getWords(), 0, expandedWords.length);
+            System.arraycopy(frontierWords, 0, frontier.getWords(), 0, frontierWords.length);
+        }
+    }
+}
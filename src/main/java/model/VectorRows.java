@@ -0,0 +1,109 @@
+package model;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Row operations of {@link DistanceTransform} on the incubating Vector API. Only loaded when the module
+ * jdk.incubator.vector is present, the transform falls back to plain loops otherwise.
+ */
+final class VectorRows {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    // distance from each lane to the cell before the vector, scanning right or left
+    private static final float[] ASCENDING = ramp(SPECIES.length(), false);
+    private static final float[] DESCENDING = ramp(SPECIES.length(), true);
+
+    private VectorRows() {
+    }
+
+    /**
+     * Lowers the distances of the inner cells of a row to those through the three cells next to them in a
+     * neighboring row, as many lanes at a time as the hardware has.
+     *
+     * @param distances - distances of the whole grid, row after row
+     * @param row - index of the first cell of the row
+     * @param neighborRow - index of the first cell of the row above or below
+     * @param width - width of the grid
+     * @return the first x which has not been done, the rest of the row is left to the caller
+     */
+    static int relaxFromRow(float[] distances, int row, int neighborRow, int width) {
+        int x = 1;
+        for(; x + SPECIES.length() < width; x += SPECIES.length()) {
+            FloatVector straight = FloatVector.fromArray(SPECIES, distances, neighborRow + x).add(1f);
+            FloatVector left = FloatVector.fromArray(SPECIES, distances, neighborRow + x - 1).add(DistanceTransform.DIAGONAL);
+            FloatVector right = FloatVector.fromArray(SPECIES, distances, neighborRow + x + 1).add(DistanceTransform.DIAGONAL);
+            FloatVector.fromArray(SPECIES, distances, row + x).min(straight).min(left.min(right))
+                    .intoArray(distances, row + x);
+        }
+        return x;
+    }
+
+    /**
+     * Lowers every cell of a row to the distance through the cells to its left, d[x] = min(d[x], d[x - 1] + 1),
+     * which is a prefix minimum. Within a vector it takes log2(lanes) steps of shifting the lanes right by 1, 2, 4 and
+     * so on, each shifted lane adding the distance it moved, and the last lane of a vector is carried into the next.
+     *
+     * @return the first x which has not been done
+     */
+    static int scanRight(float[] distances, int row, int width) {
+        int lanes = SPECIES.length();
+        FloatVector infinity = FloatVector.broadcast(SPECIES, Float.POSITIVE_INFINITY);
+        FloatVector offsets = FloatVector.fromArray(SPECIES, ASCENDING, 0);
+        float carry = Float.POSITIVE_INFINITY;
+        int x = 0;
+        for(; x + lanes <= width; x += lanes) {
+            FloatVector v = FloatVector.fromArray(SPECIES, distances, row + x);
+            for(int shift = 1; shift < lanes; shift <<= 1) {
+                v = v.min(infinity.slice(lanes - shift, v).add(shift));
+            }
+            v = v.min(offsets.add(carry));
+            v.intoArray(distances, row + x);
+            carry = v.lane(lanes - 1);
+        }
+        return x;
+    }
+
+    /**
+     * Lowers every cell of a row to the distance through the cells to its right, the mirror image of
+     * {@link #scanRight}, starting at the right end of the row.
+     *
+     * @return the x of the last cell which has not been done, -1 if the whole row has been done
+     */
+    static int scanLeft(float[] distances, int row, int width) {
+        int lanes = SPECIES.length();
+        FloatVector infinity = FloatVector.broadcast(SPECIES, Float.POSITIVE_INFINITY);
+        FloatVector offsets = FloatVector.fromArray(SPECIES, DESCENDING, 0);
+        float carry = Float.POSITIVE_INFINITY;
+        int x = width - lanes;
+        for(; x >= 0; x -= lanes) {
+            FloatVector v = FloatVector.fromArray(SPECIES, distances, row + x);
+            for(int shift = 1; shift < lanes; shift <<= 1) {
+                v = v.min(v.slice(shift, infinity).add(shift));
+            }
+            v = v.min(offsets.add(carry));
+            v.intoArray(distances, row + x);
+            carry = v.lane(0);
+        }
+        return x + lanes - 1;
+    }
+
+    /**
+     * @return 1, 2, ..., lanes, or the other way round
+     */
+    private static float[] ramp(int lanes, boolean descending) {
+        float[] ramp = new float[lanes];
+        for(int i = 0; i < lanes; i++) {
+            ramp[i] = descending ? lanes - i : i + 1;
+        }
+        return ramp;
+    }
+
+    /**
+     * @return number of floats in a vector
+     */
+    static int getLanes() {
+        return SPECIES.length();
+    }
+}
@@ -2,6 +2,9 @@ module com.example.pathfinder {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.desktop;
+    requires jdk.httpserver;
+    // optional, DistanceTransform uses it when the JVM is started with --add-modules jdk.incubator.vector
+    requires static jdk.incubator.vector;
 
 
     opens startup to javafx.fxml;
@@ -0,0 +1,117 @@
+package service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency statistics per endpoint. Latencies are counted in histograms with one bucket per power of two microseconds,
+ * so recording is a few atomic increments without locks, and quantiles are reported as the upper bound of the bucket
+ * they fall into, which is at most a factor of two too high.
+ */
+public class LatencyMetrics {
+
+    private static final int BUCKETS = 40;
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Records one call of an endpoint.
+     *
+     * @param endpoint - name of the endpoint
+     * @param nanos - latency of the call
+     * @param error - whether the call failed
+     */
+    public void record(String endpoint, long nanos, boolean error) {
+        endpoints.computeIfAbsent(endpoint, name -> new Endpoint()).record(nanos, error);
+    }
+
+    public Endpoint getEndpoint(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    /**
+     * @return the statistics of all endpoints as a JSON object
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        endpoints.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+            if(json.length() > 1) json.append(',');
+            json.append('"').append(entry.getKey()).append("\":");
+            entry.getValue().appendJson(json);
+        });
+        return json.append('}').toString();
+    }
+
+    /**
+     * Statistics of a single endpoint.
+     */
+    public static class Endpoint {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        void record(long nanos, boolean error) {
+            count.increment();
+            if(error) errors.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            long micros = Math.max(1, nanos / 1000);
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros)));
+        }
+
+        /**
+         * @param quantile - quantile in [0, 1]
+         * @return upper bound of the given latency quantile in microseconds, or 0 if nothing has been recorded
+         */
+        public long getQuantileMicros(double quantile) {
+            long total = 0;
+            for(int i = 0; i < BUCKETS; i++) {
+                total += buckets.get(i);
+            }
+            if(total == 0) return 0;
+
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for(int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if(seen >= rank && seen > 0) return 2L << i;
+            }
+            return 2L << (BUCKETS - 1);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public double getMeanMicros() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1000.0 / n;
+        }
+
+        public long getMaxMicros() {
+            return maxNanos.get() / 1000;
+        }
+
+        void appendJson(StringBuilder json) {
+            json.append("{\"count\":").append(getCount())
+                    .append(",\"errors\":").append(getErrors())
+                    .append(",\"meanMicros\":").append(String.format(Locale.ROOT, "%.1f", getMeanMicros()))
+                    .append(",\"p50Micros\":").append(getQuantileMicros(0.5))
+                    .append(",\"p90Micros\":").append(getQuantileMicros(0.9))
+                    .append(",\"p99Micros\":").append(getQuantileMicros(0.99))
+                    .append(",\"maxMicros\":").append(getMaxMicros())
+                    .append('}');
+        }
+    }
+}
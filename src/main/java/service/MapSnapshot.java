@@ -0,0 +1,57 @@
+package service;
+
+import model.BitGrid;
+import model.ConnectivityIndex;
+import model.GridAStar;
+
+/**
+ * An uploaded map at one version. Snapshots are never changed once created: uploading a map again replaces its
+ * snapshot, while queries already running keep using the snapshot they started with.
+ */
+public class MapSnapshot {
+
+    private final String id;
+    private final long version;
+    private final BitGrid obstacles;
+    private final ConnectivityIndex connectivity;
+    private final GridAStar engine;
+
+    /**
+     * @param id - name of the map
+     * @param version - version of the map, unique among all uploads
+     * @param obstacles - grid where obstacles are set, it must not be changed afterwards
+     */
+    public MapSnapshot(String id, long version, BitGrid obstacles) {
+        this.id = id;
+        this.version = version;
+        this.obstacles = obstacles;
+        connectivity = new ConnectivityIndex(obstacles);
+        engine = new GridAStar(obstacles);
+    }
+
+    public boolean contains(int x, int y) {
+        return obstacles.contains(x, y);
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public String getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public BitGrid getObstacles() {
+        return obstacles;
+    }
+
+    public ConnectivityIndex getConnectivity() {
+        return connectivity;
+    }
+
+    public GridAStar getEngine() {
+        return engine;
+    }
+}
@@ -0,0 +1,341 @@
+package service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.BitGrid;
+import model.GridMapFile;
+import model.GridPath;
+import model.PathResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pathfinding as a local HTTP service, built on the HTTP server of the JDK and bound to the loopback address only.
+ *
+ * Endpoints:
+ * <ul>
+ *     <li>PUT /maps/{id} - uploads a map in the {@link GridMapFile} format and answers with its new version</li>
+ *     <li>GET /maps/{id}/path?from=x,y&amp;to=x,y - finds a path on the current version of the map. The answer is JSON,
+ *     or binary when the request accepts application/octet-stream: status ordinal (1 byte), map version (8 bytes),
+ *     distance (8 bytes) and the path as encoded by {@link GridPath#encode()}, all little-endian</li>
+ *     <li>GET /metrics - latency per endpoint and batching statistics as JSON</li>
+ * </ul>
+ *
+ * Every request gets its own virtual thread when the JDK has them, and otherwise a thread from a cached pool. Searches
+ * themselves go through a {@link QueryBatcher}, so only a fixed number of them run at the same time.
+ */
+public class PathService implements Closeable {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final String BINARY_TYPE = "application/octet-stream";
+    public static final long QUERY_TIMEOUT_MILLIS = 10_000;
+
+    private static final String UPLOAD_ENDPOINT = "PUT /maps";
+    private static final String PATH_ENDPOINT = "GET /maps/path";
+    private static final String METRICS_ENDPOINT = "GET /metrics";
+
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final QueryBatcher batcher;
+    private final LatencyMetrics metrics = new LatencyMetrics();
+    private final Map<String, MapSnapshot> maps = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    /**
+     * Creates the service with one search worker per processor.
+     * @param port - port to listen on, 0 picks a free port
+     * @throws IOException if the port can't be bound
+     */
+    public PathService(int port) throws IOException {
+        this(port, new QueryBatcher(Runtime.getRuntime().availableProcessors(), 4096));
+    }
+
+    /**
+     * @param port - port to listen on, 0 picks a free port
+     * @param batcher - the batching stage searches are run by, it is closed together with the service
+     * @throws IOException if the port can't be bound
+     */
+    public PathService(int port, QueryBatcher batcher) throws IOException {
+        this.batcher = batcher;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        requestExecutor = newRequestExecutor();
+        server.setExecutor(requestExecutor);
+        server.createContext("/maps/", exchange -> handle(exchange, this::handleMaps));
+        server.createContext("/metrics", exchange -> handle(exchange, this::handleMetrics));
+    }
+
+    /**
+     * Creates an executor which runs every task on a new virtual thread. Virtual threads are looked up by reflection
+     * since the project is built for a JDK without them, and a cached thread pool is used when they are missing.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "path-service-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits at most a second for open requests and then stops the workers.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        requestExecutor.shutdownNow();
+        batcher.close();
+    }
+
+    /**
+     * Uploads or replaces a map directly, without going through HTTP.
+     * @param id - name of the map
+     * @param obstacles - grid where obstacles are set, it must not be changed afterwards
+     * @return the snapshot of the new version
+     */
+    public MapSnapshot putMap(String id, BitGrid obstacles) {
+        MapSnapshot snapshot = new MapSnapshot(id, versions.incrementAndGet(), obstacles);
+        maps.put(id, snapshot);
+        return snapshot;
+    }
+
+    private void handleMaps(HttpExchange exchange, String[] endpoint) throws IOException {
+        // path is /maps/{id} or /maps/{id}/path
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        String method = exchange.getRequestMethod();
+
+        if(parts.length == 3 && method.equals("PUT")) {
+            endpoint[0] = UPLOAD_ENDPOINT;
+            BitGrid grid;
+            try {
+                grid = GridMapFile.fromBytes(exchange.getRequestBody().readAllBytes());
+            } catch (IllegalArgumentException e) {
+                throw new RequestException(400, e.getMessage());
+            }
+            MapSnapshot snapshot = putMap(parts[2], grid);
+            sendJson(exchange, 200, "{\"id\":\"" + escape(snapshot.getId()) + "\",\"version\":" + snapshot.getVersion()
+                    + ",\"width\":" + grid.getWidth() + ",\"height\":" + grid.getHeight() + "}");
+        } else if(parts.length == 4 && parts[3].equals("path") && method.equals("GET")) {
+            endpoint[0] = PATH_ENDPOINT;
+            handlePath(exchange, parts[2]);
+        } else {
+            throw new RequestException(404, "No endpoint " + method + " " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private void handlePath(HttpExchange exchange, String id) throws IOException {
+        MapSnapshot map = maps.get(id);
+        if(map == null) {
+            throw new RequestException(404, "No map " + id);
+        }
+        Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+        int[] from = parsePoint(parameters.get("from"), "from");
+        int[] to = parsePoint(parameters.get("to"), "to");
+        if(!map.contains(from[0], from[1]) || !map.contains(to[0], to[1])) {
+            throw new RequestException(400, "Point outside of the map");
+        }
+
+        PathResult result;
+        try {
+            result = batcher.submit(map, from[0], from[1], to[0], to[1])
+                    .get(QUERY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            throw new RequestException(503, e.getMessage());
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RejectedExecutionException) {
+                throw new RequestException(503, e.getCause().getMessage());
+            }
+            throw new RequestException(500, String.valueOf(e.getCause()));
+        } catch (TimeoutException e) {
+            throw new RequestException(504, "No result within " + QUERY_TIMEOUT_MILLIS + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequestException(503, "Service is shutting down");
+        }
+
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        if(accept != null && accept.contains(BINARY_TYPE)) {
+            sendBinary(exchange, map, result);
+        } else {
+            sendJson(exchange, 200, toJson(map, result));
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange, String[] endpoint) throws IOException {
+        endpoint[0] = METRICS_ENDPOINT;
+        sendJson(exchange, 200, "{\"endpoints\":" + metrics.toJson()
+                + ",\"batches\":" + batcher.getBatchCount()
+                + ",\"queries\":" + batcher.getQueryCount()
+                + ",\"pending\":" + batcher.getPendingCount() + "}");
+    }
+
+    /**
+     * Runs a handler, answers errors, and records the latency under the endpoint name chosen by the handler.
+     */
+    private void handle(HttpExchange exchange, Handler handler) {
+        long start = System.nanoTime();
+        String[] endpoint = {"other"};
+        boolean error = false;
+        try {
+            handler.handle(exchange, endpoint);
+        } catch (RequestException e) {
+            error = true;
+            trySendError(exchange, e.status, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            error = true;
+            trySendError(exchange, 500, String.valueOf(e));
+        } finally {
+            exchange.close();
+            metrics.record(endpoint[0], System.nanoTime() - start, error);
+        }
+    }
+
+    private static String toJson(MapSnapshot map, PathResult result) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"status\":\"").append(result.getStatus())
+                .append("\",\"version\":").append(map.getVersion())
+                .append(",\"expansions\":").append(result.getExpansions())
+                .append(",\"distance\":").append(result.isFound() ? Double.toString(result.getDistance()) : "null")
+                .append(",\"path\":[");
+        GridPath path = result.getPath();
+        if(path != null) {
+            for(int i = 0; i < path.size(); i++) {
+                if(i > 0) json.append(',');
+                json.append('[').append(path.getX(i)).append(',').append(path.getY(i)).append(']');
+            }
+        }
+        return json.append("]}").toString();
+    }
+
+    private static void sendBinary(HttpExchange exchange, MapSnapshot map, PathResult result) throws IOException {
+        byte[] path = result.getPath() != null ? result.getPath().encode() : new byte[] {0};
+        ByteBuffer body = ByteBuffer.allocate(17 + path.length).order(ByteOrder.LITTLE_ENDIAN);
+        body.put((byte) result.getStatus().ordinal())
+                .putLong(map.getVersion())
+                .putDouble(result.getDistance())
+                .put(path);
+        send(exchange, 200, BINARY_TYPE, body.array());
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        send(exchange, status, "application/json", json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String type, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(status, body.length);
+        try(OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void trySendError(HttpExchange exchange, int status, String message) {
+        try {
+            sendJson(exchange, status, "{\"error\":\"" + escape(message) + "\"}");
+        } catch (IOException ignored) {
+            // the client is gone, or the response had already been started
+        }
+    }
+
+    /**
+     * Splits a raw query into its parameters and decodes their names and values, so that clients which escape the
+     * comma of a point as %2C are understood.
+     */
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if(query == null) return parameters;
+        try {
+            for(String parameter : query.split("&")) {
+                int equals = parameter.indexOf('=');
+                if(equals > 0) {
+                    parameters.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+                            URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(400, "Malformed query: " + e.getMessage());
+        }
+        return parameters;
+    }
+
+    private static int[] parsePoint(String value, String name) {
+        if(value == null) {
+            throw new RequestException(400, "Missing parameter " + name);
+        }
+        int comma = value.indexOf(',');
+        try {
+            return new int[] {Integer.parseInt(value.substring(0, comma)), Integer.parseInt(value.substring(comma + 1))};
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new RequestException(400, "Parameter " + name + " must be x,y");
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public LatencyMetrics getMetrics() {
+        return metrics;
+    }
+
+    public QueryBatcher getBatcher() {
+        return batcher;
+    }
+
+    public MapSnapshot getMap(String id) {
+        return maps.get(id);
+    }
+
+    private interface Handler {
+        /**
+         * @param endpoint - receives the name the latency of the request is recorded under
+         */
+        void handle(HttpExchange exchange, String[] endpoint) throws IOException;
+    }
+
+    /**
+     * Failure which is answered with the given HTTP status.
+     */
+    private static class RequestException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package service;
+
+import model.PathResult;
+import model.SearchStatus;
+import model.SearchWorkspace;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Micro-batching stage between the request threads and the search engines. Queries are queued, and each worker
+ * takes the first waiting query plus whatever arrives within a short window, up to a maximum batch size. The batch is
+ * then answered grouped by map snapshot, so queries on the same map version run back to back on one workspace while
+ * that map is still in the cache. Request threads only wait for their result, so the number of searches running at
+ * once is bounded by the number of workers no matter how many requests are open.
+ */
+public class QueryBatcher implements Closeable {
+
+    public static final int DEFAULT_MAX_BATCH = 32;
+    public static final long DEFAULT_WINDOW_NANOS = 200_000;
+
+    private final BlockingQueue<Query> queue;
+    private final Thread[] workers;
+    private final int maxBatch;
+    private final long windowNanos;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private volatile boolean closed;
+
+    public QueryBatcher(int workers, int queueCapacity) {
+        this(workers, queueCapacity, DEFAULT_MAX_BATCH, DEFAULT_WINDOW_NANOS);
+    }
+
+    /**
+     * @param workers - number of threads running searches
+     * @param queueCapacity - maximum number of waiting queries, more queries are rejected
+     * @param maxBatch - maximum number of queries per batch
+     * @param windowNanos - how long a worker waits for more queries after the first one of a batch
+     */
+    public QueryBatcher(int workers, int queueCapacity, int maxBatch, long windowNanos) {
+        if(workers < 1 || maxBatch < 1) {
+            throw new IllegalArgumentException("Need at least one worker and a batch size of at least one");
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatch = maxBatch;
+        this.windowNanos = windowNanos;
+        this.workers = new Thread[workers];
+        for(int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::work, "query-batcher-" + i);
+            worker.setDaemon(true);
+            this.workers[i] = worker;
+            worker.start();
+        }
+    }
+
+    /**
+     * Queues a path query.
+     *
+     * @param map - the snapshot to search, fixed when the query is submitted
+     * @return a future completed with the result of the query
+     * @throws RejectedExecutionException if the queue is full or the batcher has been closed
+     */
+    public CompletableFuture<PathResult> submit(MapSnapshot map, int startX, int startY, int endX, int endY) {
+        if(closed) {
+            throw new RejectedExecutionException("Query batcher has been closed");
+        }
+        Query query = new Query(map, startX, startY, endX, endY);
+        if(!queue.offer(query)) {
+            throw new RejectedExecutionException("Query queue is full");
+        }
+        // close() may have drained the queue between the check above and the offer, then nobody takes the query
+        if(closed && queue.remove(query)) {
+            throw new RejectedExecutionException("Query batcher has been closed");
+        }
+        return query.result;
+    }
+
+    private void work() {
+        SearchWorkspace workspace = new SearchWorkspace();
+        List<Query> batch = new ArrayList<>(maxBatch);
+        try {
+            while(!closed) {
+                collectBatch(batch);
+                batches.increment();
+                queries.add(batch.size());
+                runGrouped(batch, workspace);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // close() interrupts the workers waiting for queries
+        } finally {
+            // queries already taken from the queue when the batcher was closed
+            for(Query query : batch) {
+                if(query != Query.DONE) reject(query);
+            }
+        }
+    }
+
+    /**
+     * Waits for the first query and then for more until the window has passed or the batch is full.
+     */
+    private void collectBatch(List<Query> batch) throws InterruptedException {
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + windowNanos;
+        while(batch.size() < maxBatch) {
+            if(queue.drainTo(batch, maxBatch - batch.size()) > 0) continue;
+            long remaining = deadline - System.nanoTime();
+            if(remaining <= 0) break;
+            Query next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if(next == null) break;
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Answers the queries of a batch one snapshot at a time, in order of arrival within each snapshot.
+     */
+    private static void runGrouped(List<Query> batch, SearchWorkspace workspace) {
+        for(int i = 0; i < batch.size(); i++) {
+            MapSnapshot map = batch.get(i).map;
+            if(map == null) continue;
+            for(int j = i; j < batch.size(); j++) {
+                Query query = batch.get(j);
+                if(query.map != map) continue;
+                run(query, workspace);
+                batch.set(j, Query.DONE);
+            }
+        }
+    }
+
+    private static void run(Query query, SearchWorkspace workspace) {
+        try {
+            MapSnapshot map = query.map;
+            PathResult result;
+            if(!map.getConnectivity().isConnected(query.startX, query.startY, query.endX, query.endY)) {
+                result = PathResult.of(SearchStatus.UNREACHABLE, 0);
+            } else {
+                result = map.getEngine().findPath(query.startX, query.startY, query.endX, query.endY, workspace);
+            }
+            query.result.complete(result);
+        } catch (RuntimeException e) {
+            query.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Stops the workers. Queries still waiting, or taken by a worker but not answered yet, are failed with a
+     * {@link RejectedExecutionException}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for(Thread worker : workers) {
+            worker.interrupt();
+        }
+        for(Query query; (query = queue.poll()) != null; ) {
+            reject(query);
+        }
+    }
+
+    private static void reject(Query query) {
+        query.result.completeExceptionally(new RejectedExecutionException("Query batcher has been closed"));
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getQueryCount() {
+        return queries.sum();
+    }
+
+    public double getMeanBatchSize() {
+        long n = batches.sum();
+        return n == 0 ? 0 : (double) queries.sum() / n;
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    private static class Query {
+
+        // placeholder for queries of a batch which have been answered
+        static final Query DONE = new Query(null, 0, 0, 0, 0);
+
+        final MapSnapshot map;
+        final int startX, startY, endX, endY;
+        final CompletableFuture<PathResult> result = new CompletableFuture<>();
+
+        Query(MapSnapshot map, int startX, int startY, int endX, int endY) {
+            this.map = map;
+            this.startX = startX;
+            this.startY = startY;
+            this.endX = endX;
+            this.endY = endY;
+        }
+    }
+}
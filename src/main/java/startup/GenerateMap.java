@@ -0,0 +1,31 @@
+package startup;
+
+import model.GridMapFile;
+import model.MazeEllerGenerator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Command line tool which streams a maze of any size to a bit-packed map file, used to create stress test maps.
+ * Usage: GenerateMap &lt;width&gt; &lt;height&gt; &lt;seed&gt; &lt;output file&gt;
+ */
+public class GenerateMap {
+
+    public static void main(String[] args) throws IOException {
+        if(args.length != 4) {
+            System.err.println("Usage: GenerateMap <width> <height> <seed> <output file>");
+            System.exit(1);
+        }
+        int width = Integer.parseInt(args[0]);
+        int height = Integer.parseInt(args[1]);
+        long seed = Long.parseLong(args[2]);
+        Path path = Path.of(args[3]);
+
+        long start = System.nanoTime();
+        try(GridMapFile.Writer writer = GridMapFile.writer(path, width, height)) {
+            new MazeEllerGenerator(seed).generate(width, height, writer);
+        }
+        System.out.printf("Wrote %dx%d maze to %s in %d ms%n", width, height, path, (System.nanoTime() - start) / 1_000_000);
+    }
+}
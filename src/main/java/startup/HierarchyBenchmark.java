@@ -0,0 +1,139 @@
+package startup;
+
+import model.BitGrid;
+import model.ContractionHierarchy;
+import model.DistanceMatrix;
+import model.GridAStar;
+import model.MazeDfsGenerator;
+import model.PathResult;
+import model.SearchWorkspace;
+
+import java.util.SplittableRandom;
+
+/**
+ * Builds a contraction hierarchy of a random map or a maze and compares its queries with GridAStar on the same random
+ * queries. Prints the preprocessing time, the memory of the hierarchy and the time per query of both, and checks that
+ * they agree on every distance. Then computes a distance matrix between the starts and the ends of the queries, and
+ * compares it with one query per pair.
+ * Usage: HierarchyBenchmark &lt;map size&gt; &lt;obstacle percentage, or maze&gt; &lt;queries&gt; &lt;seed&gt;
+ */
+public class HierarchyBenchmark {
+
+    private static final int MATRIX_SOURCES = 200;
+    private static final int MATRIX_TARGETS = 300;
+
+    public static void main(String[] args) {
+        if(args.length != 4) {
+            System.err.println("Usage: HierarchyBenchmark <map size> <obstacle percentage, or maze> <queries> <seed>");
+            System.exit(1);
+        }
+        int size = Integer.parseInt(args[0]);
+        int numQueries = Integer.parseInt(args[2]);
+        long seed = Long.parseLong(args[3]);
+        SplittableRandom random = new SplittableRandom(seed);
+
+        BitGrid obstacles;
+        if(args[1].equals("maze")) {
+            obstacles = new MazeDfsGenerator(seed).generate(size, size);
+        } else {
+            int obstaclePercentage = Integer.parseInt(args[1]);
+            obstacles = new BitGrid(size, size);
+            for(int y = 0; y < size; y++) {
+                for(int x = 0; x < size; x++) {
+                    if(random.nextInt(100) < obstaclePercentage) obstacles.set(x, y, true);
+                }
+            }
+        }
+
+        int[][] queries = new int[numQueries][];
+        for(int i = 0; i < numQueries; i++) {
+            int[] query;
+            do {
+                query = new int[]{random.nextInt(size), random.nextInt(size), random.nextInt(size), random.nextInt(size)};
+            } while(obstacles.get(query[0], query[1]) || obstacles.get(query[2], query[3]));
+            queries[i] = query;
+        }
+
+        long start = System.nanoTime();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(obstacles);
+        long preprocessing = System.nanoTime() - start;
+        System.out.printf("%d nodes, %d upward edges of which %d shortcuts, built in %.0f ms%n",
+                hierarchy.getNumNodes(), hierarchy.getNumEdges(), hierarchy.getNumShortcuts(), preprocessing / 1e6);
+        System.out.printf("%.1f MB for the hierarchy, %.1f bytes per node%n",
+                hierarchy.getMemoryBytes() / 1e6, (double) hierarchy.getMemoryBytes() / hierarchy.getNumNodes());
+
+        // both engines run one pass to warm up the JIT compiler, the second one is measured
+        GridAStar aStar = new GridAStar(obstacles);
+        SearchWorkspace aStarWorkspace = new SearchWorkspace();
+        double[] expected = new double[numQueries];
+        long aStarExpansions = 0;
+        long aStarNanos = 0;
+        for(int pass = 0; pass < 2; pass++) {
+            aStarExpansions = 0;
+            start = System.nanoTime();
+            for(int i = 0; i < numQueries; i++) {
+                int[] query = queries[i];
+                PathResult result = aStar.findPath(query[0], query[1], query[2], query[3], aStarWorkspace);
+                expected[i] = result.isFound() ? result.getDistance() : Double.POSITIVE_INFINITY;
+                aStarExpansions += result.getExpansions();
+            }
+            aStarNanos = System.nanoTime() - start;
+        }
+
+        ContractionHierarchy.Workspace workspace = new ContractionHierarchy.Workspace(hierarchy);
+        long settled = 0;
+        long hierarchyNanos = 0;
+        int mismatches = 0;
+        for(int pass = 0; pass < 2; pass++) {
+            settled = 0;
+            start = System.nanoTime();
+            for(int[] query : queries) {
+                hierarchy.distance(query[0], query[1], query[2], query[3], workspace);
+                settled += workspace.getSettled();
+            }
+            hierarchyNanos = System.nanoTime() - start;
+        }
+        start = System.nanoTime();
+        for(int i = 0; i < numQueries; i++) {
+            int[] query = queries[i];
+            PathResult result = hierarchy.findPath(query[0], query[1], query[2], query[3], workspace);
+            double distance = result.isFound() ? result.getDistance() : Double.POSITIVE_INFINITY;
+            if(distance != expected[i] && Math.abs(distance - expected[i]) > 1e-4 * Math.max(1, expected[i])) mismatches++;
+        }
+        long unpackedNanos = System.nanoTime() - start;
+
+        System.out.printf("GridAStar: %.1f us/query, %d expansions/query%n",
+                aStarNanos / 1e3 / numQueries, aStarExpansions / numQueries);
+        System.out.printf("hierarchy: %.1f us/query for the distance, %.1f us/query with the path, %d settled/query%n",
+                hierarchyNanos / 1e3 / numQueries, unpackedNanos / 1e3 / numQueries, settled / numQueries);
+        System.out.printf("speed-up %.0fx for the distance, %.0fx with the path, %d of %d distances differ%n",
+                (double) aStarNanos / hierarchyNanos, (double) aStarNanos / unpackedNanos, mismatches, numQueries);
+
+        // distance matrix between the starts and the ends of the queries, against one query per pair
+        int numSources = Math.min(numQueries, MATRIX_SOURCES), numTargets = Math.min(numQueries, MATRIX_TARGETS);
+        int[] sources = new int[numSources], targets = new int[numTargets];
+        for(int i = 0; i < numSources; i++) {
+            sources[i] = queries[i][1] * size + queries[i][0];
+        }
+        for(int i = 0; i < numTargets; i++) {
+            targets[i] = queries[i][3] * size + queries[i][2];
+        }
+        start = System.nanoTime();
+        float[] matrix = DistanceMatrix.compute(hierarchy, sources, targets);
+        long matrixNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        int matrixMismatches = 0;
+        for(int s = 0; s < numSources; s++) {
+            for(int t = 0; t < numTargets; t++) {
+                double distance = hierarchy.distance(sources[s] % size, sources[s] / size, targets[t] % size,
+                        targets[t] / size, workspace);
+                float entry = matrix[s * numTargets + t];
+                if(entry != distance && Math.abs(entry - distance) > 1e-3 * Math.max(1, distance)) matrixMismatches++;
+            }
+        }
+        long pairwiseNanos = System.nanoTime() - start;
+        System.out.printf("%dx%d matrix: %.1f ms, %.1f ms with a hierarchy query per pair, about %.0f ms with GridAStar, "
+                        + "%d entries differ%n", numSources, numTargets, matrixNanos / 1e6, pairwiseNanos / 1e6,
+                aStarNanos / 1e6 / numQueries * numSources * numTargets, matrixMismatches);
+    }
+}
@@ -0,0 +1,116 @@
+package startup;
+
+import model.BitGrid;
+import model.GridMapFile;
+import model.MazeDfsGenerator;
+import service.LatencyMetrics;
+import service.PathService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for the path service. Uploads a maze and then runs path queries between random rooms of the maze
+ * from several client threads, and prints the throughput and latencies seen by the clients and by the service.
+ * Without a port it starts a service of its own in this process.
+ * Usage: LoadGenerator &lt;clients&gt; &lt;seconds&gt; &lt;map size&gt; [port]
+ */
+public class LoadGenerator {
+
+    private static final String MAP_ID = "load";
+
+    public static void main(String[] args) throws Exception {
+        if(args.length < 3) {
+            System.err.println("Usage: LoadGenerator <clients> <seconds> <map size> [port]");
+            System.exit(1);
+        }
+        int clients = Integer.parseInt(args[0]);
+        long durationNanos = Long.parseLong(args[1]) * 1_000_000_000L;
+        int size = Integer.parseInt(args[2]);
+
+        PathService ownService = null;
+        int port;
+        if(args.length > 3) {
+            port = Integer.parseInt(args[3]);
+        } else {
+            ownService = new PathService(0);
+            ownService.start();
+            port = ownService.getPort();
+        }
+        String base = "http://localhost:" + port;
+
+        BitGrid maze = new MazeDfsGenerator(42).generate(size, size);
+        byte[] upload = request(base + "/maps/" + MAP_ID, "PUT", GridMapFile.toBytes(maze), null);
+        System.out.println("Uploaded " + size + "x" + size + " maze: " + new String(upload));
+
+        LatencyMetrics clientMetrics = new LatencyMetrics();
+        AtomicLong failures = new AtomicLong();
+        long end = System.nanoTime() + durationNanos;
+        Thread[] threads = new Thread[clients];
+        for(int i = 0; i < clients; i++) {
+            long seed = i;
+            threads[i] = new Thread(() -> runClient(base, size, seed, end, clientMetrics, failures));
+            threads[i].start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyMetrics.Endpoint queries = clientMetrics.getEndpoint("path");
+        long count = queries == null ? 0 : queries.getCount();
+        System.out.printf("%d queries in %d s: %.0f queries/s, %d failed%n",
+                count, durationNanos / 1_000_000_000L, count * 1e9 / durationNanos, failures.get());
+        System.out.println("Client latencies: " + clientMetrics.toJson());
+        System.out.println("Service metrics: " + new String(request(base + "/metrics", "GET", null, null)));
+
+        if(ownService != null) {
+            ownService.close();
+        }
+    }
+
+    private static void runClient(String base, int size, long seed, long end, LatencyMetrics metrics, AtomicLong failures) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int rooms = (size + 1) / 2;
+        while(System.nanoTime() - end < 0) {
+            // rooms of the maze sit on even coordinates and are never walls
+            String query = String.format("%s/maps/%s/path?from=%d,%d&to=%d,%d", base, MAP_ID,
+                    2 * random.nextInt(rooms), 2 * random.nextInt(rooms),
+                    2 * random.nextInt(rooms), 2 * random.nextInt(rooms));
+            long start = System.nanoTime();
+            boolean error = false;
+            try {
+                request(query, "GET", null, PathService.BINARY_TYPE);
+            } catch (IOException e) {
+                error = true;
+                failures.incrementAndGet();
+            }
+            metrics.record("path", System.nanoTime() - start, error);
+        }
+    }
+
+    private static byte[] request(String url, String method, byte[] body, String accept) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        if(accept != null) {
+            connection.setRequestProperty("Accept", accept);
+        }
+        if(body != null) {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            try(OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+        }
+        if(connection.getResponseCode() != 200) {
+            throw new IOException("HTTP " + connection.getResponseCode() + " from " + url);
+        }
+        try(InputStream in = connection.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
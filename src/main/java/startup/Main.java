@@ -1,11 +1,14 @@
 package startup;
 
+import service.PathService;
 import view.View;
 import controller.Controller;
 import javafx.application.Application;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+
 public class Main extends Application {
     @Override
     public void start(Stage primaryStage) {
@@ -20,7 +23,17 @@ public class Main extends Application {
         primaryStage.show();
     }
 
-    public static void main(String[] args) {
+    /**
+     * Starts the graphical application, or the local path service when called with --service [port].
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length > 0 && args[0].equals("--service")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : PathService.DEFAULT_PORT;
+            PathService service = new PathService(port);
+            service.start();
+            System.out.println("Path service listening on port " + service.getPort());
+            return;
+        }
         launch();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+package startup;
+
+import model.BitGrid;
+import model.CooperativePlanner;
+
+import java.util.SplittableRandom;
+
+/**
+ * Runs the cooperative planner with many agents on a random map until all agents have arrived, and prints the
+ * planning throughput and the time per tick.
+ * Usage: MultiAgentBenchmark &lt;agents&gt; &lt;map size&gt; &lt;obstacle percentage&gt; &lt;seed&gt;
+ */
+public class MultiAgentBenchmark {
+
+    private static final int MAX_TICKS = 10_000;
+
+    public static void main(String[] args) {
+        if(args.length != 4) {
+            System.err.println("Usage: MultiAgentBenchmark <agents> <map size> <obstacle percentage> <seed>");
+            System.exit(1);
+        }
+        int agents = Integer.parseInt(args[0]);
+        int size = Integer.parseInt(args[1]);
+        int obstaclePercentage = Integer.parseInt(args[2]);
+        SplittableRandom random = new SplittableRandom(Long.parseLong(args[3]));
+
+        BitGrid obstacles = new BitGrid(size, size);
+        for(int y = 0; y < size; y++) {
+            for(int x = 0; x < size; x++) {
+                if(random.nextInt(100) < obstaclePercentage) obstacles.set(x, y, true);
+            }
+        }
+
+        // distinct starts and distinct goals on free cells
+        CooperativePlanner planner = new CooperativePlanner(obstacles, CooperativePlanner.DEFAULT_WINDOW,
+                CooperativePlanner.DEFAULT_MAX_EXPANSIONS);
+        BitGrid starts = new BitGrid(size, size), goals = new BitGrid(size, size);
+        while(planner.getNumAgents() < agents) {
+            int startX = random.nextInt(size), startY = random.nextInt(size);
+            int goalX = random.nextInt(size), goalY = random.nextInt(size);
+            if(obstacles.get(startX, startY) || obstacles.get(goalX, goalY)
+                    || starts.get(startX, startY) || goals.get(goalX, goalY)) continue;
+            starts.set(startX, startY, true);
+            goals.set(goalX, goalY, true);
+            planner.addAgent(startX, startY, goalX, goalY);
+        }
+
+        long slowestTick = 0;
+        while(planner.getNumAgentsAtGoal() < agents && planner.getTick() < MAX_TICKS) {
+            long start = System.nanoTime();
+            planner.tick();
+            slowestTick = Math.max(slowestTick, System.nanoTime() - start);
+        }
+
+        System.out.printf("%d of %d agents arrived after %d ticks%n", planner.getNumAgentsAtGoal(), agents, planner.getTick());
+        System.out.printf("%d plans, %.0f agents planned/s, %.2f ms/tick on average, slowest tick %.2f ms%n",
+                planner.getAgentsPlanned(), planner.getAgentsPlannedPerSecond(),
+                planner.getPlanningNanos() / 1e6 / planner.getTick(), slowestTick / 1e6);
+        System.out.printf("%d single-agent paths, %d conflicts, %d collisions%n",
+                planner.getGuideSearches(), planner.getConflicts(), planner.countCollisions());
+    }
+}
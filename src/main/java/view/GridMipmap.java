@@ -0,0 +1,159 @@
+package view;
+
+import model.BitGrid;
+
+/**
+ * Density pyramid of a bit grid for drawing it zoomed out. Level 0 is the grid itself, and a block of level k counts
+ * the set cells in a square of 2^k by 2^k cells, so one pixel can summarize any number of cells with a single lookup.
+ *
+ * The mipmap keeps its own copy of the grid. An update compares the new grid a word at a time and only recounts the
+ * blocks above words which changed, so a search which visits a few cells per frame costs a few block updates instead
+ * of rebuilding every level.
+ */
+public class GridMipmap {
+
+    private final int width;
+    private final int height;
+    private final BitGrid base;
+    private final int[][] counts; // counts[k] holds level k, counts[0] is unused since level 0 is the base grid
+    private final int[] levelWidths;
+    private final int[] levelHeights;
+
+    /**
+     * @param width - width of the grids given to {@link #update}
+     * @param height - height of the grids given to {@link #update}
+     */
+    public GridMipmap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        base = new BitGrid(width, height);
+
+        int numLevels = 1;
+        while((1 << (numLevels - 1)) < Math.max(width, height)) {
+            numLevels++;
+        }
+        counts = new int[numLevels][];
+        levelWidths = new int[numLevels];
+        levelHeights = new int[numLevels];
+        for(int level = 0; level < numLevels; level++) {
+            levelWidths[level] = (width + (1 << level) - 1) >> level;
+            levelHeights[level] = (height + (1 << level) - 1) >> level;
+            if(level > 0) counts[level] = new int[levelWidths[level] * levelHeights[level]];
+        }
+    }
+
+    /**
+     * Brings the mipmap up to date with a grid.
+     * @param grid - grid of the same dimensions, or null for a grid without set cells
+     * @return whether anything changed
+     */
+    public boolean update(BitGrid grid) {
+        if(grid != null && (grid.getWidth() != width || grid.getHeight() != height)) {
+            throw new IllegalArgumentException("Grid is " + grid.getWidth() + "x" + grid.getHeight()
+                    + " but the mipmap is " + width + "x" + height);
+        }
+        long[] words = base.getWords();
+        long[] newWords = grid == null ? null : grid.getWords();
+        int wordsPerRow = base.getWordsPerRow();
+
+        boolean changed = false;
+        for(int i = 0; i < words.length; i++) {
+            long word = newWords == null ? 0 : newWords[i];
+            if(word == words[i]) continue;
+            words[i] = word;
+            changed = true;
+
+            int y = i / wordsPerRow, fromX = (i % wordsPerRow) << 6;
+            recount(fromX, Math.min(width, fromX + 64) - 1, y);
+        }
+        return changed;
+    }
+
+    /**
+     * Recounts the blocks of every level above the cells [fromX, toX] of row y.
+     */
+    private void recount(int fromX, int toX, int y) {
+        for(int level = 1; level < counts.length; level++) {
+            fromX >>= 1;
+            toX >>= 1;
+            y >>= 1;
+            for(int x = fromX; x <= toX; x++) {
+                counts[level][y * levelWidths[level] + x] = level == 1 ? countBase(x, y) : countBelow(level, x, y);
+            }
+        }
+    }
+
+    private int countBase(int blockX, int blockY) {
+        int x = blockX << 1, y = blockY << 1, count = 0;
+        for(int dy = 0; dy < 2; dy++) {
+            for(int dx = 0; dx < 2; dx++) {
+                if(base.contains(x + dx, y + dy) && base.get(x + dx, y + dy)) count++;
+            }
+        }
+        return count;
+    }
+
+    private int countBelow(int level, int blockX, int blockY) {
+        int[] below = counts[level - 1];
+        int belowWidth = levelWidths[level - 1], belowHeight = levelHeights[level - 1];
+        int x = blockX << 1, y = blockY << 1, count = 0;
+        for(int dy = 0; dy < 2 && y + dy < belowHeight; dy++) {
+            for(int dx = 0; dx < 2 && x + dx < belowWidth; dx++) {
+                count += below[(y + dy) * belowWidth + x + dx];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param level - the level, in [0, number of levels)
+     * @param blockX - block column of the level
+     * @param blockY - block row of the level
+     * @return number of set cells in the block
+     */
+    public int getCount(int level, int blockX, int blockY) {
+        if(level == 0) return base.get(blockX, blockY) ? 1 : 0;
+        return counts[level][blockY * levelWidths[level] + blockX];
+    }
+
+    /**
+     * @return the fraction of cells of the block which are set, where blocks on the border only count the cells
+     * inside the grid
+     */
+    public double getDensity(int level, int blockX, int blockY) {
+        int count = getCount(level, blockX, blockY);
+        if(count == 0) return 0;
+        int blockWidth = Math.min(1 << level, width - (blockX << level));
+        int blockHeight = Math.min(1 << level, height - (blockY << level));
+        return (double) count / (blockWidth * blockHeight);
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public int getNumLevels() {
+        return counts.length;
+    }
+
+    public int getLevelWidth(int level) {
+        return levelWidths[level];
+    }
+
+    public int getLevelHeight(int level) {
+        return levelHeights[level];
+    }
+
+    /**
+     * @return the copy of the grid, which must not be changed
+     */
+    public BitGrid getBase() {
+        return base;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
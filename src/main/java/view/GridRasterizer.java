@@ -0,0 +1,231 @@
+package view;
+
+import model.BitGrid;
+import model.GridPath;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Rasterizes the part of the grid inside a {@link Viewport} into an ARGB pixel array of the size of the screen. The
+ * pixel rows are split into stripes which are filled in parallel, and a pixel row which shows the same cells as the
+ * one above it is copied from it. Nothing here touches JavaFX, so frames can be prepared on any thread and handed to
+ * the FX thread as one blit.
+ *
+ * When a cell is smaller than a pixel, every pixel shows the density of a block of cells, taken from the level of the
+ * {@link GridMipmap} whose blocks are about the size of a pixel. The work per frame thus depends on the size of the
+ * screen and not on the size of the grid.
+ */
+public class GridRasterizer {
+
+    public static final int BACKGROUND = 0xFFC0C0C0;
+    public static final int OBSTACLE = 0xFF393A3D;
+    public static final int VISITED = 0xFF768FD4;
+    public static final int FRONTIER = 0xFFA9BCF5;
+    public static final int PATH = 0xFFDE6E2E;
+    public static final int GRID_LINE = 0xFFFFFFFF;
+    public static final int OUTSIDE = 0xFF808080;
+
+    // cells smaller than this are drawn without grid lines
+    private static final int MIN_GRID_LINE_CELL_SIZE = 4;
+    private static final int MIN_STRIPE_ROWS = 8;
+
+    private final int width;
+    private final int height;
+
+    // column of the grid under each pixel column, -1 outside of the grid, and whether a new cell starts there
+    private final int[] cellOfColumn;
+    private final boolean[] cellStartsAtColumn;
+
+    /**
+     * @param width - width of the screen in pixels
+     * @param height - height of the screen in pixels
+     */
+    public GridRasterizer(int width, int height) {
+        if(width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Screen dimensions must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        cellOfColumn = new int[width];
+        cellStartsAtColumn = new boolean[width];
+    }
+
+    /**
+     * Draws a frame. Visited cells are drawn over frontier cells, which are drawn over obstacles, and the path is
+     * drawn over everything as cells connected by lines, so any-angle paths of waypoints show up as well.
+     *
+     * @param pixels - receives the frame, at least width * height pixels in row-major order
+     * @param viewport - the part of the grid to draw, whose screen must be as large as this rasterizer
+     * @param obstacles - obstacle cells
+     * @param visited - visited cells
+     * @param frontier - frontier cells
+     * @param path - the path, or null
+     */
+    public void rasterize(int[] pixels, Viewport viewport, GridMipmap obstacles, GridMipmap visited,
+                          GridMipmap frontier, GridPath path) {
+        int level = Math.min(viewport.getLevelOfDetail(), obstacles.getNumLevels() - 1);
+        boolean gridLines = viewport.getScale() >= MIN_GRID_LINE_CELL_SIZE;
+
+        int previous = viewport.cellXAt(-1);
+        for(int x = 0; x < width; x++) {
+            int cellX = viewport.cellXAt(x);
+            cellOfColumn[x] = cellX >= 0 && cellX < viewport.getColumns() ? cellX : -1;
+            cellStartsAtColumn[x] = gridLines && cellX != previous;
+            previous = cellX;
+        }
+
+        int stripeRows = Math.max(MIN_STRIPE_ROWS, height / (4 * Runtime.getRuntime().availableProcessors()));
+        int numStripes = (height + stripeRows - 1) / stripeRows;
+        IntStream.range(0, numStripes).parallel().forEach(stripe -> {
+            int end = Math.min(height, (stripe + 1) * stripeRows);
+            int previousRow = Integer.MIN_VALUE;
+            for(int y = stripe * stripeRows; y < end; y++) {
+                int cellY = viewport.cellYAt(y);
+                boolean lineRow = gridLines && cellY != viewport.cellYAt(y - 1);
+                if(cellY == previousRow && !lineRow) {
+                    System.arraycopy(pixels, (y - 1) * width, pixels, y * width, width);
+                    continue;
+                }
+                // a grid line row is drawn on its own, so the row below it must be filled as well
+                previousRow = lineRow ? Integer.MIN_VALUE : cellY;
+
+                int offset = y * width;
+                if(cellY < 0 || cellY >= viewport.getRows()) {
+                    Arrays.fill(pixels, offset, offset + width, OUTSIDE);
+                } else if(lineRow) {
+                    fillLineRow(pixels, offset);
+                } else if(level == 0) {
+                    fillCellRow(pixels, offset, cellY, obstacles.getBase(), visited.getBase(), frontier.getBase());
+                } else {
+                    fillBlockRow(pixels, offset, cellY >> level, level, obstacles, visited, frontier);
+                }
+            }
+        });
+        if(path != null) {
+            drawPath(pixels, viewport, path, gridLines);
+        }
+    }
+
+    private void fillLineRow(int[] pixels, int offset) {
+        for(int x = 0; x < width; x++) {
+            pixels[offset + x] = cellOfColumn[x] < 0 ? OUTSIDE : GRID_LINE;
+        }
+    }
+
+    private void fillCellRow(int[] pixels, int offset, int cellY, BitGrid obstacles, BitGrid visited, BitGrid frontier) {
+        for(int x = 0; x < width; x++) {
+            int cellX = cellOfColumn[x];
+            int color;
+            if(cellX < 0) {
+                color = OUTSIDE;
+            } else if(cellStartsAtColumn[x]) {
+                color = GRID_LINE;
+            } else {
+                color = visited.get(cellX, cellY) ? VISITED
+                        : frontier.get(cellX, cellY) ? FRONTIER
+                        : obstacles.get(cellX, cellY) ? OBSTACLE : BACKGROUND;
+            }
+            pixels[offset + x] = color;
+        }
+    }
+
+    private void fillBlockRow(int[] pixels, int offset, int blockY, int level, GridMipmap obstacles,
+                              GridMipmap visited, GridMipmap frontier) {
+        int lastBlock = -1, color = OUTSIDE;
+        for(int x = 0; x < width; x++) {
+            int cellX = cellOfColumn[x];
+            if(cellX < 0) {
+                pixels[offset + x] = OUTSIDE;
+                continue;
+            }
+            int blockX = cellX >> level;
+            if(blockX != lastBlock) {
+                lastBlock = blockX;
+                color = mix(BACKGROUND, OBSTACLE, obstacles.getDensity(level, blockX, blockY));
+                color = mix(color, FRONTIER, frontier.getDensity(level, blockX, blockY));
+                color = mix(color, VISITED, visited.getDensity(level, blockX, blockY));
+            }
+            pixels[offset + x] = color;
+        }
+    }
+
+    /**
+     * Blends two opaque colors, channel by channel.
+     * @param weight - weight of the second color, in [0, 1]
+     */
+    private static int mix(int from, int to, double weight) {
+        if(weight <= 0) return from;
+        if(weight >= 1) return to;
+        int w = (int) (weight * 256);
+        int r = (((from >> 16) & 0xFF) * (256 - w) + ((to >> 16) & 0xFF) * w) >> 8;
+        int g = (((from >> 8) & 0xFF) * (256 - w) + ((to >> 8) & 0xFF) * w) >> 8;
+        int b = ((from & 0xFF) * (256 - w) + (to & 0xFF) * w) >> 8;
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private void drawPath(int[] pixels, Viewport viewport, GridPath path, boolean gridLines) {
+        double scale = viewport.getScale();
+        if(scale >= 1) {
+            int inset = gridLines ? 1 : 0;
+            for(int i = 0; i < path.size(); i++) {
+                int left = (int) Math.floor(viewport.toScreenX(path.getX(i)));
+                int top = (int) Math.floor(viewport.toScreenY(path.getY(i)));
+                int right = (int) Math.floor(viewport.toScreenX(path.getX(i) + 1));
+                int bottom = (int) Math.floor(viewport.toScreenY(path.getY(i) + 1));
+                fillRect(pixels, left + inset, top + inset, right, bottom);
+            }
+        }
+
+        int thickness = Math.max(1, (int) (scale / 5));
+        for(int i = 1; i < path.size(); i++) {
+            drawLine(pixels, center(viewport.toScreenX(path.getX(i - 1) + 0.5)), center(viewport.toScreenY(path.getY(i - 1) + 0.5)),
+                    center(viewport.toScreenX(path.getX(i) + 0.5)), center(viewport.toScreenY(path.getY(i) + 0.5)), thickness);
+        }
+    }
+
+    private static int center(double screenCoordinate) {
+        return (int) Math.floor(screenCoordinate);
+    }
+
+    /**
+     * Fills the pixels [left, right) x [top, bottom), clipped to the screen.
+     */
+    private void fillRect(int[] pixels, int left, int top, int right, int bottom) {
+        left = Math.max(0, left);
+        top = Math.max(0, top);
+        right = Math.min(width, right);
+        bottom = Math.min(height, bottom);
+        for(int y = top; y < bottom; y++) {
+            Arrays.fill(pixels, y * width + left, y * width + right, PATH);
+        }
+    }
+
+    /**
+     * Draws a line as squares of the given thickness at every pixel of a DDA walk between the two points. Lines which
+     * lie beside the screen are skipped.
+     */
+    private void drawLine(int[] pixels, int x0, int y0, int x1, int y1, int thickness) {
+        if(Math.max(x0, x1) + thickness < 0 || Math.min(x0, x1) - thickness >= width
+                || Math.max(y0, y1) + thickness < 0 || Math.min(y0, y1) - thickness >= height) {
+            return;
+        }
+        int steps = Math.max(Math.abs(x1 - x0), Math.abs(y1 - y0));
+        int half = thickness / 2;
+        for(int s = 0; s <= steps; s++) {
+            int x = steps == 0 ? x0 : x0 + (int) Math.round((double) (x1 - x0) * s / steps);
+            int y = steps == 0 ? y0 : y0 + (int) Math.round((double) (y1 - y0) * s / steps);
+            fillRect(pixels, x - half, y - half, x - half + thickness, y - half + thickness);
+        }
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
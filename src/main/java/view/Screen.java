@@ -3,32 +3,86 @@ package view;
 import javafx.application.Platform;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import model.BitGrid;
+import model.GridPath;
 import model.Node;
 
-import java.util.ArrayList;
+import java.nio.IntBuffer;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class representation of the screen where grid, and nodes will be drawn.
+ *
+ * Frames are rasterized into an ARGB pixel array by a {@link GridRasterizer} on a render thread, and the FX thread
+ * only copies the finished frame into the image and draws it in one call. When frames are requested faster than they
+ * can be drawn, the ones in between are skipped.
+ *
+ * The screen shows the part of the grid inside its {@link Viewport}, which can be zoomed and panned. Mouse positions
+ * are mapped to cells through the viewport as well.
  */
 public class Screen extends Canvas {
 
-    private final int numTilesPerSquareSide = 30;
+    private static final int SIDE_LENGTH = 450;
+
+    private final int numColumns;
+    private final int numRows;
     private final GraphicsContext gc;
-    private final int tileSideLength;
+    private final GridRasterizer rasterizer;
+    private final GridMipmap obstacleMipmap;
+    private final GridMipmap visitedMipmap;
+    private final GridMipmap frontierMipmap;
+    private final WritableImage image;
+    private final PixelBuffer<IntBuffer> pixelBuffer;
+
+    private final ExecutorService renderExecutor;
+    private final AtomicReference<Frame> pendingRequest = new AtomicReference<>();
+    private volatile Frame lastFrame;
+    private volatile Viewport viewport;
+    private final AtomicReference<int[]> pendingPixels = new AtomicReference<>();
+    private final ConcurrentLinkedQueue<int[]> freePixels = new ConcurrentLinkedQueue<>();
 
     /**
      * Constructor sets the dimensions of the screen, with appropriate graphics context
      */
     public Screen() {
+        this(30, 30);
+    }
+
+    /**
+     * @param numColumns - number of cells per row of the grid
+     * @param numRows - number of rows of the grid
+     */
+    public Screen(int numColumns, int numRows) {
+        this.numColumns = numColumns;
+        this.numRows = numRows;
 
-        setWidth(450);
-        setHeight(450);
+        setWidth(SIDE_LENGTH);
+        setHeight(SIDE_LENGTH);
 
-        tileSideLength = (int) getWidth() / numTilesPerSquareSide;
+        viewport = Viewport.fit(numColumns, numRows, SIDE_LENGTH, SIDE_LENGTH);
+        rasterizer = new GridRasterizer(SIDE_LENGTH, SIDE_LENGTH);
+        obstacleMipmap = new GridMipmap(numColumns, numRows);
+        visitedMipmap = new GridMipmap(numColumns, numRows);
+        frontierMipmap = new GridMipmap(numColumns, numRows);
+        pixelBuffer = new PixelBuffer<>(SIDE_LENGTH, SIDE_LENGTH, IntBuffer.allocate(SIDE_LENGTH * SIDE_LENGTH),
+                PixelFormat.getIntArgbPreInstance());
+        image = new WritableImage(pixelBuffer);
+
+        renderExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "screen-render");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         gc = getGraphicsContext2D();
+        gc.setImageSmoothing(false);
         init();
     }
 
@@ -36,10 +90,7 @@ public class Screen extends Canvas {
      * initializes the screen in its default state
      */
     public void init() {
-        Platform.runLater(() -> {
-            drawBackground();
-            drawGrid();
-        });
+        request(new Frame(null, null, null, null));
     }
 
     /**
@@ -47,31 +98,29 @@ public class Screen extends Canvas {
      * @param obstacles - obstacle nodes to be drawn
      * @param visited - visited nodes to be drawn
      */
-    public void render(ArrayList<Node> obstacles, ArrayList<Node> visited) {
-        Platform.runLater(() -> {
-            gc.clearRect(0, 0, getWidth(), getHeight());
-            drawBackground();
-            drawObstacles(obstacles);
-            drawVisited(visited);
-            drawGrid();
-        });
+    public void render(List<Node> obstacles, List<Node> visited) {
+        request(new Frame(toGrid(obstacles), toGrid(visited), null, null));
     }
 
     /**
      * Method which renders the screen similarly to the previous method, but now with the addition of a found path
      * @param obstacles - obstacles to be drawn
      * @param visited - nodes visited, to be drawn
-     * @param path - the path, as a collection of nodes, to be drawn
-     */
-    public void renderWithPath(List<Node> obstacles, List<Node> visited, List<Node> path) {
-        Platform.runLater(() -> {
-            gc.clearRect(0, 0, getWidth(), getHeight());
-            drawBackground();
-            drawObstacles(obstacles);
-            drawVisited(visited);
-            drawPath(path);
-            drawGrid();
-        });
+     * @param path - the path, as cell indices, to be drawn
+     */
+    public void renderWithPath(List<Node> obstacles, List<Node> visited, GridPath path) {
+        request(new Frame(toGrid(obstacles), toGrid(visited), null, path));
+    }
+
+    /**
+     * Renders a frame of a replayed search trace. The grids are copied right away, so they can change afterwards.
+     * @param obstacles - obstacles of the traced map
+     * @param expanded - cells expanded so far
+     * @param frontier - cells on the frontier
+     * @param path - the path to be drawn, or null
+     */
+    public void renderTrace(BitGrid obstacles, BitGrid expanded, BitGrid frontier, GridPath path) {
+        request(new Frame(obstacles, expanded.copy(), frontier.copy(), path));
     }
 
     /**
@@ -79,70 +128,158 @@ public class Screen extends Canvas {
      * @param obstacles - obstacle nodes which will be drawn
      */
     public void clear(List<Node> obstacles) {
-        Platform.runLater(() -> {
-            gc.clearRect(0, 0, getWidth(), getHeight());
-            drawBackground();
-            drawObstacles(obstacles);
-            drawGrid();
-        });
+        request(new Frame(toGrid(obstacles), null, null, null));
     }
 
     /**
-     * method paints tiles that have been visited
-     * @param visited - list of visited tiles
+     * Clears the screen except the obstacles, taken from a grid which is copied right away.
+     * @param obstacles - grid where the obstacles are set
      */
-    private void drawVisited(List<Node> visited) {
-        gc.setFill(Color.web("768FD4"));
+    public void clear(BitGrid obstacles) {
+        request(new Frame(obstacles.copy(), null, null, null));
+    }
 
-        for(Node visitedNode : visited) {
-            gc.fillRect(visitedNode.getXCoordinate() * tileSideLength, visitedNode.getYCoordinate() * tileSideLength, tileSideLength, tileSideLength);
-        }
+    /**
+     * Zooms the screen in or out around a point, which keeps showing the same cell.
+     * @param factor - how much larger the cells become, below 1 to zoom out
+     * @param x - x coordinate of the point on the screen
+     * @param y - y coordinate of the point on the screen
+     */
+    public void zoom(double factor, double x, double y) {
+        setViewport(viewport.zoom(factor, x, y));
+    }
 
+    /**
+     * Moves the grid on the screen.
+     * @param dx - pixels to move to the right
+     * @param dy - pixels to move down
+     */
+    public void pan(double dx, double dy) {
+        setViewport(viewport.pan(dx, dy));
     }
 
     /**
-     * Method draws the obstacles
-     * @param obstacles - obstacles to be drawn
+     * Zooms out so that the whole grid is shown again.
      */
-    private void drawObstacles(List<Node> obstacles) {
-        gc.setFill(Color.web("393A3D"));
+    public void resetViewport() {
+        setViewport(Viewport.fit(numColumns, numRows, SIDE_LENGTH, SIDE_LENGTH));
+    }
 
-        for(Node obstacle : obstacles) {
-            gc.fillRect(obstacle.getXCoordinate() * tileSideLength, obstacle.getYCoordinate() * tileSideLength, tileSideLength, tileSideLength);
-        }
+    /**
+     * @return the column of the grid under an x coordinate of the screen, which may be outside of the grid
+     */
+    public int cellXAt(double x) {
+        return viewport.cellXAt(x);
     }
 
     /**
-     * Method draws the lines which makes up the grid
+     * @return the row of the grid under a y coordinate of the screen, which may be outside of the grid
      */
-    private void drawGrid() {
-        gc.setStroke(Color.WHITE);
+    public int cellYAt(double y) {
+        return viewport.cellYAt(y);
+    }
 
-        for(int i = 0; i < getHeight(); i += tileSideLength) {
-            gc.strokeLine(0, i, getWidth(), i); // vertical line
-            gc.strokeLine(i, 0, i, getHeight()); // horizontal line
+    /**
+     * Changes the viewport and draws the last frame again through it.
+     */
+    public void setViewport(Viewport viewport) {
+        this.viewport = viewport;
+        Frame frame = lastFrame;
+        if(frame != null) request(frame);
+    }
+
+    /**
+     * Copies the nodes into a grid, since the lists and nodes may change once this method has returned
+     * @param nodes - the nodes to be drawn
+     */
+    private BitGrid toGrid(List<Node> nodes) {
+        BitGrid grid = new BitGrid(numColumns, numRows);
+        for(Node node : nodes) {
+            grid.set(node.getXCoordinate(), node.getYCoordinate(), true);
         }
+        return grid;
+    }
 
+    /**
+     * Hands a frame to the render thread, replacing a frame which is still waiting there
+     */
+    private void request(Frame frame) {
+        lastFrame = frame;
+        if(pendingRequest.getAndSet(frame) == null) {
+            renderExecutor.execute(this::rasterizePending);
+        }
     }
 
     /**
-     * Draws given path
-     * @param list - the path given as a list
+     * Rasterizes the latest requested frame on the render thread and passes it on to the FX thread
      */
-    private void drawPath(List<Node> list) {
+    private void rasterizePending() {
+        Frame frame = pendingRequest.getAndSet(null);
+        if(frame == null) return;
 
-        gc.setFill(Color.web("DE6E2E"));
-        for(Node node : list) {
+        int[] pixels = freePixels.poll();
+        if(pixels == null) {
+            pixels = new int[rasterizer.getWidth() * rasterizer.getHeight()];
+        }
+        obstacleMipmap.update(frame.obstacles);
+        visitedMipmap.update(frame.visited);
+        frontierMipmap.update(frame.frontier);
+        rasterizer.rasterize(pixels, viewport, obstacleMipmap, visitedMipmap, frontierMipmap, frame.path);
 
-            gc.fillRect(node.getXCoordinate() * tileSideLength, node.getYCoordinate() * tileSideLength, tileSideLength, tileSideLength);
+        int[] skipped = pendingPixels.getAndSet(pixels);
+        if(skipped == null) {
+            Platform.runLater(this::blit);
+        } else {
+            freePixels.offer(skipped);
         }
     }
 
     /**
-     * Draws the default background
+     * Copies the latest rasterized frame into the image and draws it, on the FX thread
+     */
+    private void blit() {
+        int[] pixels = pendingPixels.getAndSet(null);
+        if(pixels == null) return;
+
+        pixelBuffer.updateBuffer(buffer -> {
+            IntBuffer target = buffer.getBuffer();
+            target.clear();
+            target.put(pixels);
+            return null;
+        });
+        freePixels.offer(pixels);
+        gc.drawImage(image, 0, 0, getWidth(), getHeight());
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public Viewport getViewport() {
+        return viewport;
+    }
+
+    /**
+     * A frame to be drawn, every part may be null
      */
-    private void drawBackground() {
-        gc.setFill(Color.web("C0C0C0"));
-        gc.fillRect(0, 0, getWidth(), getHeight());
+    private static class Frame {
+
+        final BitGrid obstacles;
+        final BitGrid visited;
+        final BitGrid frontier;
+        final GridPath path;
+
+        Frame(BitGrid obstacles, BitGrid visited, BitGrid frontier, GridPath path) {
+            this.obstacles = obstacles;
+            this.visited = visited;
+            this.frontier = frontier;
+            this.path = path;
+        }
     }
 }
@@ -25,6 +25,8 @@ public class View extends Pane {
     private Button startButton;
     private Button genMazeButton;
     private Button clearButton;
+    private Button replayButton;
+    private Slider replaySlider;
     private Label nodesExpanded;
     private Label pathLength;
 
@@ -55,6 +57,8 @@ public class View extends Pane {
         algoMenu = new ComboBox<>();
         algoMenu.getItems().add("Dijkstra's algorithm");
         algoMenu.getItems().add("A* algorithm");
+        algoMenu.getItems().add("Anytime A* (ARA*)");
+        algoMenu.getItems().add("Theta* (any-angle)");
         algoMenu.getItems().add("Bidirectional Dijkstra");
         algoMenu.getItems().add("Breadth First Search");
         algoMenu.setValue("Bidirectional Dijkstra");
@@ -76,6 +80,18 @@ public class View extends Pane {
         clearButton.setLayoutY(330);
         clearButton.setLayoutX(10);
 
+        replayButton = new Button("Replay");
+        replayButton.setPrefSize(80, 30);
+        replayButton.setLayoutY(330);
+        replayButton.setLayoutX(110);
+
+        // scrubs through the trace of the last search
+        replaySlider = new Slider(0, 0, 0);
+        replaySlider.setPrefWidth(180);
+        replaySlider.setLayoutY(208);
+        replaySlider.setLayoutX(10);
+        replaySlider.setDisable(true);
+
         Pane statBox = new Pane();
         statBox.setPrefSize(197, 70);
         statBox.setLayoutX(2);
@@ -96,6 +112,8 @@ public class View extends Pane {
                 startButton,
                 genMazeButton,
                 clearButton,
+                replayButton,
+                replaySlider,
                 screen,
                 startCoordinateField,
                 endCoordinateField,
@@ -172,4 +190,12 @@ public class View extends Pane {
     public Button getGenMazeButton() {
         return genMazeButton;
     }
+
+    public Button getReplayButton() {
+        return replayButton;
+    }
+
+    public Slider getReplaySlider() {
+        return replaySlider;
+    }
 }
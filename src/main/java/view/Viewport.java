@@ -0,0 +1,151 @@
+package view;
+
+/**
+ * The part of the grid which is shown on the screen, given by a scale in pixels per cell and the cell coordinate at
+ * the top left corner of the screen. A viewport never changes, zooming and panning return a new one, so it can be
+ * shared between the FX thread and the render thread without locking.
+ */
+public final class Viewport {
+
+    public static final double MAX_SCALE = 64;
+
+    private final int columns;
+    private final int rows;
+    private final int screenWidth;
+    private final int screenHeight;
+    private final double scale;
+    private final double originX;
+    private final double originY;
+
+    /**
+     * @param columns - number of cells per row of the grid
+     * @param rows - number of rows of the grid
+     * @param screenWidth - width of the screen in pixels
+     * @param screenHeight - height of the screen in pixels
+     * @param scale - pixels per cell
+     * @param originX - x coordinate, in cells, of the left edge of the screen
+     * @param originY - y coordinate, in cells, of the top edge of the screen
+     */
+    public Viewport(int columns, int rows, int screenWidth, int screenHeight, double scale, double originX, double originY) {
+        if(columns <= 0 || rows <= 0 || screenWidth <= 0 || screenHeight <= 0) {
+            throw new IllegalArgumentException("Grid and screen dimensions must be positive");
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        this.scale = Math.max(getMinScale(columns, rows, screenWidth, screenHeight), Math.min(MAX_SCALE, scale));
+
+        // the center of the screen stays on the grid, so the grid can never be panned out of sight
+        double halfWidth = screenWidth / (2 * this.scale), halfHeight = screenHeight / (2 * this.scale);
+        this.originX = Math.max(-halfWidth, Math.min(columns - halfWidth, originX));
+        this.originY = Math.max(-halfHeight, Math.min(rows - halfHeight, originY));
+    }
+
+    /**
+     * Creates a viewport which shows the whole grid, with whole pixels per cell when the cells are at least a pixel.
+     */
+    public static Viewport fit(int columns, int rows, int screenWidth, int screenHeight) {
+        double scale = Math.min((double) screenWidth / columns, (double) screenHeight / rows);
+        if(scale >= 1) scale = Math.floor(scale);
+        return new Viewport(columns, rows, screenWidth, screenHeight, scale, 0, 0);
+    }
+
+    /**
+     * Zooms so that the cell under the pivot stays under it.
+     * @param factor - how much the scale is multiplied by
+     * @param pivotX - x coordinate of the pivot on the screen
+     * @param pivotY - y coordinate of the pivot on the screen
+     */
+    public Viewport zoom(double factor, double pivotX, double pivotY) {
+        double newScale = Math.max(getMinScale(columns, rows, screenWidth, screenHeight), Math.min(MAX_SCALE, scale * factor));
+        double cellX = toCellX(pivotX), cellY = toCellY(pivotY);
+        return new Viewport(columns, rows, screenWidth, screenHeight, newScale,
+                cellX - pivotX / newScale, cellY - pivotY / newScale);
+    }
+
+    /**
+     * Moves the grid along with the mouse.
+     * @param dx - pixels the grid moves to the right
+     * @param dy - pixels the grid moves down
+     */
+    public Viewport pan(double dx, double dy) {
+        return new Viewport(columns, rows, screenWidth, screenHeight, scale, originX - dx / scale, originY - dy / scale);
+    }
+
+    public double toCellX(double screenX) {
+        return originX + screenX / scale;
+    }
+
+    public double toCellY(double screenY) {
+        return originY + screenY / scale;
+    }
+
+    /**
+     * @return the column under the screen coordinate, which may be outside of the grid
+     */
+    public int cellXAt(double screenX) {
+        return (int) Math.floor(toCellX(screenX));
+    }
+
+    /**
+     * @return the row under the screen coordinate, which may be outside of the grid
+     */
+    public int cellYAt(double screenY) {
+        return (int) Math.floor(toCellY(screenY));
+    }
+
+    public double toScreenX(double cellX) {
+        return (cellX - originX) * scale;
+    }
+
+    public double toScreenY(double cellY) {
+        return (cellY - originY) * scale;
+    }
+
+    /**
+     * @return the mipmap level to draw from, where a pixel covers about 2^level cells per side, 0 when a cell takes
+     * at least a pixel
+     */
+    public int getLevelOfDetail() {
+        if(scale >= 1) return 0;
+        return 31 - Integer.numberOfLeadingZeros((int) (1 / scale));
+    }
+
+    /**
+     * The smallest scale still shows the whole grid at half the size of the screen, anything smaller is wasted.
+     */
+    private static double getMinScale(int columns, int rows, int screenWidth, int screenHeight) {
+        return Math.min((double) screenWidth / columns, (double) screenHeight / rows) / 2;
+    }
+
+    //-------------------------- Bunch of setters and getters below
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getScreenWidth() {
+        return screenWidth;
+    }
+
+    public int getScreenHeight() {
+        return screenHeight;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public double getOriginX() {
+        return originX;
+    }
+
+    public double getOriginY() {
+        return originY;
+    }
+}
@@ -0,0 +1,87 @@
+package model;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the search loops allocate nothing once they are warmed up: GridAStar on a reused workspace, and the
+ * steps and path extraction of the path algorithms after construction. Allocations are read from the per-thread
+ * counter of the JVM, so anything the loops allocate shows up, whether or not it would survive a collection.
+ */
+class AllocationFreeSearchTest {
+
+    private static final int WARM_UP_QUERIES = 200;
+    private static final int MEASURED_QUERIES = 100;
+
+    private final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final BitGrid obstacles = TestMaps.random(80, 80, 0.25, 41);
+    private final List<int[]> queries = TestMaps.queries(obstacles, WARM_UP_QUERIES + MEASURED_QUERIES, 42);
+
+    @Test
+    void gridAStarOnReusedWorkspaceAllocatesNothing() {
+        GridAStar engine = new GridAStar(obstacles);
+        SearchWorkspace workspace = new SearchWorkspace();
+        long checksum = 0;
+
+        for(int i = 0; i < WARM_UP_QUERIES; i++) {
+            checksum += searchGrid(engine, workspace, queries.get(i));
+        }
+        long before = allocatedBytes();
+        for(int i = WARM_UP_QUERIES; i < queries.size(); i++) {
+            checksum += searchGrid(engine, workspace, queries.get(i));
+        }
+        long allocated = allocatedBytes() - before;
+
+        assertTrue(checksum > 0, "no query found a path");
+        assertEquals(0, allocated, "GridAStar allocated " + allocated + " bytes in " + MEASURED_QUERIES + " queries");
+    }
+
+    private static long searchGrid(GridAStar engine, SearchWorkspace workspace, int[] query) {
+        if(engine.search(query[0], query[1], query[2], query[3], workspace) != SearchStatus.FOUND) return 0;
+        int[] cells = workspace.getPathCells();
+        return cells[workspace.getPathSize() - 1] + workspace.getPathSize();
+    }
+
+    @Test
+    void pathAlgorithmStepsAllocateNothing() {
+        Graph graph = TestMaps.toGraph(obstacles);
+        int[] path = new int[obstacles.getWidth() * obstacles.getHeight()];
+
+        // ARA* is left out, it publishes every improved path as a new array for readers on other threads
+        Map<String, Engine.AlgorithmFactory> engines = new LinkedHashMap<>();
+        engines.put("Dijkstra", Dijkstra::new);
+        engines.put("AStar", AStar::new);
+        engines.put("BidirectionalDijkstra", BidirectionalDijkstra::new);
+        engines.put("BreadthFirstSearch", BreadthFirstSearch::new);
+        engines.put("ThetaStar", ThetaStar::new);
+        for(Map.Entry<String, Engine.AlgorithmFactory> engine : engines.entrySet()) {
+            long maxAllocated = 0;
+            for(int i = 0; i < queries.size(); i++) {
+                int[] query = queries.get(i);
+                PathAlgorithm alg = engine.getValue().create(new Point(query[0], query[1]),
+                        new Point(query[2], query[3]), graph);
+
+                long before = allocatedBytes();
+                while(!alg.pathIsFound() && !alg.isExhausted()) {
+                    alg.visitNext();
+                }
+                alg.copyPath(path);
+                long allocated = allocatedBytes() - before;
+
+                if(i >= WARM_UP_QUERIES) maxAllocated = Math.max(maxAllocated, allocated);
+            }
+            assertEquals(0, maxAllocated, engine.getKey() + " allocated up to " + maxAllocated + " bytes while searching");
+        }
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
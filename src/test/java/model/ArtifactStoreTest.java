@@ -0,0 +1,137 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that stored artifacts are loaded back unchanged, and that a file for another map, a damaged file or one with
+ * other sections than its kind leads to building the artifact again.
+ */
+class ArtifactStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final BitGrid obstacles = TestMaps.random(40, 30, 0.3, 61);
+    private final List<int[]> queries = TestMaps.queries(obstacles, 30, 62);
+
+    @Test
+    void loadedArtifactsAnswerLikeBuiltOnes() throws IOException {
+        ContractionHierarchy builtHierarchy = new ArtifactStore(directory).loadHierarchy(obstacles);
+        FirstMoveTable builtTable = new ArtifactStore(directory).loadFirstMoveTable(obstacles);
+
+        ArtifactStore store = new ArtifactStore(directory);
+        ContractionHierarchy hierarchy = store.loadHierarchy(obstacles);
+        FirstMoveTable table = store.loadFirstMoveTable(obstacles);
+        assertEquals(2, store.getNumLoaded());
+        assertEquals(0, store.getNumBuilt());
+        assertEquals(builtHierarchy.getNumEdges(), hierarchy.getNumEdges());
+        assertEquals(builtTable.getNumRuns(), table.getNumRuns());
+
+        ContractionHierarchy.Workspace builtWorkspace = new ContractionHierarchy.Workspace(builtHierarchy);
+        ContractionHierarchy.Workspace workspace = new ContractionHierarchy.Workspace(hierarchy);
+        for(int[] query : queries) {
+            PathResult expected = builtHierarchy.findPath(query[0], query[1], query[2], query[3], builtWorkspace);
+            PathResult actual = hierarchy.findPath(query[0], query[1], query[2], query[3], workspace);
+            assertEquals(expected.getStatus(), actual.getStatus());
+            if(expected.isFound()) assertArrayEquals(expected.getPath().toArray(), actual.getPath().toArray());
+
+            expected = builtTable.findPath(query[0], query[1], query[2], query[3]);
+            actual = table.findPath(query[0], query[1], query[2], query[3]);
+            assertEquals(expected.getStatus(), actual.getStatus());
+            if(expected.isFound()) assertArrayEquals(expected.getPath().toArray(), actual.getPath().toArray());
+        }
+    }
+
+    @Test
+    void otherMapsAndDamagedFilesAreBuiltAgain() throws IOException {
+        ArtifactStore store = new ArtifactStore(directory);
+        store.loadFirstMoveTable(obstacles);
+        BitGrid edited = obstacles.copy();
+        edited.set(0, 0, !edited.get(0, 0));
+        store.loadFirstMoveTable(edited);
+        assertEquals(2, store.getNumBuilt());
+
+        Path file = store.getPath(ArtifactStore.Kind.FIRST_MOVE_TABLE, ArtifactStore.hash(obstacles));
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+        store.loadFirstMoveTable(obstacles);
+        assertEquals(3, store.getNumBuilt());
+
+        store.loadFirstMoveTable(obstacles);
+        store.loadFirstMoveTable(edited);
+        assertEquals(2, store.getNumLoaded());
+    }
+
+    @Test
+    void changedSectionsAreBuiltAgain() throws IOException {
+        ArtifactStore store = new ArtifactStore(directory);
+        store.loadFirstMoveTable(obstacles);
+        Path file = store.getPath(ArtifactStore.Kind.FIRST_MOVE_TABLE, ArtifactStore.hash(obstacles));
+
+        // the type of the sizes section changed to floats
+        int typeOfSizes = ArtifactStore.HEADER_BYTES + ArtifactStore.SECTION_BYTES + 12;
+        writeInt(file, typeOfSizes, readInt(file, typeOfSizes) + 1);
+        store.loadFirstMoveTable(obstacles);
+        assertEquals(2, store.getNumBuilt());
+
+        // a section less, so the table would be short of its runs
+        writeInt(file, 32, readInt(file, 32) - 1);
+        store.loadFirstMoveTable(obstacles);
+        assertEquals(3, store.getNumBuilt());
+
+        // one flipped bit in the order of the cells
+        long orderOfCell = readLong(file, ArtifactStore.HEADER_BYTES + 2 * ArtifactStore.SECTION_BYTES);
+        writeInt(file, orderOfCell + 4, readInt(file, orderOfCell + 4) ^ 1);
+        store.loadFirstMoveTable(obstacles);
+        assertEquals(4, store.getNumBuilt());
+
+        store.loadFirstMoveTable(obstacles);
+        assertEquals(1, store.getNumLoaded());
+    }
+
+    @Test
+    void artifactsWhichFailToLoadAreBuiltAgain() throws IOException {
+        ArtifactStore store = new ArtifactStore(directory);
+        FirstMoveTable built = store.loadFirstMoveTable(obstacles);
+        FirstMoveTable rebuilt = store.load(ArtifactStore.Kind.FIRST_MOVE_TABLE, obstacles, FirstMoveTable::build,
+                FirstMoveTable::toSections, sections -> { throw new IllegalStateException("sections don't fit"); });
+        assertEquals(0, store.getNumLoaded());
+        assertEquals(2, store.getNumBuilt());
+        assertEquals(built.getNumRuns(), rebuilt.getNumRuns());
+    }
+
+    private static int readInt(Path file, long position) throws IOException {
+        return read(file, position, 4).getInt();
+    }
+
+    private static long readLong(Path file, long position) throws IOException {
+        return read(file, position, 8).getLong();
+    }
+
+    private static ByteBuffer read(Path file, long position, int bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.read(buffer, position);
+        }
+        return buffer.flip();
+    }
+
+    private static void writeInt(Path file, long position, int value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).flip();
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(buffer, position);
+        }
+    }
+}
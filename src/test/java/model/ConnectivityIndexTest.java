@@ -0,0 +1,171 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the components of {@link ConnectivityIndex} against {@link ReferenceDijkstra}, and an index maintained
+ * through edits against one built from scratch, and that a {@link Graph} keeps its index while the obstacles stay the
+ * same.
+ */
+class ConnectivityIndexTest {
+
+    @Test
+    void componentsMatchReference() {
+        BitGrid obstacles = TestMaps.random(50, 40, 0.45, 61);
+        ConnectivityIndex index = new ConnectivityIndex(obstacles);
+        ReferenceDijkstra reference = new ReferenceDijkstra(obstacles);
+
+        for(int[] query : TestMaps.queries(obstacles, 200, 62)) {
+            boolean expected = reference.distance(query[0], query[1], query[2], query[3]) != Double.POSITIVE_INFINITY;
+            assertEquals(expected, index.isConnected(query[0], query[1], query[2], query[3]),
+                    "from (" + query[0] + ", " + query[1] + ") to (" + query[2] + ", " + query[3] + ")");
+        }
+        int obstacle = TestMaps.firstObstacle(obstacles);
+        int x = obstacle % obstacles.getWidth(), y = obstacle / obstacles.getWidth();
+        assertEquals(-1, index.getComponent(x, y));
+        assertFalse(index.isConnected(x, y, x, y));
+        assertEquals(-1, index.getComponent(-1, 0));
+        assertEquals(-1, index.getComponent(0, obstacles.getHeight()));
+    }
+
+    @Test
+    void editedIndexMatchesRebuild() {
+        // around the density where walls split and join components most often
+        BitGrid obstacles = TestMaps.random(40, 30, 0.4, 63);
+        ConnectivityIndex index = new ConnectivityIndex(obstacles);
+        SplittableRandom random = new SplittableRandom(64);
+
+        for(int edit = 0; edit < 2000; edit++) {
+            int x = random.nextInt(obstacles.getWidth()), y = random.nextInt(obstacles.getHeight());
+            boolean obstacle = random.nextDouble() < 0.55;
+            obstacles.set(x, y, obstacle);
+            index.setObstacle(x, y, obstacle);
+            if(edit % 10 == 0) {
+                assertSameComponents(new ConnectivityIndex(obstacles), index, "after edit " + edit);
+            }
+        }
+        assertTrue(index.hasObstacles(obstacles));
+    }
+
+    @Test
+    void graphKeepsIndexWhileObstaclesAreUnchanged() {
+        BitGrid obstacles = TestMaps.random(30, 30, 0.3, 65);
+        Graph graph = TestMaps.toGraph(obstacles);
+        List<int[]> queries = TestMaps.queries(obstacles, 1, 66);
+        Point start = new Point(queries.get(0)[0], queries.get(0)[1]);
+        Point end = new Point(queries.get(0)[2], queries.get(0)[3]);
+
+        graph.isReachable(start, end);
+        ConnectivityIndex index = graph.getConnectivity();
+        // every algorithm replaces the nodes of the graph when it is created
+        new Dijkstra(start, end, graph);
+        graph.isReachable(start, end);
+        assertSame(index, graph.getConnectivity());
+
+        graph.setObstacle(start.x, start.y, true);
+        assertFalse(graph.isReachable(start, end));
+        assertSame(index, graph.getConnectivity());
+        obstacles.set(start.x, start.y, true);
+        assertSameComponents(new ConnectivityIndex(obstacles), index, "after an edit");
+
+        // obstacles changed directly on the nodes make the index stale
+        graph.getNodeByCoordinate(start.x, start.y).setState(NodeState.UNVISITED);
+        graph.initNeighbors();
+        assertTrue(graph.isReachable(start, start));
+        assertNotSame(index, graph.getConnectivity());
+    }
+
+    @Test
+    void graphUpdatesIndexWithBatchesOfEdits() {
+        Graph graph = TestMaps.toGraph(TestMaps.random(60, 40, 0.2, 67));
+        ObstacleEdits edits = new ObstacleEdits(graph.getWIDTH(), graph.getHEIGHT());
+        SplittableRandom random = new SplittableRandom(68);
+
+        for(int batch = 0; batch < 200; batch++) {
+            graph.isReachable(new Point(0, 0), new Point(0, 0));
+            ConnectivityIndex index = graph.getConnectivity();
+
+            // what one frame of drawing collects: a short piece of a wall, sometimes erasing instead
+            int x = random.nextInt(60), y = random.nextInt(40);
+            edits.beginStroke(x, y, random.nextDouble() < 0.8);
+            edits.continueStroke(x + random.nextInt(-4, 5), y + random.nextInt(-4, 5));
+            edits.endStroke();
+            graph.applyEdits(edits);
+            edits.clear();
+
+            // the index is either dropped, or updated to the same components as a new one
+            if(graph.getConnectivity() == null) continue;
+            assertSame(index, graph.getConnectivity(), "batch " + batch);
+            assertSameComponents(new ConnectivityIndex(graph.getObstacleGrid()), index, "after batch " + batch);
+        }
+    }
+
+    @Test
+    void graphKeepsIndexForWallsInOpenSpace() {
+        Graph graph = TestMaps.toGraph(new BitGrid(60, 40));
+        graph.isReachable(new Point(0, 0), new Point(0, 0));
+        ConnectivityIndex index = graph.getConnectivity();
+        ObstacleEdits edits = new ObstacleEdits(60, 40);
+
+        // walls which touch neither each other nor the border never need a flood fill
+        for(int x = 2; x < 58; x += 3) {
+            edits.beginStroke(x, 2, true);
+            edits.continueStroke(x, 37);
+            edits.endStroke();
+            graph.applyEdits(edits);
+            edits.clear();
+            assertSame(index, graph.getConnectivity());
+        }
+        assertSameComponents(new ConnectivityIndex(graph.getObstacleGrid()), index, "after the walls");
+        assertTrue(graph.isReachable(new Point(0, 0), new Point(59, 39)));
+    }
+
+    @Test
+    void graphDropsIndexWhenEditsFloodTooMuch() {
+        Graph graph = TestMaps.toGraph(new BitGrid(30, 30));
+        assertTrue(graph.isReachable(new Point(0, 0), new Point(29, 29)));
+
+        // a wall across the grid, and walls from the top edge down to it which each split the upper part again
+        ObstacleEdits edits = new ObstacleEdits(30, 30);
+        edits.beginStroke(0, 15, true);
+        edits.continueStroke(29, 15);
+        edits.endStroke();
+        for(int x = 3; x < 30; x += 3) {
+            edits.beginStroke(x, 0, true);
+            edits.continueStroke(x, 14);
+            edits.endStroke();
+        }
+        graph.applyEdits(edits);
+
+        assertNull(graph.getConnectivity());
+        assertFalse(graph.isReachable(new Point(0, 0), new Point(29, 29)));
+        assertFalse(graph.isReachable(new Point(0, 0), new Point(4, 0)));
+        assertTrue(graph.isReachable(new Point(0, 0), new Point(2, 14)));
+        assertTrue(graph.isReachable(new Point(0, 16), new Point(29, 29)));
+    }
+
+    /**
+     * Asserts that two indices put the same cells into the same components, whatever their labels are.
+     */
+    private static void assertSameComponents(ConnectivityIndex expected, ConnectivityIndex actual, String message) {
+        Map<Integer, Integer> expectedToActual = new HashMap<>();
+        Map<Integer, Integer> actualToExpected = new HashMap<>();
+        for(int y = 0; y < expected.getHeight(); y++) {
+            for(int x = 0; x < expected.getWidth(); x++) {
+                int e = expected.getComponent(x, y), a = actual.getComponent(x, y);
+                String cell = message + " at (" + x + ", " + y + ")";
+                assertEquals(e < 0, a < 0, cell);
+                if(e < 0) continue;
+                assertEquals(a, expectedToActual.computeIfAbsent(e, label -> a), cell);
+                assertEquals(e, actualToExpected.computeIfAbsent(a, label -> e), cell);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks a distance matrix against {@link ReferenceDijkstra} for every pair, on a map with several components and with
+ * repeated cells and an obstacle among the sources and targets.
+ */
+class DistanceMatrixTest {
+
+    private static final double TOLERANCE = 1e-3;
+
+    @Test
+    void matrixMatchesReference() {
+        BitGrid obstacles = TestMaps.random(48, 40, 0.4, 53);
+        int width = obstacles.getWidth();
+        ReferenceDijkstra reference = new ReferenceDijkstra(obstacles);
+        int[] sources = TestMaps.cells(obstacles, 15, 54);
+        int[] targets = TestMaps.cells(obstacles, 20, 55);
+        sources[1] = sources[0];
+        targets[3] = sources[2];
+        targets[4] = TestMaps.firstObstacle(obstacles);
+
+        float[] matrix = DistanceMatrix.compute(ContractionHierarchy.build(obstacles), sources, targets);
+
+        assertEquals(sources.length * targets.length, matrix.length);
+        for(int s = 0; s < sources.length; s++) {
+            for(int t = 0; t < targets.length; t++) {
+                int sx = sources[s] % width, sy = sources[s] / width, tx = targets[t] % width, ty = targets[t] / width;
+                double expected = obstacles.get(tx, ty) ? Double.POSITIVE_INFINITY : reference.distance(sx, sy, tx, ty);
+                assertEquals(expected, matrix[s * targets.length + t], TOLERANCE,
+                        "from (" + sx + ", " + sy + ") to (" + tx + ", " + ty + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the distance transform, on the Vector API and with plain loops, against the smallest octile distance to any
+ * seed, on grids whose widths are not multiples of the vector length.
+ */
+class DistanceTransformTest {
+
+    private static final double TOLERANCE = 1e-3;
+
+    @Test
+    void matchesNearestSeedByOctileDistance() {
+        Random random = new Random(71);
+        for(int[] size : new int[][]{{1, 1}, {1, 9}, {9, 1}, {37, 23}, {64, 17}, {101, 70}}) {
+            BitGrid seeds = new BitGrid(size[0], size[1]);
+            int numSeeds = 1 + random.nextInt(8);
+            for(int i = 0; i < numSeeds; i++) {
+                seeds.set(random.nextInt(size[0]), random.nextInt(size[1]), true);
+            }
+
+            float[] scalar = new float[size[0] * size[1]];
+            DistanceTransform.compute(seeds, scalar, false);
+            float[] actual = DistanceTransform.compute(seeds);
+            for(int y = 0; y < size[1]; y++) {
+                for(int x = 0; x < size[0]; x++) {
+                    double expected = Double.POSITIVE_INFINITY;
+                    for(int sy = 0; sy < size[1]; sy++) {
+                        for(int sx = 0; sx < size[0]; sx++) {
+                            if(seeds.get(sx, sy)) expected = Math.min(expected, PathAlgorithm.getOctileDistance(x, y, sx, sy));
+                        }
+                    }
+                    String description = size[0] + "x" + size[1] + " at (" + x + ", " + y + ")";
+                    assertEquals(expected, scalar[y * size[0] + x], TOLERANCE, description);
+                    assertEquals(expected, actual[y * size[0] + x], TOLERANCE, description);
+                }
+            }
+        }
+    }
+
+    @Test
+    void gridWithoutSeedsIsInfinitelyFar() {
+        for(float distance : DistanceTransform.compute(new BitGrid(20, 10))) {
+            assertEquals(Float.POSITIVE_INFINITY, distance);
+        }
+    }
+}
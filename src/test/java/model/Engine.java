@@ -0,0 +1,177 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The search engines under test, each run to completion on a query.
+ */
+enum Engine {
+
+    DIJKSTRA(Guarantee.SHORTEST) {
+        @Override
+        Outcome search(Graph graph, BitGrid obstacles, int[] query) {
+            return runToEnd(Dijkstra::new, graph, query);
+        }
+    },
+    A_STAR(Guarantee.SHORTEST) {
+        @Override
+        Outcome search(Graph graph, BitGrid obstacles, int[] query) {
+            return runToEnd(AStar::new, graph, query);
+        }
+    },
+    BIDIRECTIONAL_DIJKSTRA(Guarantee.SHORTEST) {
+        @Override
+        Outcome search(Graph graph, BitGrid obstacles, int[] query) {
+            return runToEnd(BidirectionalDijkstra::new, graph, query);
+        }
+    },
+    ANYTIME_A_STAR(Guarantee.SHORTEST) {
+        @Override
+        Outcome search(Graph graph, BitGrid obstacles, int[] query) {
+            return runToEnd(AnytimeAStar::new, graph, query);
+        }
+    },
+    BREADTH_FIRST_SEARCH(Guarantee.FEWEST_MOVES) {
+        @Override
+        Outcome search(Graph graph, BitGrid obstacles, int[] query) {
+            return runToEnd(BreadthFirstSearch::new, graph, query);
+        }
+    },
+    THETA_STAR(Guarantee.ANY_ANGLE) {
+        @Override
+        Outcome search(Graph graph, BitGrid obstacles, int[] query) {
+            return runToEnd(ThetaStar::new, graph, query);
+        }
+    },
+    GRID_A_STAR(Guarantee.SHORTEST) {
+        private final SearchWorkspace workspace = new SearchWorkspace();
+
+        @Override
+        Outcome search(Graph graph, BitGrid obstacles, int[] query) {
+            PathResult result = new GridAStar(obstacles).findPath(query[0], query[1], query[2], query[3], workspace);
+            return new Outcome(result.isFound(), result.getPath(), result.getDistance(), result.getExpansions());
+        }
+    },
+    CONTRACTION_HIERARCHY(Guarantee.SHORTEST) {
+        // built once per map, queries on the same map reuse it
+        private BitGrid builtFor;
+        private ContractionHierarchy hierarchy;
+        private ContractionHierarchy.Workspace workspace;
+
+        @Override
+        Outcome search(Graph graph, BitGrid obstacles, int[] query) {
+            if(builtFor != obstacles) {
+                builtFor = obstacles;
+                hierarchy = ContractionHierarchy.build(obstacles);
+                workspace = new ContractionHierarchy.Workspace(hierarchy);
+            }
+            PathResult result = hierarchy.findPath(query[0], query[1], query[2], query[3], workspace);
+            return new Outcome(result.isFound(), result.getPath(), result.getDistance(), result.getExpansions());
+        }
+    },
+    FIRST_MOVE_TABLE(Guarantee.SHORTEST) {
+        private BitGrid builtFor;
+        private FirstMoveTable table;
+
+        @Override
+        Outcome search(Graph graph, BitGrid obstacles, int[] query) {
+            if(builtFor != obstacles) {
+                builtFor = obstacles;
+                table = FirstMoveTable.build(obstacles);
+            }
+            PathResult result = table.findPath(query[0], query[1], query[2], query[3]);
+            return new Outcome(result.isFound(), result.getPath(), result.getDistance(), result.getExpansions());
+        }
+    },
+    TILED_A_STAR(Guarantee.SHORTEST) {
+        // read from a map file with room for a single chunk
+        private BitGrid builtFor;
+        private TiledAStar search;
+
+        @Override
+        Outcome search(Graph graph, BitGrid obstacles, int[] query) {
+            try {
+                if(builtFor != obstacles) {
+                    if(search != null) search.getGrid().close();
+                    builtFor = obstacles;
+                    search = new TiledAStar(TestMaps.tiled(obstacles, 1));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            boolean found = search.search(query[0], query[1], query[2], query[3]) == SearchStatus.FOUND;
+            GridPath path = null;
+            if(found) {
+                int[] cells = new int[search.getPath().length];
+                for(int i = 0; i < cells.length; i++) {
+                    cells[i] = (int) search.getPath()[i];
+                }
+                path = new GridPath(obstacles.getWidth(), cells, cells.length);
+            }
+            return new Outcome(found, path, search.getDistance(), search.getExpansions());
+        }
+    };
+
+    /**
+     * What the paths of an engine are known to be.
+     */
+    enum Guarantee {
+        SHORTEST, FEWEST_MOVES, ANY_ANGLE
+    }
+
+    private final Guarantee guarantee;
+
+    Engine(Guarantee guarantee) {
+        this.guarantee = guarantee;
+    }
+
+    /**
+     * Runs the search until it has found a path or run out of nodes.
+     * @param graph - graph with the obstacles, which the path algorithms reset
+     * @param obstacles - the same obstacles as a grid
+     * @param query - {start x, start y, end x, end y}
+     */
+    abstract Outcome search(Graph graph, BitGrid obstacles, int[] query);
+
+    /**
+     * Creates a path algorithm for the query and steps it until it has found a path or run out of nodes.
+     */
+    static Outcome runToEnd(AlgorithmFactory factory, Graph graph, int[] query) {
+        PathAlgorithm alg = factory.create(new Point(query[0], query[1]), new Point(query[2], query[3]), graph);
+        int expansions = 0;
+        while(!alg.pathIsFound() && !alg.isExhausted()) {
+            alg.visitNext();
+            expansions++;
+        }
+        boolean found = alg.pathIsFound();
+        return new Outcome(found, alg.getGridPath(), found ? alg.getFoundPathDistance() : Double.POSITIVE_INFINITY,
+                expansions);
+    }
+
+    Guarantee getGuarantee() {
+        return guarantee;
+    }
+
+    /**
+     * The constructor of a {@link PathAlgorithm}.
+     */
+    interface AlgorithmFactory {
+        PathAlgorithm create(Point start, Point end, Graph graph);
+    }
+
+    static final class Outcome {
+
+        final boolean found;
+        final GridPath path;
+        final double distance;
+        final int expansions;
+
+        Outcome(boolean found, GridPath path, double distance, int expansions) {
+            this.found = found;
+            this.path = path;
+            this.distance = distance;
+            this.expansions = expansions;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that encoded paths decode to the same path, and that damaged encodings are rejected.
+ */
+class GridPathTest {
+
+    private static final int WIDTH = 20;
+
+    @Test
+    void encodedPathsDecodeToTheSamePath() {
+        GridPath empty = new GridPath(WIDTH, new int[0], 0);
+        assertEquals(empty, GridPath.decode(WIDTH, empty.encode()));
+        GridPath single = new GridPath(WIDTH, new int[]{47}, 1);
+        assertEquals(single, GridPath.decode(WIDTH, single.encode()));
+        GridPath path = path();
+        assertEquals(path, GridPath.decode(WIDTH, path.encode()));
+    }
+
+    @Test
+    void damagedEncodingsAreRejected() {
+        byte[] data = path().encode();
+        for(int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(IllegalArgumentException.class, () -> GridPath.decode(WIDTH, truncated), length + " bytes");
+        }
+        byte[] overlong = Arrays.copyOf(data, data.length + 1);
+        assertThrows(IllegalArgumentException.class, () -> GridPath.decode(WIDTH, overlong));
+
+        // a size which the runs do not add up to, in both directions
+        byte[] shorter = data.clone();
+        shorter[0]--;
+        assertThrows(IllegalArgumentException.class, () -> GridPath.decode(WIDTH, shorter));
+        byte[] longer = data.clone();
+        longer[0]++;
+        assertThrows(IllegalArgumentException.class, () -> GridPath.decode(WIDTH, longer));
+
+        byte[] endless = new byte[12];
+        Arrays.fill(endless, (byte) 0x80);
+        assertThrows(IllegalArgumentException.class, () -> GridPath.decode(WIDTH, endless));
+    }
+
+    /**
+     * A path with runs of several directions and lengths.
+     */
+    private static GridPath path() {
+        int[] moves = {0, 0, 0, 1, 1, 2, 4, 4, 4, 4, 7, 3};
+        int[] cells = new int[moves.length + 1];
+        cells[0] = 10 * WIDTH + 10;
+        for(int i = 0; i < moves.length; i++) {
+            cells[i + 1] = cells[i] + Direction.dy(moves[i]) * WIDTH + Direction.dx(moves[i]);
+        }
+        return new GridPath(WIDTH, cells, cells.length);
+    }
+}
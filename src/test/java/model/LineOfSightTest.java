@@ -0,0 +1,63 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the word-parallel lines of {@link LineOfSight} against the cell by cell walk of {@link ReferenceLine}, on a
+ * map wider than a word so that runs cross word boundaries, for flat, steep and diagonal lines in every direction.
+ */
+class LineOfSightTest {
+
+    private final BitGrid obstacles = TestMaps.random(150, 90, 0.08, 91);
+    private final LineOfSight lineOfSight = new LineOfSight(obstacles);
+    private final ReferenceLine reference = new ReferenceLine(obstacles);
+
+    @Test
+    void linesMatchReference() {
+        SplittableRandom random = new SplittableRandom(92);
+        int clear = 0;
+        for(int i = 0; i < 20_000; i++) {
+            int x0 = random.nextInt(150), y0 = random.nextInt(90);
+            // mostly short lines, which are the ones a search checks and the ones which are often clear
+            int length = random.nextInt(4) == 0 ? 150 : 12;
+            int x1 = clamp(x0 + random.nextInt(-length, length + 1), 150);
+            int y1 = clamp(y0 + random.nextInt(-length, length + 1), 90);
+            boolean expected = reference.isClear(x0, y0, x1, y1);
+            String description = "(" + x0 + ", " + y0 + ") to (" + x1 + ", " + y1 + ")";
+            assertEquals(expected, lineOfSight.isClear(x0, y0, x1, y1), description);
+            assertEquals(expected, lineOfSight.isClear(x1, y1, x0, y0), description + " reversed");
+            if(expected) clear++;
+        }
+        assertTrue(clear > 2_000 && clear < 18_000, clear + " clear lines");
+
+        assertFalse(lineOfSight.isClear(-1, 0, 5, 5));
+        assertFalse(lineOfSight.isClear(0, 0, 150, 0));
+    }
+
+    @Test
+    void severalLinesMatchSingleOnes() {
+        int count = 500;
+        int[] cells = TestMaps.cells(obstacles, 2 * count, 93);
+        int[] fromCells = new int[count + 1], toCells = new int[count + 1];
+        System.arraycopy(cells, 0, fromCells, 0, count);
+        System.arraycopy(cells, count, toCells, 0, count);
+        boolean[] result = new boolean[count + 1];
+        // past the count nothing is written
+        result[count] = true;
+
+        lineOfSight.isClear(count, fromCells, toCells, result);
+        for(int i = 0; i < count; i++) {
+            int x0 = fromCells[i] % 150, y0 = fromCells[i] / 150, x1 = toCells[i] % 150, y1 = toCells[i] / 150;
+            assertEquals(reference.isClear(x0, y0, x1, y1), result[i], "line " + i);
+        }
+        assertTrue(result[count]);
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+}
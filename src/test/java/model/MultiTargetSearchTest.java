@@ -0,0 +1,93 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the multi-target queries against {@link ReferenceDijkstra} run once per target, on a random map where some
+ * targets are walled off or are obstacles themselves.
+ */
+class MultiTargetSearchTest {
+
+    private static final int NUM_TARGETS = 40;
+    private static final double TOLERANCE = 1e-3;
+
+    private final BitGrid obstacles = TestMaps.random(60, 50, 0.35, 47);
+    private final ReferenceDijkstra reference = new ReferenceDijkstra(obstacles);
+    private final MultiTargetSearch engine = new MultiTargetSearch(obstacles);
+    private final SearchWorkspace workspace = new SearchWorkspace();
+
+    @Test
+    void allQueryModesMatchReference() {
+        List<int[]> starts = TestMaps.queries(obstacles, 10, 48);
+        int[] targets = targets(49);
+
+        for(int[] start : starts) {
+            double[] expected = new double[NUM_TARGETS];
+            for(int i = 0; i < NUM_TARGETS; i++) {
+                int x = targets[i] % obstacles.getWidth(), y = targets[i] / obstacles.getWidth();
+                expected[i] = obstacles.get(x, y) ? Double.POSITIVE_INFINITY : reference.distance(start[0], start[1], x, y);
+            }
+            double[] sorted = expected.clone();
+            Arrays.sort(sorted);
+            String description = "from (" + start[0] + ", " + start[1] + ")";
+
+            float[] distances = new float[NUM_TARGETS];
+            int reachable = engine.findDistances(start[0], start[1], targets, distances, workspace);
+            assertEquals(Arrays.stream(expected).filter(d -> d != Double.POSITIVE_INFINITY).count(), reachable, description);
+            for(int i = 0; i < NUM_TARGETS; i++) {
+                assertEquals(expected[i], distances[i], TOLERANCE, description + " to target " + i);
+            }
+
+            int nearest = engine.findNearest(start[0], start[1], targets, workspace);
+            if(sorted[0] == Double.POSITIVE_INFINITY) {
+                assertEquals(-1, nearest, description);
+                continue;
+            }
+            assertEquals(sorted[0], expected[nearest], TOLERANCE, description + " nearest");
+            int size = workspace.getPathSize();
+            assertEquals(start[1] * obstacles.getWidth() + start[0], workspace.getPathCells()[0], description + " path start");
+            assertEquals(targets[nearest], workspace.getPathCells()[size - 1], description + " path end");
+            assertEquals(sorted[0], GridPath.getLength(obstacles.getWidth(), workspace.getPathCells(), size), TOLERANCE,
+                    description + " path length");
+
+            int k = 5;
+            int[] kNearest = new int[k];
+            float[] kDistances = new float[k];
+            int found = engine.findNearest(start[0], start[1], targets, k, kNearest, kDistances, workspace);
+            assertEquals(Math.min(k, reachable), found, description);
+            for(int i = 0; i < found; i++) {
+                assertEquals(sorted[i], kDistances[i], TOLERANCE, description + " " + i + "th nearest");
+                assertEquals(expected[kNearest[i]], kDistances[i], TOLERANCE, description + " " + i + "th nearest index");
+            }
+        }
+    }
+
+    @Test
+    void oneSearchExpandsLessThanOneSearchPerTarget() {
+        GridAStar single = new GridAStar(obstacles);
+        int[] targets = targets(50);
+        int[] start = TestMaps.queries(obstacles, 1, 51).get(0);
+
+        engine.findDistances(start[0], start[1], targets, new float[NUM_TARGETS], workspace);
+        int combined = workspace.getExpansions();
+        int separate = 0;
+        for(int target : targets) {
+            single.search(start[0], start[1], target % obstacles.getWidth(), target / obstacles.getWidth(), workspace);
+            separate += workspace.getExpansions();
+        }
+        assertTrue(combined < separate, combined + " expansions for all targets, " + separate + " one by one");
+    }
+
+    private int[] targets(long seed) {
+        int[] targets = TestMaps.cells(obstacles, NUM_TARGETS, seed);
+        // a repeated target and one on an obstacle
+        targets[1] = targets[0];
+        targets[2] = TestMaps.firstObstacle(obstacles);
+        return targets;
+    }
+}
@@ -0,0 +1,109 @@
+package model;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks every engine against {@link ReferenceDijkstra} on seeded random maps and mazes: a path is found exactly when
+ * one exists, it is a valid path between the queried cells, and it is as short as the engine promises. Waypoints of
+ * any-angle paths are checked with {@link ReferenceLine}, not with the line of sight the engines use themselves.
+ */
+class PathAlgorithmCrossCheckTest {
+
+    private static final int QUERIES_PER_MAP = 12;
+
+    // distances of GridAStar are summed as floats during the search
+    private static final double RELATIVE_TOLERANCE = 1e-5;
+
+    @TestFactory
+    List<DynamicTest> enginesMatchReference() {
+        List<DynamicTest> tests = new ArrayList<>();
+        for(Scenario scenario : scenarios()) {
+            for(Engine engine : Engine.values()) {
+                tests.add(DynamicTest.dynamicTest(engine + " on " + scenario.name, () -> check(engine, scenario)));
+            }
+        }
+        return tests;
+    }
+
+    private static List<Scenario> scenarios() {
+        List<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(new Scenario("empty 40x30", new BitGrid(40, 30)));
+        scenarios.add(new Scenario("random 64x64 at 20%", TestMaps.random(64, 64, 0.2, 11)));
+        scenarios.add(new Scenario("random 64x48 at 35%", TestMaps.random(64, 48, 0.35, 12)));
+        scenarios.add(new Scenario("random 31x57 at 45%", TestMaps.random(31, 57, 0.45, 13)));
+        scenarios.add(new Scenario("DFS maze 63x63", new MazeDfsGenerator(21).generate(63, 63)));
+        scenarios.add(new Scenario("Kruskal maze 61x41", new MazeKruskalGenerator(22).generate(61, 41)));
+        scenarios.add(new Scenario("Wilson maze 45x63", new MazeWilsonGenerator(23).generate(45, 63)));
+        scenarios.add(new Scenario("Eller maze 64x64", new MazeEllerGenerator(24).generate(64, 64)));
+        return scenarios;
+    }
+
+    private static void check(Engine engine, Scenario scenario) {
+        BitGrid obstacles = scenario.obstacles;
+        Graph graph = TestMaps.toGraph(obstacles);
+        ReferenceDijkstra reference = new ReferenceDijkstra(obstacles);
+        ReferenceLine line = new ReferenceLine(obstacles);
+
+        for(int[] query : TestMaps.queries(obstacles, QUERIES_PER_MAP, scenario.name.hashCode())) {
+            String description = engine + " from (" + query[0] + ", " + query[1] + ") to (" + query[2] + ", " + query[3] + ")";
+            double expected = reference.distance(query[0], query[1], query[2], query[3]);
+            Engine.Outcome outcome = engine.search(graph, obstacles, query);
+
+            assertEquals(expected != Double.POSITIVE_INFINITY, outcome.found, description + " found a path");
+            if(!outcome.found) continue;
+
+            GridPath path = outcome.path;
+            assertFalse(path.isEmpty(), description + " returned an empty path");
+            assertEquals(query[1] * obstacles.getWidth() + query[0], path.getCell(0), description + " start");
+            assertEquals(query[3] * obstacles.getWidth() + query[2], path.getCell(path.size() - 1), description + " end");
+            assertEquals(path.getLength(), outcome.distance, tolerance(expected), description + " reported distance");
+
+            for(int i = 1; i < path.size(); i++) {
+                int x0 = path.getX(i - 1), y0 = path.getY(i - 1), x1 = path.getX(i), y1 = path.getY(i);
+                if(engine.getGuarantee() == Engine.Guarantee.ANY_ANGLE) {
+                    assertTrue(line.isClear(x0, y0, x1, y1), description + " waypoint " + i + " is hidden");
+                } else {
+                    assertTrue(Math.abs(x1 - x0) <= 1 && Math.abs(y1 - y0) <= 1 && (x0 != x1 || y0 != y1),
+                            description + " move " + i + " is not to a neighbor");
+                    assertFalse(obstacles.get(x1, y1), description + " move " + i + " enters an obstacle");
+                }
+            }
+
+            switch(engine.getGuarantee()) {
+                case SHORTEST:
+                    assertEquals(expected, outcome.distance, tolerance(expected), description + " is not shortest");
+                    break;
+                case FEWEST_MOVES:
+                    assertEquals(reference.hops(query[0], query[1], query[2], query[3]), path.size() - 1,
+                            description + " has too many moves");
+                    break;
+                case ANY_ANGLE:
+                    assertTrue(outcome.distance <= expected + tolerance(expected), description + " is longer than the grid path");
+                    assertTrue(outcome.distance >= Math.hypot(query[2] - query[0], query[3] - query[1]) - tolerance(expected),
+                            description + " is shorter than a straight line");
+                    break;
+            }
+        }
+    }
+
+    private static double tolerance(double distance) {
+        return RELATIVE_TOLERANCE * Math.max(1, distance);
+    }
+
+    private static final class Scenario {
+
+        final String name;
+        final BitGrid obstacles;
+
+        Scenario(String name, BitGrid obstacles) {
+            this.name = name;
+            this.obstacles = obstacles;
+        }
+    }
+}
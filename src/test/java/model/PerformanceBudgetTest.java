@@ -0,0 +1,113 @@
+package model;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every engine on a fixed workload and fails when it does more work than its budget allows: more nodes expanded,
+ * more bytes allocated for a single query, or more wall time for the whole workload.
+ *
+ * Expansions are deterministic, so their budgets sit just above the current counts and catch any change to the search
+ * order. Allocations and time depend on the JVM and the machine, so their budgets leave room for that. When an
+ * optimization lowers a count for good, the budget should be lowered with it.
+ */
+class PerformanceBudgetTest {
+
+    private static final int QUERIES_PER_MAP = 25;
+
+    private static final Budget[] BUDGETS = {
+            new Budget(Engine.DIJKSTRA, 150_000, 1_000_000, 1_000),
+            new Budget(Engine.A_STAR, 76_500, 1_300_000, 1_500),
+            new Budget(Engine.BIDIRECTIONAL_DIJKSTRA, 121_000, 1_100_000, 1_000),
+            new Budget(Engine.ANYTIME_A_STAR, 117_000, 1_600_000, 1_000),
+            new Budget(Engine.BREADTH_FIRST_SEARCH, 148_700, 1_000_000, 1_000),
+            new Budget(Engine.THETA_STAR, 72_600, 1_400_000, 1_000),
+            new Budget(Engine.GRID_A_STAR, 72_300, 16_000, 500),
+    };
+
+    @TestFactory
+    List<DynamicTest> enginesStayWithinBudget() {
+        List<DynamicTest> tests = new ArrayList<>();
+        for(Budget budget : BUDGETS) {
+            tests.add(DynamicTest.dynamicTest(budget.engine.toString(), () -> check(budget)));
+        }
+        return tests;
+    }
+
+    private static List<BitGrid> workload() {
+        List<BitGrid> maps = new ArrayList<>();
+        maps.add(TestMaps.random(96, 96, 0.25, 31));
+        maps.add(new MazeDfsGenerator(32).generate(95, 95));
+        return maps;
+    }
+
+    private static void check(Budget budget) {
+        // one run to warm up the JIT compiler, then the measured one
+        run(budget.engine);
+        Measurement measured = run(budget.engine);
+
+        assertTrue(measured.expansions <= budget.maxExpansions,
+                budget.engine + " expanded " + measured.expansions + " nodes, budget is " + budget.maxExpansions);
+        assertTrue(measured.maxBytesPerQuery <= budget.maxBytesPerQuery,
+                budget.engine + " allocated " + measured.maxBytesPerQuery + " bytes in a query, budget is " + budget.maxBytesPerQuery);
+        assertTrue(measured.nanos <= budget.maxMillis * 1_000_000L,
+                budget.engine + " took " + measured.nanos / 1_000_000 + " ms, budget is " + budget.maxMillis + " ms");
+    }
+
+    private static Measurement run(Engine engine) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        Measurement measurement = new Measurement();
+
+        for(BitGrid obstacles : workload()) {
+            Graph graph = TestMaps.toGraph(obstacles);
+            List<int[]> queries = TestMaps.queries(obstacles, QUERIES_PER_MAP, obstacles.hashCode());
+            long start = System.nanoTime();
+            for(int[] query : queries) {
+                long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+                Engine.Outcome outcome = engine.search(graph, obstacles, query);
+                long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+                measurement.expansions += outcome.expansions;
+                measurement.maxBytesPerQuery = Math.max(measurement.maxBytesPerQuery, allocated);
+            }
+            measurement.nanos += System.nanoTime() - start;
+        }
+        return measurement;
+    }
+
+    private static final class Budget {
+
+        final Engine engine;
+        final long maxExpansions;
+        final long maxBytesPerQuery;
+        final long maxMillis;
+
+        /**
+         * @param engine - the engine
+         * @param maxExpansions - nodes expanded over the whole workload
+         * @param maxBytesPerQuery - bytes allocated by the query which allocates most
+         * @param maxMillis - wall time of the whole workload
+         */
+        Budget(Engine engine, long maxExpansions, long maxBytesPerQuery, long maxMillis) {
+            this.engine = engine;
+            this.maxExpansions = maxExpansions;
+            this.maxBytesPerQuery = maxBytesPerQuery;
+            this.maxMillis = maxMillis;
+        }
+    }
+
+    private static final class Measurement {
+
+        long expansions;
+        long maxBytesPerQuery;
+        long nanos;
+    }
+}
@@ -0,0 +1,77 @@
+package model;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Plain Dijkstra over a bit grid which the algorithms are checked against. It is written independently of the
+ * production code, moving in the eight directions onto any free cell inside the grid, like {@link Graph} does.
+ */
+final class ReferenceDijkstra {
+
+    private static final int[] DX = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] DY = {0, -1, -1, -1, 0, 1, 1, 1};
+
+    private final BitGrid obstacles;
+
+    ReferenceDijkstra(BitGrid obstacles) {
+        this.obstacles = obstacles;
+    }
+
+    /**
+     * @return the length of the shortest path, or positive infinity if there is none
+     */
+    double distance(int sx, int sy, int ex, int ey) {
+        int width = obstacles.getWidth();
+        double[] dist = new double[width * obstacles.getHeight()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        dist[sy * width + sx] = 0;
+        queue.add(new double[]{0, sy * width + sx});
+
+        while(!queue.isEmpty()) {
+            double[] entry = queue.poll();
+            int cell = (int) entry[1];
+            if(entry[0] > dist[cell]) continue;
+            if(cell == ey * width + ex) return entry[0];
+
+            int x = cell % width, y = cell / width;
+            for(int d = 0; d < 8; d++) {
+                int nx = x + DX[d], ny = y + DY[d];
+                if(!obstacles.contains(nx, ny) || obstacles.get(nx, ny)) continue;
+                double distance = entry[0] + (DX[d] != 0 && DY[d] != 0 ? Math.sqrt(2) : 1);
+                if(distance < dist[ny * width + nx]) {
+                    dist[ny * width + nx] = distance;
+                    queue.add(new double[]{distance, ny * width + nx});
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the smallest number of moves between the cells, or -1 if they are not connected
+     */
+    int hops(int sx, int sy, int ex, int ey) {
+        int width = obstacles.getWidth();
+        int[] hops = new int[width * obstacles.getHeight()];
+        Arrays.fill(hops, -1);
+        int[] queue = new int[hops.length];
+        int head = 0, tail = 0;
+        hops[sy * width + sx] = 0;
+        queue[tail++] = sy * width + sx;
+
+        while(head < tail) {
+            int cell = queue[head++];
+            if(cell == ey * width + ex) return hops[cell];
+            int x = cell % width, y = cell / width;
+            for(int d = 0; d < 8; d++) {
+                int nx = x + DX[d], ny = y + DY[d];
+                if(!obstacles.contains(nx, ny) || obstacles.get(nx, ny) || hops[ny * width + nx] >= 0) continue;
+                hops[ny * width + nx] = hops[cell] + 1;
+                queue[tail++] = ny * width + nx;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,38 @@
+package model;
+
+/**
+ * Cell by cell line walk which line of sight is checked against. It is written independently of {@link LineOfSight},
+ * but rasterizes lines the same way: from the end with the smaller coordinate along the longer axis, step t of dMajor
+ * lies at floor((2 t dMinor + dMajor) / (2 dMajor)) along the shorter axis.
+ */
+final class ReferenceLine {
+
+    private final BitGrid obstacles;
+
+    ReferenceLine(BitGrid obstacles) {
+        this.obstacles = obstacles;
+    }
+
+    /**
+     * @return true if every cell of the line between the cells is inside the grid and free
+     */
+    boolean isClear(int x0, int y0, int x1, int y1) {
+        boolean steep = Math.abs(y1 - y0) > Math.abs(x1 - x0);
+        int major0 = steep ? y0 : x0, minor0 = steep ? x0 : y0;
+        int major1 = steep ? y1 : x1, minor1 = steep ? x1 : y1;
+        if(major1 < major0) {
+            int tmp = major0; major0 = major1; major1 = tmp;
+            tmp = minor0; minor0 = minor1; minor1 = tmp;
+        }
+        long dMajor = major1 - major0, dMinor = Math.abs(minor1 - minor0);
+        int step = minor1 >= minor0 ? 1 : -1;
+
+        for(long t = 0; t <= dMajor; t++) {
+            int minor = minor0 + step * (int) (dMajor == 0 ? 0 : (2 * t * dMinor + dMajor) / (2 * dMajor));
+            int major = major0 + (int) t;
+            int x = steep ? minor : major, y = steep ? major : minor;
+            if(!obstacles.contains(x, y) || obstacles.get(x, y)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,60 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that a {@link SearchScheduler} completes the handle of every search, also when its listener fails.
+ */
+class SearchSchedulerTest {
+
+    private final BitGrid obstacles = TestMaps.random(30, 30, 0.2, 71);
+    private final int[] query = TestMaps.queries(obstacles, 1, 72).get(0);
+
+    @Test
+    void failingListenerStillCompletesTheHandle() throws Exception {
+        try(SearchScheduler scheduler = new SearchScheduler(2)) {
+            IllegalStateException failure = new IllegalStateException("listener failed");
+            SearchHandle failed = scheduler.submit(dijkstra(), new SearchListener() {
+                @Override
+                public void onFinished(PathAlgorithm alg, SearchStatus status) {
+                    throw failure;
+                }
+            });
+
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> failed.getResult().get(10, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+            assertTrue(failed.isDone());
+            assertThrows(IllegalStateException.class, failed::await);
+
+            // the worker goes on with the next search
+            SearchHandle next = scheduler.submit(dijkstra(), new SearchListener() {});
+            SearchStatus status = next.getResult().get(10, TimeUnit.SECONDS);
+            assertTrue(status == SearchStatus.FOUND || status == SearchStatus.UNREACHABLE, String.valueOf(status));
+        }
+    }
+
+    @Test
+    void failingStepStillCompletesTheHandle() throws Exception {
+        try(SearchScheduler scheduler = new SearchScheduler(2)) {
+            SearchHandle failed = scheduler.submit(dijkstra(), new SearchListener() {
+                @Override
+                public void onStep(PathAlgorithm alg) {
+                    throw new IllegalStateException("step failed");
+                }
+            });
+            assertThrows(ExecutionException.class, () -> failed.getResult().get(10, TimeUnit.SECONDS));
+            assertTrue(failed.isDone());
+        }
+    }
+
+    private PathAlgorithm dijkstra() {
+        Graph graph = TestMaps.toGraph(obstacles);
+        return new Dijkstra(new Point(query[0], query[1]), new Point(query[2], query[3]), graph);
+    }
+}
@@ -0,0 +1,82 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that recorded traces survive their binary form, and that damaged data is rejected before anything is
+ * allocated for it.
+ */
+class SearchTraceTest {
+
+    private final BitGrid obstacles = TestMaps.random(30, 20, 0.25, 73);
+
+    @Test
+    void recordedTraceRoundTrips() {
+        int[] query = TestMaps.queries(obstacles, 1, 74).get(0);
+        Dijkstra alg = new Dijkstra(new Point(query[0], query[1]), new Point(query[2], query[3]),
+                TestMaps.toGraph(obstacles));
+        TraceRecorder recorder = new TraceRecorder();
+        alg.setTraceRecorder(recorder);
+        while(!alg.pathIsFound() && !alg.isExhausted()) {
+            alg.visitNext();
+        }
+        SearchStatus status = alg.pathIsFound() ? SearchStatus.FOUND : SearchStatus.UNREACHABLE;
+        SearchTrace trace = recorder.finish(obstacles, status, alg.pathIsFound() ? alg.getGridPath() : null);
+
+        SearchTrace decoded = SearchTrace.fromBytes(trace.toBytes());
+        assertEquals(obstacles, decoded.getObstacles());
+        assertArrayEquals(trace.getEvents(), decoded.getEvents());
+        assertEquals(trace.getNumSteps(), decoded.getNumSteps());
+        assertEquals(trace.getNumEvents(), decoded.getNumEvents());
+        assertEquals(status, decoded.getStatus());
+        assertEquals(trace.getPath(), decoded.getPath());
+    }
+
+    @Test
+    void damagedTracesAreRejected() {
+        byte[] data = trace().toBytes();
+        for(int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(IllegalArgumentException.class, () -> SearchTrace.fromBytes(truncated), length + " bytes");
+        }
+        assertThrows(IllegalArgumentException.class, () -> SearchTrace.fromBytes(Arrays.copyOf(data, data.length + 1)));
+
+        // the trace has no path and three bytes of events, so it ends with status, path size, event length, events
+        int status = data.length - 6, pathSize = data.length - 5, eventLength = data.length - 4;
+        assertRejected(with(data, status, 9), "unknown status");
+        assertRejected(with(data, pathSize, 100), "truncated");
+        assertRejected(replace(data, eventLength, 0xFF, 0xFF, 0xFF, 0xFF, 0x0F), "invalid event log length");
+        assertRejected(replace(data, eventLength, 0xFE, 0xFF, 0xFF, 0xFF, 0x07), "event log of 2147483646");
+    }
+
+    private static void assertRejected(byte[] data, String reason) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> SearchTrace.fromBytes(data));
+        assertTrue(e.getMessage().contains(reason), e.getMessage());
+    }
+
+    private SearchTrace trace() {
+        return new SearchTrace(obstacles, new byte[]{1, 2, 3}, 2, 3, SearchStatus.UNREACHABLE, null);
+    }
+
+    private static byte[] with(byte[] data, int index, int value) {
+        byte[] copy = data.clone();
+        copy[index] = (byte) value;
+        return copy;
+    }
+
+    /**
+     * Replaces the byte at the index by several, keeping the bytes after it.
+     */
+    private static byte[] replace(byte[] data, int index, int... bytes) {
+        byte[] copy = Arrays.copyOf(data, data.length - 1 + bytes.length);
+        for(int i = 0; i < bytes.length; i++) {
+            copy[index + i] = (byte) bytes[i];
+        }
+        System.arraycopy(data, index + 1, copy, index + bytes.length, data.length - index - 1);
+        return copy;
+    }
+}
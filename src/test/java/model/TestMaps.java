@@ -0,0 +1,97 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded maps and queries for the tests, so that every run searches exactly the same scenarios.
+ */
+final class TestMaps {
+
+    private TestMaps() {}
+
+    /**
+     * @param density - probability of a cell being an obstacle
+     * @return a grid with obstacles scattered uniformly at random
+     */
+    static BitGrid random(int width, int height, double density, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        BitGrid grid = new BitGrid(width, height);
+        for(int y = 0; y < height; y++) {
+            for(int x = 0; x < width; x++) {
+                if(random.nextDouble() < density) grid.set(x, y, true);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Builds a graph with the obstacles of the grid.
+     */
+    static Graph toGraph(BitGrid obstacles) {
+        Graph graph = new Graph(obstacles.getWidth(), obstacles.getHeight());
+        graph.populateEmpty();
+        for(Node node : graph.getNodes()) {
+            if(obstacles.get(node.getXCoordinate(), node.getYCoordinate())) {
+                node.setState(NodeState.OBSTACLE);
+            }
+        }
+        graph.initNeighbors();
+        return graph;
+    }
+
+    /**
+     * Writes the obstacles to a temporary map file, deleted when the tests end, and opens it as a tiled grid.
+     * @param memoryBudget - bytes of chunk data the grid may keep in memory
+     */
+    static TiledGrid tiled(BitGrid obstacles, long memoryBudget) throws IOException {
+        Path file = Files.createTempFile("test-map", ".grid");
+        file.toFile().deleteOnExit();
+        GridMapFile.write(file, obstacles);
+        return TiledGrid.open(file, memoryBudget);
+    }
+
+    /**
+     * Picks pairs of free cells, which may or may not be connected.
+     * @return the queries as {start x, start y, end x, end y}
+     */
+    static List<int[]> queries(BitGrid obstacles, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<int[]> queries = new ArrayList<>();
+        while(queries.size() < count) {
+            int sx = random.nextInt(obstacles.getWidth()), sy = random.nextInt(obstacles.getHeight());
+            int ex = random.nextInt(obstacles.getWidth()), ey = random.nextInt(obstacles.getHeight());
+            if(obstacles.get(sx, sy) || obstacles.get(ex, ey)) continue;
+            queries.add(new int[]{sx, sy, ex, ey});
+        }
+        return queries;
+    }
+
+    /**
+     * Picks free cells, which may repeat.
+     * @return the cells as y * width + x
+     */
+    static int[] cells(BitGrid obstacles, int count, long seed) {
+        List<int[]> queries = queries(obstacles, count, seed);
+        int[] cells = new int[count];
+        for(int i = 0; i < count; i++) {
+            cells[i] = queries.get(i)[1] * obstacles.getWidth() + queries.get(i)[0];
+        }
+        return cells;
+    }
+
+    /**
+     * @return the first obstacle cell in row-major order, as y * width + x
+     * @throws IllegalArgumentException if the grid has no obstacles
+     */
+    static int firstObstacle(BitGrid obstacles) {
+        for(int cell = 0; cell < obstacles.getWidth() * obstacles.getHeight(); cell++) {
+            if(obstacles.get(cell % obstacles.getWidth(), cell / obstacles.getWidth())) return cell;
+        }
+        throw new IllegalArgumentException("The grid has no obstacles");
+    }
+}
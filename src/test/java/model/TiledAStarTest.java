@@ -0,0 +1,106 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link TiledAStar} on a map file which is larger than the memory budget of its {@link TiledGrid}, against
+ * {@link ReferenceDijkstra} and {@link GridAStar} on the same map held in memory, and that a search which reaches more
+ * cells than its limit gives up instead of answering wrongly.
+ */
+class TiledAStarTest {
+
+    @TempDir
+    Path directory;
+
+    // five by four chunks of 64 cells
+    private final BitGrid obstacles = TestMaps.random(300, 200, 0.3, 81);
+    private final List<int[]> queries = TestMaps.queries(obstacles, 40, 82);
+    private final ReferenceDijkstra reference = new ReferenceDijkstra(obstacles);
+
+    @Test
+    void pagedSearchMatchesReference() throws IOException {
+        Path file = directory.resolve("map.grid");
+        GridMapFile.write(file, obstacles);
+        GridAStar gridAStar = new GridAStar(obstacles);
+        SearchWorkspace workspace = new SearchWorkspace();
+
+        // a budget below one chunk still keeps one chunk
+        try(TiledGrid grid = TiledGrid.open(file, 1)) {
+            assertEquals(1, grid.getMaxChunks());
+            TiledAStar search = new TiledAStar(grid);
+            for(int[] query : queries) {
+                String description = "from (" + query[0] + ", " + query[1] + ") to (" + query[2] + ", " + query[3] + ")";
+                double expected = reference.distance(query[0], query[1], query[2], query[3]);
+                SearchStatus status = search.search(query[0], query[1], query[2], query[3]);
+                PathResult inMemory = gridAStar.findPath(query[0], query[1], query[2], query[3], workspace);
+
+                assertEquals(inMemory.getStatus(), status, description);
+                if(expected == Double.POSITIVE_INFINITY) {
+                    assertEquals(SearchStatus.UNREACHABLE, status, description);
+                    assertNull(search.getPath(), description);
+                    continue;
+                }
+                assertEquals(SearchStatus.FOUND, status, description);
+                assertEquals(expected, search.getDistance(), expected * 1e-9, description);
+                assertEquals(inMemory.getDistance(), search.getDistance(), expected * 1e-5, description);
+                assertEquals(expected, length(search.getPath(), query), expected * 1e-9, description);
+                assertTrue(grid.getResidentChunks() <= 1, description);
+            }
+            assertTrue(grid.getEvictions() > 0, "the searches never left a chunk");
+        }
+    }
+
+    @Test
+    void searchGivesUpAtTheStateLimit() throws IOException {
+        int maxStates = 300;
+        int limited = 0;
+        try(TiledGrid grid = TestMaps.tiled(obstacles, 2 * 64 * 64 / 8)) {
+            TiledAStar search = new TiledAStar(grid, maxStates);
+            for(int[] query : queries) {
+                String description = "from (" + query[0] + ", " + query[1] + ") to (" + query[2] + ", " + query[3] + ")";
+                double expected = reference.distance(query[0], query[1], query[2], query[3]);
+                SearchStatus status = search.search(query[0], query[1], query[2], query[3]);
+                assertTrue(search.getNumStates() <= maxStates, description);
+
+                // a limited search may give up, but whatever it does answer is right
+                if(status == SearchStatus.LIMIT_EXCEEDED) {
+                    limited++;
+                    assertNull(search.getPath(), description);
+                } else if(status == SearchStatus.FOUND) {
+                    assertEquals(expected, search.getDistance(), expected * 1e-9, description);
+                } else {
+                    assertEquals(SearchStatus.UNREACHABLE, status, description);
+                    assertEquals(Double.POSITIVE_INFINITY, expected, description);
+                }
+            }
+        }
+        assertTrue(limited > 0, "no search reached the limit");
+    }
+
+    /**
+     * Checks that the path is made of moves between free neighbors from the start to the end of the query.
+     * @return length of the path
+     */
+    private double length(long[] path, int[] query) {
+        int width = obstacles.getWidth();
+        assertEquals((long) query[1] * width + query[0], path[0]);
+        assertEquals((long) query[3] * width + query[2], path[path.length - 1]);
+        double length = 0;
+        for(int i = 1; i < path.length; i++) {
+            int x0 = (int) (path[i - 1] % width), y0 = (int) (path[i - 1] / width);
+            int x1 = (int) (path[i] % width), y1 = (int) (path[i] / width);
+            assertTrue(Math.abs(x1 - x0) <= 1 && Math.abs(y1 - y0) <= 1 && path[i] != path[i - 1],
+                    "move " + i + " is not to a neighbor");
+            assertFalse(obstacles.get(x1, y1), "move " + i + " enters an obstacle");
+            length += x0 != x1 && y0 != y1 ? Math.sqrt(2) : 1;
+        }
+        return length;
+    }
+}
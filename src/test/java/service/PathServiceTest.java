@@ -0,0 +1,129 @@
+package service;
+
+import model.BitGrid;
+import model.GridAStar;
+import model.GridMapFile;
+import model.PathResult;
+import model.SearchStatus;
+import model.SearchWorkspace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Uploads a map to a running {@link PathService} and queries it over HTTP, and checks that a {@link QueryBatcher}
+ * answers every query it accepted, also when it is closed with queries still waiting.
+ */
+class PathServiceTest {
+
+    private final BitGrid obstacles = new BitGrid(10, 10);
+    private PathService service;
+
+    @BeforeEach
+    void start() throws IOException {
+        // a wall with a gap in the bottom row
+        for(int y = 0; y < 9; y++) {
+            obstacles.set(5, y, true);
+        }
+        service = new PathService(0, new QueryBatcher(2, 64));
+        service.start();
+    }
+
+    @AfterEach
+    void stop() {
+        service.close();
+    }
+
+    @Test
+    void uploadAndQuery() throws IOException {
+        HttpURLConnection upload = connect("/maps/walled");
+        upload.setRequestMethod("PUT");
+        upload.setDoOutput(true);
+        try(OutputStream out = upload.getOutputStream()) {
+            out.write(GridMapFile.toBytes(obstacles));
+        }
+        assertEquals(200, upload.getResponseCode());
+        assertTrue(read(upload).contains("\"width\":10,\"height\":10"));
+
+        PathResult expected = new GridAStar(obstacles).findPath(1, 1, 8, 8, new SearchWorkspace());
+        assertEquals(SearchStatus.FOUND, expected.getStatus());
+        // clients may escape the comma or leave it as it is
+        for(String query : List.of("from=1,1&to=8,8", "from=1%2C1&to=8%2c8", "%66rom=1,1&to=8,8")) {
+            HttpURLConnection path = connect("/maps/walled/path?" + query);
+            assertEquals(200, path.getResponseCode(), query);
+            String json = read(path);
+            assertTrue(json.startsWith("{\"status\":\"FOUND\",\"version\":1,"), json);
+            assertTrue(json.contains("\"distance\":" + expected.getDistance() + ","), json);
+            assertTrue(json.contains("\"path\":[[1,1],"), json);
+            assertTrue(json.endsWith("[8,8]]}"), json);
+        }
+    }
+
+    @Test
+    void badRequestsAreRejected() throws IOException {
+        service.putMap("walled", obstacles);
+        assertEquals(404, connect("/maps/missing/path?from=1,1&to=8,8").getResponseCode());
+        assertEquals(400, connect("/maps/walled/path?from=1,1").getResponseCode());
+        assertEquals(400, connect("/maps/walled/path?from=1;1&to=8,8").getResponseCode());
+        assertEquals(400, connect("/maps/walled/path?from=1%2&to=8,8").getResponseCode());
+        assertEquals(400, connect("/maps/walled/path?from=1,1&to=10,8").getResponseCode());
+
+        HttpURLConnection upload = connect("/maps/broken");
+        upload.setRequestMethod("PUT");
+        upload.setDoOutput(true);
+        try(OutputStream out = upload.getOutputStream()) {
+            out.write(new byte[] {1, 2, 3});
+        }
+        assertEquals(400, upload.getResponseCode());
+    }
+
+    @Test
+    void closedBatcherAnswersEveryQuery() throws Exception {
+        MapSnapshot map = new MapSnapshot("walled", 1, obstacles);
+        QueryBatcher batcher = new QueryBatcher(1, 256, 4, 1_000_000);
+        List<CompletableFuture<PathResult>> results = new ArrayList<>();
+        for(int i = 0; i < 200; i++) {
+            results.add(batcher.submit(map, 0, i % 10, 9, 9 - i % 10));
+        }
+        batcher.close();
+
+        for(CompletableFuture<PathResult> result : results) {
+            // a query is either searched or failed, but never left waiting
+            try {
+                assertEquals(SearchStatus.FOUND, result.get(10, TimeUnit.SECONDS).getStatus());
+            } catch (ExecutionException e) {
+                assertInstanceOf(RejectedExecutionException.class, e.getCause());
+            }
+        }
+        assertThrows(RejectedExecutionException.class, () -> batcher.submit(map, 0, 0, 9, 9));
+    }
+
+    private HttpURLConnection connect(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)
+                new URL("http", "127.0.0.1", service.getPort(), path).openConnection();
+        connection.setConnectTimeout(10_000);
+        connection.setReadTimeout(10_000);
+        return connection;
+    }
+
+    private static String read(HttpURLConnection connection) throws IOException {
+        try(InputStream in = connection.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}